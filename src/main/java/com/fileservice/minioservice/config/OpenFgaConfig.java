@@ -6,6 +6,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
 public class OpenFgaConfig {
 
@@ -18,13 +23,32 @@ public class OpenFgaConfig {
     @Value("${openfga.authorization-model-id}")
     private String authorizationModelId;
 
+    /** Bounds how long a request that outlived openfga.timeout-ms can keep holding a concurrency permit */
+    @Value("${openfga.read-timeout-ms:10000}")
+    private long readTimeoutMillis;
+
     @Bean
     public OpenFgaClient openFgaClient() {
         ClientConfiguration configuration = new ClientConfiguration()
                 .apiUrl(apiUrl)
                 .storeId(storeId)
-                .authorizationModelId(authorizationModelId);
+                .authorizationModelId(authorizationModelId)
+                .connectTimeout(Duration.ofMillis(readTimeoutMillis))
+                .readTimeout(Duration.ofMillis(readTimeoutMillis));
 
         return new OpenFgaClient(configuration);
     }
+
+    /**
+     * Runs completions of OpenFGA calls so they never occupy HTTP client or request threads
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService openFgaExecutor(@Value("${openfga.executor-threads:8}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "openfga-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
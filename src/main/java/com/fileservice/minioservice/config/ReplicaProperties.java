@@ -0,0 +1,37 @@
+package com.fileservice.minioservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica settings, bound from the database.replicas prefix
+ */
+@Data
+@ConfigurationProperties(prefix = "database.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    private List<String> urls = new ArrayList<>();
+
+    private String username;
+
+    private String password;
+
+    private int maximumPoolSize = 10;
+
+    /**
+     * Replicas lagging further behind the primary than this are not used for reads
+     */
+    private long maxLagMs = 2000;
+
+    private long lagCheckIntervalMs = 5000;
+
+    /**
+     * How long a user's reads stay on the primary after they performed a write
+     */
+    private long readYourWritesWindowMs = 5000;
+}
@@ -0,0 +1,144 @@
+package com.fileservice.minioservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions to a healthy read replica and everything else
+ * to the primary. Replicas whose replication lag exceeds the configured bound
+ * are taken out of rotation, and a user whose write transaction just
+ * committed is kept on the primary for a short window so they read their own
+ * writes. Connections taken outside a transaction always go to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final String REPLICATION_LAG_QUERY =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final Map<String, DataSource> replicas;
+    private final long maxLagMs;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReplicaProperties properties) {
+        this.replicas = replicas;
+        this.maxLagMs = properties.getMaxLagMs();
+        this.healthyReplicas = new ArrayList<>(replicas.keySet());
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(properties.getReadYourWritesWindowMs()))
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        // Outside a transaction there is no read-only hint, so stay on the primary
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+
+        String username = currentUsername();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null) {
+                markWriterOnCommit(username);
+            }
+            return PRIMARY;
+        }
+
+        if (username != null && recentWriters.getIfPresent(username) != null) {
+            return PRIMARY;
+        }
+
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Start the user's read-your-writes window when the write transaction
+     * commits, so a transaction longer than the window still gets its reads
+     * pinned afterwards and a rolled-back one does not pin them at all
+     */
+    private void markWriterOnCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(username, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * Measure replication lag on every replica and keep only those within bounds
+     */
+    @Scheduled(fixedDelayString = "${database.replicas.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        List<String> healthy = new ArrayList<>();
+
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+
+                long lagMs = resultSet.next() ? resultSet.getLong(1) : Long.MAX_VALUE;
+                if (lagMs <= maxLagMs) {
+                    healthy.add(replica.getKey());
+                } else {
+                    log.warn("Replica {} is {} ms behind the primary, routing reads elsewhere", replica.getKey(), lagMs);
+                }
+            } catch (Exception e) {
+                log.warn("Replica {} is unavailable: {}", replica.getKey(), e.getMessage());
+            }
+        }
+
+        healthyReplicas = Collections.unmodifiableList(healthy);
+    }
+
+    /**
+     * The authenticated user, or null for anonymous requests, which share one
+     * principal name and must not pin each other to the primary
+     */
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
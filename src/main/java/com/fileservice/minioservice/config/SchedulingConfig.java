@@ -5,6 +5,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.fileservice.minioservice.service.FileCleanupService;
 import com.fileservice.minioservice.service.MinioService;
 
 import jakarta.annotation.PostConstruct;
@@ -21,6 +22,7 @@ public class SchedulingConfig {
     public static class ScheduledTasks {
         
         private final MinioService minioService;
+        private final FileCleanupService fileCleanupService;
         
         @PostConstruct
         public void initialize() {
@@ -28,11 +30,14 @@ public class SchedulingConfig {
             log.info("MinIO service initialized");
         }
         
-        @Scheduled(cron = "0 0 1 * * ?") // Run at 1 AM every day
+        @Scheduled(fixedDelayString = "${file.expiry.poll-interval-ms:5000}")
         public void cleanupExpiredFiles() {
-            log.info("Starting scheduled cleanup of expired files");
-            minioService.cleanupExpiredFiles();
-            log.info("Completed scheduled cleanup of expired files");
+            fileCleanupService.cleanupExpiredFiles();
+        }
+        
+        @Scheduled(fixedDelayString = "${file.trash.purge-interval-ms:60000}")
+        public void purgeTrashedFiles() {
+            fileCleanupService.purgeTrashedFiles();
         }
     }
 }
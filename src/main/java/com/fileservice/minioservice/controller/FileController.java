@@ -1,9 +1,12 @@
 package com.fileservice.minioservice.controller;
 
+import com.fileservice.minioservice.dto.CursorPage;
 import com.fileservice.minioservice.dto.FileDto;
 import com.fileservice.minioservice.dto.FileUploadRequest;
 import com.fileservice.minioservice.dto.ImageDimension;
+import com.fileservice.minioservice.dto.StorageUsageDto;
 import com.fileservice.minioservice.service.FileService;
+import com.fileservice.minioservice.service.StorageUsageService;
 import io.minio.GetObjectResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,6 +19,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,6 +28,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -36,7 +41,11 @@ import java.util.Optional;
 @SecurityRequirement(name = "bearerAuth")
 public class FileController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final FileService fileService;
+    private final StorageUsageService storageUsageService;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(
@@ -46,6 +55,7 @@ public class FileController {
     @ApiResponse(responseCode = "201", description = "File uploaded successfully")
     @ApiResponse(responseCode = "400", description = "Invalid request")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "413", description = "Storage quota exceeded")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     public ResponseEntity<FileDto> uploadFile(
             @RequestParam("file") MultipartFile file,
@@ -69,15 +79,79 @@ public class FileController {
 
     @GetMapping
     @Operation(
-        summary = "Get all user files",
-        description = "Retrieve all files owned by the authenticated user"
+        summary = "Get user files",
+        description = "Retrieve the files owned by the authenticated user, plus files shared with them when includeShared is set, " +
+                      "one page at a time in ID order. Pass the returned nextCursor to get the next page"
     )
     @ApiResponse(responseCode = "200", description = "Files retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    public ResponseEntity<CursorPage<FileDto>> getUserFiles(
+            @RequestParam(value = "includeShared", defaultValue = "false") boolean includeShared,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getSubject();
+        return ResponseEntity.ok(fileService.getUserFiles(username, includeShared, cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping("/usage")
+    @Operation(
+        summary = "Get storage usage",
+        description = "Retrieve the bytes and number of files stored by the authenticated user, with any configured quota"
+    )
+    @ApiResponse(responseCode = "200", description = "Storage usage retrieved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    public ResponseEntity<StorageUsageDto> getStorageUsage(@AuthenticationPrincipal Jwt jwt) {
+        String username = jwt.getSubject();
+        return ResponseEntity.ok(storageUsageService.getUsage(username));
+    }
+
+    @GetMapping("/trash")
+    @Operation(
+        summary = "Get trashed files",
+        description = "Retrieve the authenticated user's deleted files that can still be restored, newest first. " +
+                      "Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Trashed files retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
-    public ResponseEntity<List<FileDto>> getUserFiles(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<CursorPage<FileDto>> getTrash(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(fileService.getTrash(jwt.getSubject(), cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @PostMapping("/{id}/restore")
+    @Operation(
+        summary = "Restore a trashed file",
+        description = "Take a deleted file back out of the trash while its retention window is open"
+    )
+    @ApiResponse(responseCode = "200", description = "File restored successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "File not found in trash")
+    public ResponseEntity<FileDto> restoreFile(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(fileService.restoreFile(id, jwt.getSubject()));
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    @Operation(
+        summary = "Export all user files",
+        description = "Stream metadata of every file owned by the authenticated user as newline-delimited JSON"
+    )
+    @ApiResponse(responseCode = "200", description = "Export stream started")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    public ResponseEntity<StreamingResponseBody> exportUserFiles(@AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getSubject();
-        List<FileDto> userFiles = fileService.getUserFiles(username);
-        return ResponseEntity.ok(userFiles);
+        StreamingResponseBody body = outputStream -> fileService.exportUserFiles(username, outputStream);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -131,9 +205,10 @@ public class FileController {
     @DeleteMapping("/{id}")
     @Operation(
         summary = "Delete file by ID",
-        description = "Delete a specific file by its ID"
+        description = "Move a specific file to the trash. It can be restored until the retention window " +
+                      "passes, after which it is purged in the background"
     )
-    @ApiResponse(responseCode = "204", description = "File deleted successfully")
+    @ApiResponse(responseCode = "204", description = "File moved to the trash")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     @ApiResponse(responseCode = "404", description = "File not found")
     public ResponseEntity<Void> deleteFile(
@@ -167,16 +242,21 @@ public class FileController {
     @GetMapping("/search")
     @Operation(
         summary = "Search files by filename",
-        description = "Search for files by filename pattern"
+        description = "Search the authenticated user's files (and shared files when includeShared is set) by filename, best matches first"
     )
     @ApiResponse(responseCode = "200", description = "Search results retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid pagination parameters")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     public ResponseEntity<List<FileDto>> searchFiles(
             @RequestParam("filename") String filenamePattern,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "includeShared", defaultValue = "false") boolean includeShared,
             @AuthenticationPrincipal Jwt jwt) {
         
         String username = jwt.getSubject();
-        List<FileDto> searchResults = fileService.searchFilesByFilename(filenamePattern, username);
+        PageRequest pageRequest = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE));
+        List<FileDto> searchResults = fileService.searchFilesByFilename(filenamePattern, username, includeShared, pageRequest);
         return ResponseEntity.ok(searchResults);
     }
 }
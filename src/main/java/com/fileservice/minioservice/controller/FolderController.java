@@ -0,0 +1,150 @@
+package com.fileservice.minioservice.controller;
+
+import com.fileservice.minioservice.dto.CreateFolderRequest;
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.FolderDto;
+import com.fileservice.minioservice.dto.FolderEntryDto;
+import com.fileservice.minioservice.service.FolderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/folders")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Folder Management", description = "API endpoints for organizing files in folders")
+@SecurityRequirement(name = "bearerAuth")
+public class FolderController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final FolderService folderService;
+
+    @PostMapping
+    @Operation(
+        summary = "Create a folder",
+        description = "Create a root folder, or a subfolder of a folder the user can write to"
+    )
+    @ApiResponse(responseCode = "201", description = "Folder created successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "Parent folder not found")
+    public ResponseEntity<FolderDto> createFolder(
+            @RequestBody @Valid CreateFolderRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        FolderDto folder = folderService.createFolder(request.getName(), request.getParentId(), jwt.getSubject());
+        return ResponseEntity.status(HttpStatus.CREATED).body(folder);
+    }
+
+    @GetMapping
+    @Operation(
+        summary = "Get root folders",
+        description = "Retrieve the authenticated user's root folders. Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Folders retrieved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    public ResponseEntity<CursorPage<FolderDto>> getRootFolders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(folderService.getRootFolders(jwt.getSubject(), cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping("/{folderId}/children")
+    @Operation(
+        summary = "Get a folder's children",
+        description = "Retrieve the subfolders and then the files directly in a folder. " +
+                      "Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Children retrieved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "Folder not found")
+    public ResponseEntity<CursorPage<FolderEntryDto>> getChildren(
+            @PathVariable Long folderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(folderService.getChildren(folderId, jwt.getSubject(), cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping("/{folderId}/subtree")
+    @Operation(
+        summary = "Get every folder below a folder",
+        description = "Retrieve all descendant folders in path order. Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Folders retrieved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "Folder not found")
+    public ResponseEntity<CursorPage<FolderDto>> getSubtree(
+            @PathVariable Long folderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(folderService.getSubtree(folderId, jwt.getSubject(), cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping("/{folderId}/subtree/files")
+    @Operation(
+        summary = "Get every file below a folder",
+        description = "Retrieve the files in a folder and all of its descendants. " +
+                      "Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Files retrieved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "Folder not found")
+    public ResponseEntity<CursorPage<FolderEntryDto>> getSubtreeFiles(
+            @PathVariable Long folderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(folderService.getSubtreeFiles(folderId, jwt.getSubject(), cursor, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @PutMapping("/{folderId}/parent")
+    @Operation(
+        summary = "Move a folder",
+        description = "Move a folder and everything below it into another folder, or to the root when parentId is omitted"
+    )
+    @ApiResponse(responseCode = "200", description = "Folder moved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid move")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "Folder not found")
+    public ResponseEntity<FolderDto> moveFolder(
+            @PathVariable Long folderId,
+            @RequestParam(required = false) Long parentId,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(folderService.moveFolder(folderId, parentId, jwt.getSubject()));
+    }
+
+    @PutMapping("/files/{fileId}")
+    @Operation(
+        summary = "Move a file into a folder",
+        description = "Move a file into a folder, or out of every folder when folderId is omitted"
+    )
+    @ApiResponse(responseCode = "200", description = "File moved successfully")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "File or folder not found")
+    public ResponseEntity<Void> moveFile(
+            @PathVariable Long fileId,
+            @RequestParam(required = false) Long folderId,
+            @AuthenticationPrincipal Jwt jwt) {
+        folderService.moveFile(fileId, folderId, jwt.getSubject());
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.fileservice.minioservice.controller;
+
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.GroupMembersRequest;
+import com.fileservice.minioservice.dto.RelationWriteResult;
+import com.fileservice.minioservice.exception.FileServiceException;
+import com.fileservice.minioservice.model.FgaRelation;
+import com.fileservice.minioservice.service.AuthorizationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/groups")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Group Management", description = "API endpoints for managing groups that permissions can be granted to")
+@SecurityRequirement(name = "bearerAuth")
+public class GroupController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final AuthorizationService authorizationService;
+
+    @PostMapping("/{groupId}")
+    @Operation(
+        summary = "Create a group",
+        description = "Create a group owned by the authenticated user, who also becomes its first member"
+    )
+    @ApiResponse(responseCode = "201", description = "Group created successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid group ID")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Group already exists")
+    public ResponseEntity<Void> createGroup(
+            @PathVariable String groupId,
+            @AuthenticationPrincipal Jwt jwt) {
+        authorizationService.createGroup(groupId, jwt.getSubject());
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    @GetMapping("/{groupId}/members")
+    @Operation(
+        summary = "Get group members",
+        description = "Retrieve the owner and member relations of a group one page at a time. " +
+                      "Pass the returned nextCursor to get the next page"
+    )
+    @ApiResponse(responseCode = "200", description = "Members retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid page size")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    public ResponseEntity<CursorPage<FgaRelation>> getGroupMembers(
+            @PathVariable String groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        AuthorizationService.groupSubject(groupId);
+        if (!authorizationService.isGroupMember(groupId, jwt.getSubject())
+                && !authorizationService.isGroupOwner(groupId, jwt.getSubject())) {
+            throw new FileServiceException.FileAccessDeniedException("You are not a member of this group");
+        }
+
+        return ResponseEntity.ok(AuthorizationService.await(authorizationService.getRelationsForObjectPageAsync(
+                AuthorizationService.GROUP_TYPE, groupId, cursor, Math.min(size, MAX_PAGE_SIZE))));
+    }
+
+    @PostMapping("/{groupId}/members")
+    @Operation(
+        summary = "Add group members",
+        description = "Add users to a group; they immediately get every permission granted to the group"
+    )
+    @ApiResponse(responseCode = "200", description = "Members added; users who were already members are listed as rejected")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    public ResponseEntity<RelationWriteResult> addGroupMembers(
+            @PathVariable String groupId,
+            @RequestBody @Valid GroupMembersRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        requireOwner(groupId, jwt.getSubject());
+        return ResponseEntity.ok(authorizationService.addGroupMembers(groupId, request.getUsernames()));
+    }
+
+    @DeleteMapping("/{groupId}/members")
+    @Operation(
+        summary = "Remove group members",
+        description = "Remove users from a group; they lose every permission they only had through the group"
+    )
+    @ApiResponse(responseCode = "200", description = "Members removed; users who were not members are listed as rejected")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    public ResponseEntity<RelationWriteResult> removeGroupMembers(
+            @PathVariable String groupId,
+            @RequestBody @Valid GroupMembersRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        requireOwner(groupId, jwt.getSubject());
+        return ResponseEntity.ok(authorizationService.removeGroupMembers(groupId, request.getUsernames()));
+    }
+
+    private void requireOwner(String groupId, String username) {
+        AuthorizationService.groupSubject(groupId);
+        if (!authorizationService.isGroupOwner(groupId, username)) {
+            throw new FileServiceException.FileAccessDeniedException("Only the group owner can change its members");
+        }
+    }
+}
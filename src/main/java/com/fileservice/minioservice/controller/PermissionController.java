@@ -1,10 +1,14 @@
 package com.fileservice.minioservice.controller;
 
+import com.fileservice.minioservice.dto.BulkPermissionRequest;
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.DirectoryPermissionRequest;
 import com.fileservice.minioservice.dto.PermissionRequest;
+import com.fileservice.minioservice.dto.RelationWriteResult;
+import com.fileservice.minioservice.dto.FileMetadata;
 import com.fileservice.minioservice.model.FgaRelation;
-import com.fileservice.minioservice.model.FileEntity;
-import com.fileservice.minioservice.repository.FileRepository;
 import com.fileservice.minioservice.service.AuthorizationService;
+import com.fileservice.minioservice.service.FileMetadataCache;
 import com.fileservice.minioservice.exception.FileServiceException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -18,7 +22,12 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/permissions")
@@ -28,145 +37,228 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class PermissionController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final AuthorizationService authorizationService;
-    private final FileRepository fileRepository;
+    private final FileMetadataCache fileMetadataCache;
 
     @GetMapping("/files/{fileId}")
     @Operation(
         summary = "Get all permissions for a file",
-        description = "Retrieve all permission relations for a specific file"
+        description = "Retrieve the permission relations for a specific file one page at a time. " +
+                      "Pass the returned nextCursor to get the next page"
     )
     @ApiResponse(responseCode = "200", description = "Permissions retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid page size")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     @ApiResponse(responseCode = "403", description = "Forbidden")
     @ApiResponse(responseCode = "404", description = "File not found")
-    public ResponseEntity<List<FgaRelation>> getFilePermissions(
+    public ResponseEntity<CursorPage<FgaRelation>> getFilePermissions(
             @PathVariable Long fileId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
             @AuthenticationPrincipal Jwt jwt) {
         
         String username = jwt.getSubject();
         
         // Verify file exists
-        FileEntity fileEntity = fileRepository.findById(fileId)
+        String owner = fileMetadataCache.get(fileId)
+                .map(FileMetadata::getOwner)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + fileId));
         
         // Check if user is the owner or has read permission
-        if (!fileEntity.getOwner().equals(username) && !authorizationService.canReadFile(fileId.toString(), username)) {
+        if (!owner.equals(username) && !authorizationService.canReadFile(fileId.toString(), username)) {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to view this file's permissions");
         }
         
-        List<FgaRelation> relations = authorizationService.getRelationsForObject("file", fileId.toString());
-        return ResponseEntity.ok(relations);
+        return ResponseEntity.ok(AuthorizationService.await(authorizationService.getRelationsForObjectPageAsync(
+                "file", fileId.toString(), cursor, Math.min(size, MAX_PAGE_SIZE))));
     }
 
     @PostMapping
     @Operation(
-        summary = "Grant permissions to a user",
-        description = "Grant specific permissions on a file to another user"
+        summary = "Grant permissions to a user or group",
+        description = "Grant specific permissions on a file to another user or to every member of a group"
     )
-    @ApiResponse(responseCode = "200", description = "Permissions granted successfully")
+    @ApiResponse(responseCode = "200", description = "Permissions granted; grants that already existed are listed as rejected")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     @ApiResponse(responseCode = "403", description = "Forbidden")
     @ApiResponse(responseCode = "404", description = "File not found")
-    public ResponseEntity<Void> grantPermissions(
+    public ResponseEntity<RelationWriteResult> grantPermissions(
             @RequestBody @Valid PermissionRequest request,
             @AuthenticationPrincipal Jwt jwt) {
         
         String currentUsername = jwt.getSubject();
         
         // Verify file exists
-        FileEntity fileEntity = fileRepository.findById(request.getFileId())
+        String owner = fileMetadataCache.get(request.getFileId())
+                .map(FileMetadata::getOwner)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + request.getFileId()));
         
         // Check if current user is the owner or has write permission
-        if (!fileEntity.getOwner().equals(currentUsername) && !authorizationService.canWriteFile(request.getFileId().toString(), currentUsername)) {
+        if (!owner.equals(currentUsername) && !authorizationService.canWriteFile(request.getFileId().toString(), currentUsername)) {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to modify this file's permissions");
         }
         
-        // Grant requested permissions
-        String fileId = request.getFileId().toString();
-        String targetUsername = request.getUsername();
-        
+        // Grant requested permissions in a single write
+        RelationWriteResult result = new RelationWriteResult();
         if (request.getPermissions() != null) {
-            for (String permission : request.getPermissions()) {
-                switch (permission.toUpperCase()) {
-                    case "READ":
-                        authorizationService.grantReadPermission(fileId, targetUsername);
-                        break;
-                    case "WRITE":
-                        authorizationService.grantWritePermission(fileId, targetUsername);
-                        break;
-                    case "DELETE":
-                        authorizationService.grantDeletePermission(fileId, targetUsername);
-                        break;
-                    default:
-                        log.warn("Unknown permission type: {}", permission);
-                }
+            result = authorizationService.grantPermissions(AuthorizationService.FILE_TYPE, List.of(request.getFileId().toString()),
+                    subject(request), request.getPermissions());
+        }
+        
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/bulk")
+    @Operation(
+        summary = "Grant permissions to many users and groups on many files",
+        description = "Grant the same permissions on every listed file to every listed user and group with batched writes"
+    )
+    @ApiResponse(responseCode = "200", description = "Permissions granted; grants that already existed are listed as rejected")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    @ApiResponse(responseCode = "404", description = "File not found")
+    public ResponseEntity<RelationWriteResult> grantPermissionsBulk(
+            @RequestBody @Valid BulkPermissionRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        
+        String currentUsername = jwt.getSubject();
+        
+        // Every file must exist and be owned or writable by the current user; checks for files
+        // owned by others run in parallel
+        Map<Long, CompletableFuture<Boolean>> writeChecks = new LinkedHashMap<>();
+        for (Long fileId : request.getFileIds()) {
+            String owner = fileMetadataCache.get(fileId)
+                    .map(FileMetadata::getOwner)
+                    .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + fileId));
+            if (!owner.equals(currentUsername)) {
+                writeChecks.put(fileId, authorizationService.canWriteFileAsync(fileId.toString(), currentUsername));
             }
         }
+        writeChecks.forEach((fileId, allowed) -> {
+            if (!AuthorizationService.await(allowed)) {
+                throw new FileServiceException.FileAccessDeniedException("You don't have permission to modify the permissions of file " + fileId);
+            }
+        });
         
-        return ResponseEntity.ok().build();
+        List<String> fileIds = request.getFileIds().stream().map(String::valueOf).toList();
+        return ResponseEntity.ok(authorizationService.grantPermissions(AuthorizationService.FILE_TYPE, fileIds,
+                subjects(request.getUsernames(), request.getGroups()), request.getPermissions()));
     }
 
     @DeleteMapping
     @Operation(
-        summary = "Revoke permissions from a user",
-        description = "Revoke specific permissions on a file from another user"
+        summary = "Revoke permissions from a user or group",
+        description = "Revoke specific permissions on a file from another user or a group"
     )
-    @ApiResponse(responseCode = "200", description = "Permissions revoked successfully")
+    @ApiResponse(responseCode = "200", description = "Permissions revoked; permissions that did not exist are listed as rejected")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     @ApiResponse(responseCode = "403", description = "Forbidden")
     @ApiResponse(responseCode = "404", description = "File not found")
-    public ResponseEntity<Void> revokePermissions(
+    public ResponseEntity<RelationWriteResult> revokePermissions(
             @RequestBody @Valid PermissionRequest request,
             @AuthenticationPrincipal Jwt jwt) {
         
         String currentUsername = jwt.getSubject();
         
         // Verify file exists
-        FileEntity fileEntity = fileRepository.findById(request.getFileId())
+        String owner = fileMetadataCache.get(request.getFileId())
+                .map(FileMetadata::getOwner)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + request.getFileId()));
         
         // Check if current user is the owner
-        if (!fileEntity.getOwner().equals(currentUsername)) {
+        if (!owner.equals(currentUsername)) {
             throw new FileServiceException.FileAccessDeniedException("Only the file owner can revoke permissions");
         }
         
-        // Revoke requested permissions
-        String fileId = request.getFileId().toString();
-        String targetUsername = request.getUsername();
-        
+        // Revoke requested permissions in a single write
+        RelationWriteResult result = new RelationWriteResult();
         if (request.getPermissions() != null) {
-            for (String permission : request.getPermissions()) {
-                switch (permission.toUpperCase()) {
-                    case "READ":
-                        authorizationService.revokeReadPermission(fileId, targetUsername);
-                        break;
-                    case "WRITE":
-                        authorizationService.revokeWritePermission(fileId, targetUsername);
-                        break;
-                    case "DELETE":
-                        authorizationService.revokeDeletePermission(fileId, targetUsername);
-                        break;
-                    default:
-                        log.warn("Unknown permission type: {}", permission);
-                }
-            }
+            result = authorizationService.revokePermissions(AuthorizationService.FILE_TYPE, List.of(request.getFileId().toString()),
+                    subject(request), request.getPermissions());
+        }
+        
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/directories")
+    @Operation(
+        summary = "Grant permissions on a directory",
+        description = "Grant permissions on a directory to users and groups; they apply to everything below it"
+    )
+    @ApiResponse(responseCode = "200", description = "Permissions granted; grants that already existed are listed as rejected")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    public ResponseEntity<RelationWriteResult> grantDirectoryPermissions(
+            @RequestBody @Valid DirectoryPermissionRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        
+        String directoryId = request.getDirectoryId().toString();
+        if (!authorizationService.canWriteDirectory(directoryId, jwt.getSubject())) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to modify this directory's permissions");
         }
         
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(authorizationService.grantPermissions(AuthorizationService.DIRECTORY_TYPE, List.of(directoryId),
+                subjects(request.getUsernames(), request.getGroups()), request.getPermissions()));
+    }
+
+    @DeleteMapping("/directories")
+    @Operation(
+        summary = "Revoke permissions on a directory",
+        description = "Revoke directory permissions from users and groups"
+    )
+    @ApiResponse(responseCode = "200", description = "Permissions revoked; permissions that did not exist are listed as rejected")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "401", description = "Unauthorized")
+    @ApiResponse(responseCode = "403", description = "Forbidden")
+    public ResponseEntity<RelationWriteResult> revokeDirectoryPermissions(
+            @RequestBody @Valid DirectoryPermissionRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        
+        String directoryId = request.getDirectoryId().toString();
+        if (!authorizationService.isDirectoryOwner(directoryId, jwt.getSubject())) {
+            throw new FileServiceException.FileAccessDeniedException("Only the directory owner can revoke permissions");
+        }
+        
+        return ResponseEntity.ok(authorizationService.revokePermissions(AuthorizationService.DIRECTORY_TYPE, List.of(directoryId),
+                subjects(request.getUsernames(), request.getGroups()), request.getPermissions()));
     }
 
     @GetMapping("/my-access")
     @Operation(
         summary = "Get all files the current user has access to",
-        description = "Retrieve all file relations for the authenticated user"
+        description = "Retrieve the file relations of the authenticated user one page at a time. " +
+                      "Pass the returned nextCursor to get the next page"
     )
     @ApiResponse(responseCode = "200", description = "Access information retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid page size")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
-    public ResponseEntity<List<FgaRelation>> getUserAccessibleFiles(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<CursorPage<FgaRelation>> getUserAccessibleFiles(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getSubject();
-        List<FgaRelation> relations = authorizationService.getRelationsForUser(username);
+        CursorPage<FgaRelation> relations = authorizationService.getRelationsForUserPage(username, cursor, Math.min(size, MAX_PAGE_SIZE));
         return ResponseEntity.ok(relations);
     }
+
+    private static List<String> subject(PermissionRequest request) {
+        return request.getGroup() != null && !request.getGroup().isBlank()
+                ? List.of(AuthorizationService.groupSubject(request.getGroup()))
+                : List.of(AuthorizationService.userSubject(request.getUsername()));
+    }
+
+    private static List<String> subjects(Collection<String> usernames, Collection<String> groups) {
+        List<String> subjects = new ArrayList<>();
+        if (usernames != null) {
+            usernames.forEach(username -> subjects.add(AuthorizationService.userSubject(username)));
+        }
+        if (groups != null) {
+            groups.forEach(group -> subjects.add(AuthorizationService.groupSubject(group)));
+        }
+        return subjects;
+    }
 }
@@ -1,13 +1,13 @@
 package com.fileservice.minioservice.controller;
 
+import com.fileservice.minioservice.dto.CursorPage;
 import com.fileservice.minioservice.dto.FileDto;
+import com.fileservice.minioservice.dto.FileMetadata;
 import com.fileservice.minioservice.dto.ShareLinkDto;
-import com.fileservice.minioservice.exception.FileServiceException;
-import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.dto.SharedFileContent;
 import com.fileservice.minioservice.service.FileService;
 import com.fileservice.minioservice.service.MinioService;
 import com.fileservice.minioservice.service.ShareService;
-import io.minio.GetObjectResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -35,6 +35,8 @@ import java.util.Optional;
 @Tag(name = "File Sharing", description = "API endpoints for file sharing operations")
 public class ShareController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ShareService shareService;
     private final FileService fileService;
     private final MinioService minioService;
@@ -42,7 +44,8 @@ public class ShareController {
     @PostMapping
     @Operation(
         summary = "Create a share link",
-        description = "Create a temporary share link for a file with specified permissions"
+        description = "Create a temporary share link for a file with specified permissions. " +
+                      "Signed links are self-contained tokens that are validated without a database lookup"
     )
     @ApiResponse(responseCode = "201", description = "Share link created successfully")
     @ApiResponse(responseCode = "400", description = "Invalid request")
@@ -53,24 +56,30 @@ public class ShareController {
             @RequestParam Long fileId,
             @RequestParam String permission,
             @RequestParam(required = false) Integer expiryDays,
+            @RequestParam(defaultValue = "false") boolean signed,
+            @RequestParam(required = false) Integer maxDownloads,
             @AuthenticationPrincipal Jwt jwt) {
         
         String username = jwt.getSubject();
-        ShareLinkDto shareLink = shareService.createShareLink(fileId, permission, expiryDays, username);
+        ShareLinkDto shareLink = shareService.createShareLink(fileId, permission, expiryDays, username, signed, maxDownloads);
         return ResponseEntity.status(HttpStatus.CREATED).body(shareLink);
     }
 
     @GetMapping
     @Operation(
-        summary = "Get all share links created by user",
-        description = "Retrieve all share links created by the authenticated user"
+        summary = "Get share links created by user",
+        description = "Retrieve the share links created by the authenticated user, newest first. " +
+                      "Pass the returned nextCursor to get the next page"
     )
     @ApiResponse(responseCode = "200", description = "Share links retrieved successfully")
     @ApiResponse(responseCode = "401", description = "Unauthorized")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<ShareLinkDto>> getUserShareLinks(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<CursorPage<ShareLinkDto>> getUserShareLinks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getSubject();
-        List<ShareLinkDto> shareLinks = shareService.getShareLinksByUser(username);
+        CursorPage<ShareLinkDto> shareLinks = shareService.getShareLinksByUser(username, cursor, Math.min(size, MAX_PAGE_SIZE));
         return ResponseEntity.ok(shareLinks);
     }
 
@@ -119,10 +128,10 @@ public class ShareController {
     @ApiResponse(responseCode = "404", description = "Share link not found or expired")
     public ResponseEntity<FileDto> accessSharedFile(@PathVariable String token) {
         // Validate share link and get file (requires READ permission)
-        FileEntity fileEntity = shareService.validateShareLink(token, "READ");
+        FileMetadata file = shareService.accessSharedFile(token);
         
         // Convert to DTO with presigned URL
-        FileDto fileDto = minioService.convertToDto(fileEntity, 3600); // 1 hour URL expiry
+        FileDto fileDto = minioService.convertToDto(file, file.getThumbnailPaths(), 3600); // 1 hour URL expiry
         
         return ResponseEntity.ok(fileDto);
     }
@@ -135,25 +144,17 @@ public class ShareController {
     @ApiResponse(responseCode = "200", description = "File content retrieved successfully")
     @ApiResponse(responseCode = "404", description = "Share link not found or expired")
     public ResponseEntity<InputStreamResource> downloadSharedFile(@PathVariable String token) {
-        // Validate share link and get file (requires READ permission)
-        FileEntity fileEntity = shareService.validateShareLink(token, "READ");
+        // Validate share link (requires READ permission), open the content and count the download
+        SharedFileContent shared = shareService.downloadSharedFile(token);
+        FileMetadata file = shared.getFile();
         
-        // Get file content
-        Optional<GetObjectResponse> fileContent = minioService.getFile(fileEntity.getObjectName());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(file.getContentType()));
+        headers.setContentDispositionFormData("attachment", file.getFilename());
         
-        if (fileContent.isPresent()) {
-            GetObjectResponse response = fileContent.get();
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(fileEntity.getContentType()));
-            headers.setContentDispositionFormData("attachment", fileEntity.getFilename());
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(new InputStreamResource(response));
-        } else {
-            throw new FileServiceException.FileNotFoundException("File content not found");
-        }
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(shared.getContent()));
     }
 
     @GetMapping("/validate/{token}")
@@ -0,0 +1,23 @@
+package com.fileservice.minioservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateFolderRequest {
+    
+    @NotBlank(message = "Folder name is required")
+    @Size(max = 255, message = "Folder names are at most 255 characters")
+    @Pattern(regexp = "[^/]*", message = "Folder names cannot contain '/'")
+    private String name;
+    
+    private Long parentId; // null creates a root folder
+}
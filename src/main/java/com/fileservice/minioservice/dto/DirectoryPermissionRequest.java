@@ -0,0 +1,36 @@
+package com.fileservice.minioservice.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryPermissionRequest {
+    
+    @NotNull(message = "Directory ID is required")
+    private Long directoryId;
+    
+    @Size(max = 100, message = "At most 100 users per request")
+    private Set<String> usernames;
+    
+    @Size(max = 100, message = "At most 100 groups per request")
+    private Set<String> groups;
+    
+    @NotEmpty(message = "At least one permission is required")
+    private Set<String> permissions; // READ, WRITE, DELETE
+    
+    @AssertTrue(message = "At least one username or group is required")
+    private boolean isPrincipalPresent() {
+        return (usernames != null && !usernames.isEmpty()) || (groups != null && !groups.isEmpty());
+    }
+}
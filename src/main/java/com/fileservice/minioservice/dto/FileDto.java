@@ -23,6 +23,7 @@ public class FileDto {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime expiresAt;
+    private LocalDateTime deletedAt;
     private Set<String> thumbnailPaths = new HashSet<>();
     private String downloadUrl;
 }
@@ -0,0 +1,45 @@
+package com.fileservice.minioservice.dto;
+
+import com.fileservice.minioservice.model.FileEntity;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a file row, safe to share between requests
+ */
+@Value
+@Builder
+public class FileMetadata implements FileSummary {
+    Long id;
+    String filename;
+    String contentType;
+    String path;
+    Long size;
+    String owner;
+    String bucketName;
+    String objectName;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+    LocalDateTime expiresAt;
+    Set<String> thumbnailPaths;
+
+    public static FileMetadata from(FileEntity fileEntity) {
+        return FileMetadata.builder()
+                .id(fileEntity.getId())
+                .filename(fileEntity.getFilename())
+                .contentType(fileEntity.getContentType())
+                .path(fileEntity.getPath())
+                .size(fileEntity.getSize())
+                .owner(fileEntity.getOwner())
+                .bucketName(fileEntity.getBucketName())
+                .objectName(fileEntity.getObjectName())
+                .createdAt(fileEntity.getCreatedAt())
+                .updatedAt(fileEntity.getUpdatedAt())
+                .expiresAt(fileEntity.getExpiresAt())
+                .thumbnailPaths(Set.copyOf(fileEntity.getThumbnailPaths()))
+                .build();
+    }
+}
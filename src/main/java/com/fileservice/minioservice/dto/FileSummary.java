@@ -0,0 +1,20 @@
+package com.fileservice.minioservice.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of the files table used by listing endpoints.
+ * Thumbnail paths are loaded separately in one batched query.
+ */
+public interface FileSummary {
+    Long getId();
+    String getFilename();
+    String getContentType();
+    String getPath();
+    Long getSize();
+    String getOwner();
+    String getObjectName();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    LocalDateTime getExpiresAt();
+}
@@ -0,0 +1,9 @@
+package com.fileservice.minioservice.dto;
+
+/**
+ * A single row of the file_thumbnails table
+ */
+public interface FileThumbnail {
+    Long getFileId();
+    String getThumbnailPath();
+}
@@ -0,0 +1,22 @@
+package com.fileservice.minioservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderDto {
+    private Long id;
+    private String name;
+    private Long parentId;
+    private String path; // ancestor IDs, e.g. /1/5/
+    private String owner;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
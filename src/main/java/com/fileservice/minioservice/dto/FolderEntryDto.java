@@ -0,0 +1,25 @@
+package com.fileservice.minioservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A folder or file in a folder listing
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderEntryDto {
+    private String type; // folder, file
+    private Long id;
+    private String name;
+    private String contentType; // files only
+    private Long size; // files only
+    private String owner;
+    private LocalDateTime createdAt;
+}
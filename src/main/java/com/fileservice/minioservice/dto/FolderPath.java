@@ -0,0 +1,9 @@
+package com.fileservice.minioservice.dto;
+
+/**
+ * A folder's ID with its materialized path, read under a row lock
+ */
+public interface FolderPath {
+    Long getId();
+    String getPath();
+}
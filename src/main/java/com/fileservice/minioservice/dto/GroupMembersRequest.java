@@ -0,0 +1,21 @@
+package com.fileservice.minioservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupMembersRequest {
+    
+    @NotEmpty(message = "At least one username is required")
+    @Size(max = 100, message = "At most 100 users per request")
+    private Set<String> usernames;
+}
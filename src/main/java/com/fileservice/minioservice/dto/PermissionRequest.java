@@ -1,6 +1,6 @@
 package com.fileservice.minioservice.dto;
 
-import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,10 +18,17 @@ public class PermissionRequest {
     @NotNull(message = "File ID is required")
     private Long fileId;
     
-    @NotBlank(message = "Username is required")
     private String username;
     
+    /** Grant to every member of this group instead of a single user */
+    private String group;
+    
     private Set<String> permissions; // READ, WRITE, DELETE
     
     private Integer expiryDays;
+    
+    @AssertTrue(message = "Exactly one of username or group is required")
+    private boolean isSinglePrincipal() {
+        return (username != null && !username.isBlank()) != (group != null && !group.isBlank());
+    }
 }
@@ -0,0 +1,28 @@
+package com.fileservice.minioservice.dto;
+
+import com.fileservice.minioservice.model.FgaRelation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a batch of relation writes and deletes. OpenFGA rejects a write
+ * of a tuple that already exists and a delete of one that does not; those
+ * tuples are listed here while the rest of the batch is still applied.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelationWriteResult {
+    private int written;
+    private int deleted;
+    @Builder.Default
+    private List<FgaRelation> rejectedWrites = new ArrayList<>();
+    @Builder.Default
+    private List<FgaRelation> rejectedDeletes = new ArrayList<>();
+}
@@ -0,0 +1,25 @@
+package com.fileservice.minioservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * The parts of a share link needed to authorize anonymous access, resolved in one query.
+ * Signed share tokens have no share_links row, so their linkId is null.
+ */
+@Value
+@AllArgsConstructor
+public class ResolvedShareLink {
+    Long linkId;
+    Long fileId;
+    String objectName;
+    String permission;
+    LocalDateTime expiresAt;
+    Integer maxDownloads;
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(LocalDateTime.now());
+    }
+}
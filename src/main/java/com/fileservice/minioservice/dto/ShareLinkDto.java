@@ -17,4 +17,7 @@ public class ShareLinkDto {
     private String fileUrl;
     private LocalDateTime expiresAt;
     private String permission; // READ, WRITE
+    private Integer maxDownloads; // null = unlimited
+    private Long downloadCount;
+    private Long accessCount;
 }
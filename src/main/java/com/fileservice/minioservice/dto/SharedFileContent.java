@@ -0,0 +1,16 @@
+package com.fileservice.minioservice.dto;
+
+import io.minio.GetObjectResponse;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * A shared file with its content stream, opened before the download was counted.
+ * The caller must close the stream.
+ */
+@Value
+@AllArgsConstructor
+public class SharedFileContent {
+    FileMetadata file;
+    GetObjectResponse content;
+}
@@ -0,0 +1,20 @@
+package com.fileservice.minioservice.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claims carried by a verified, self-contained share token
+ */
+@Value
+public class SignedShareToken {
+    String tokenId;
+    Long fileId;
+    String permission;
+    LocalDateTime expiresAt;
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,18 @@
+package com.fileservice.minioservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsageDto {
+    private String username;
+    private long usedBytes;
+    private long objectCount;
+    private Long maxBytes; // null when unlimited
+    private Long maxObjects; // null when unlimited
+}
@@ -0,0 +1,11 @@
+package com.fileservice.minioservice.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * An object name referenced by the database, with the creation time of the owning file
+ */
+public interface StoredObject {
+    String getName();
+    LocalDateTime getCreatedAt();
+}
@@ -46,4 +46,25 @@ public class FileServiceException extends RuntimeException {
             super(message, "INVALID_FILE_TYPE");
         }
     }
+    
+    public static class QuotaExceededException extends FileServiceException {
+        public QuotaExceededException(String message) {
+            super(message, "QUOTA_EXCEEDED");
+        }
+    }
+    
+    public static class AuthorizationUnavailableException extends FileServiceException {
+        public AuthorizationUnavailableException(String message, Throwable cause) {
+            super(message, "AUTHORIZATION_UNAVAILABLE", cause);
+        }
+    }
+    
+    /**
+     * OpenFGA is healthy but this node is at its concurrency limit
+     */
+    public static class AuthorizationOverloadedException extends AuthorizationUnavailableException {
+        public AuthorizationOverloadedException(String message) {
+            super(message, null);
+        }
+    }
 }
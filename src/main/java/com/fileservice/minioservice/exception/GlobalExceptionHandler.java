@@ -43,6 +43,16 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildErrorResponse(ex.getMessage(), ex.getErrorCode(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(FileServiceException.QuotaExceededException.class)
+    public ResponseEntity<Object> handleQuotaExceededException(FileServiceException.QuotaExceededException ex, WebRequest request) {
+        return buildErrorResponse(ex.getMessage(), ex.getErrorCode(), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(FileServiceException.AuthorizationUnavailableException.class)
+    public ResponseEntity<Object> handleAuthorizationUnavailableException(FileServiceException.AuthorizationUnavailableException ex, WebRequest request) {
+        return buildErrorResponse(ex.getMessage(), ex.getErrorCode(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<Object> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException ex, WebRequest request) {
         return buildErrorResponse("File size exceeds the maximum allowed size", "MAX_SIZE_EXCEEDED", HttpStatus.PAYLOAD_TOO_LARGE);
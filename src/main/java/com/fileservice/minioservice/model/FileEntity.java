@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -52,7 +53,24 @@ public class FileEntity {
     @Column
     private LocalDateTime expiresAt;
 
+    /** Set when the objects are tagged for expiry by a bucket lifecycle rule */
+    @Column
+    private Integer expiryClassDays;
+
+    /** The folder the file is in; null for files outside any folder */
+    @Column
+    private Long folderId;
+
+    /** Set when the file is moved to the trash; null for live files */
+    @Column
+    private LocalDateTime deletedAt;
+
+    /** Total size of the thumbnail objects, counted against the owner's quota */
+    @Column(nullable = false)
+    private long thumbnailBytes;
+
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "file_thumbnails", joinColumns = @JoinColumn(name = "file_id"))
     @Column(name = "thumbnail_path")
     private Set<String> thumbnailPaths = new HashSet<>();
@@ -0,0 +1,62 @@
+package com.fileservice.minioservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A folder in a user's tree. The path column holds the IDs of the folder's
+ * ancestors, so a subtree can be read or moved with a single prefix query.
+ */
+@Entity
+@Table(name = "folders")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Folder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column
+    private Long parentId;
+
+    /** Ancestor IDs: "/" for a root folder, "/1/5/" for a child of folder 5 under folder 1 */
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime updatedAt;
+
+    /**
+     * The path prefix shared by every folder below this one
+     */
+    public String subtreePath() {
+        return path + id + "/";
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -39,6 +39,14 @@ public class ShareLink {
     @Column(nullable = false)
     private String createdBy;
 
+    private Integer maxDownloads; // null = unlimited
+
+    @Column(nullable = false)
+    private long downloadCount;
+
+    @Column(nullable = false)
+    private long accessCount;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
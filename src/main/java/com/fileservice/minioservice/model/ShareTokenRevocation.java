@@ -0,0 +1,38 @@
+package com.fileservice.minioservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "share_token_revocations")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShareTokenRevocation {
+
+    @Id
+    private String tokenId;
+
+    @Column(nullable = false)
+    private Long fileId;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false)
+    private String revokedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        revokedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,35 @@
+package com.fileservice.minioservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The owner of a group. Membership is stored only in OpenFGA.
+ */
+@Entity
+@Table(name = "user_groups")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserGroup {
+
+    @Id
+    private String groupId;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,30 @@
+package com.fileservice.minioservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_storage_usage")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStorageUsage {
+
+    @Id
+    private String username;
+
+    @Column(nullable = false)
+    private long usedBytes;
+
+    @Column(nullable = false)
+    private long objectCount;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
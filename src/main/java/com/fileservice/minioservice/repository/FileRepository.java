@@ -1,26 +1,240 @@
 package com.fileservice.minioservice.repository;
 
+import com.fileservice.minioservice.dto.FileSummary;
+import com.fileservice.minioservice.dto.FileThumbnail;
+import com.fileservice.minioservice.dto.StoredObject;
 import com.fileservice.minioservice.model.FileEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface FileRepository extends JpaRepository<FileEntity, Long> {
     
-    List<FileEntity> findByOwner(String owner);
+    /**
+     * A file that is not in the trash
+     */
+    Optional<FileEntity> findByIdAndDeletedAtIsNull(Long id);
+    
+    /**
+     * A page of an owner's unexpired, untrashed files after the given ID
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f WHERE f.owner = :owner AND f.id > :afterId AND f.expires_at > :now " +
+                   "AND f.deleted_at IS NULL ORDER BY f.id LIMIT :limit",
+           nativeQuery = true)
+    List<FileSummary> findPageByOwner(@Param("owner") String owner,
+                                      @Param("afterId") long afterId,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("limit") int limit);
+    
+    /**
+     * A page of the unexpired, untrashed files that a user owns or that are in
+     * the given set of readable IDs, with IDs after afterId and up to upToId
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f WHERE (f.owner = :owner OR f.id IN (:fileIds)) AND f.id > :afterId AND f.id <= :upToId " +
+                   "AND f.expires_at > :now AND f.deleted_at IS NULL ORDER BY f.id LIMIT :limit",
+           nativeQuery = true)
+    List<FileSummary> findAccessiblePage(@Param("owner") String owner,
+                                         @Param("fileIds") Collection<Long> fileIds,
+                                         @Param("afterId") long afterId,
+                                         @Param("upToId") long upToId,
+                                         @Param("now") LocalDateTime now,
+                                         @Param("limit") int limit);
+    
+    /**
+     * Every expiry class that some row's objects are tagged with
+     */
+    @Query("SELECT DISTINCT f.expiryClassDays FROM FileEntity f WHERE f.expiryClassDays IS NOT NULL")
+    List<Integer> findDistinctExpiryClassDays();
+    
+    /**
+     * Stream all of an owner's files outside the trash in ID order using a server-side cursor.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT f FROM FileEntity f WHERE f.owner = :owner AND f.deletedAt IS NULL ORDER BY f.id")
+    Stream<FileEntity> streamByOwner(@Param("owner") String owner);
+    
+    /**
+     * A page of the unexpired, untrashed files directly in a folder after the given ID
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f WHERE f.folder_id = :folderId AND f.id > :afterId AND f.expires_at > :now " +
+                   "AND f.deleted_at IS NULL ORDER BY f.id LIMIT :limit",
+           nativeQuery = true)
+    List<FileSummary> findPageByFolderId(@Param("folderId") Long folderId,
+                                         @Param("afterId") long afterId,
+                                         @Param("now") LocalDateTime now,
+                                         @Param("limit") int limit);
+    
+    /**
+     * A page of the unexpired, untrashed files in a folder or any folder below it, after the given ID
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f WHERE f.folder_id IN (" +
+                   "SELECT d.id FROM folders d WHERE d.id = :folderId OR d.path COLLATE \"C\" LIKE :subtreePath || '%'" +
+                   ") AND f.id > :afterId AND f.expires_at > :now AND f.deleted_at IS NULL ORDER BY f.id LIMIT :limit",
+           nativeQuery = true)
+    List<FileSummary> findSubtreePage(@Param("folderId") Long folderId,
+                                      @Param("subtreePath") String subtreePath,
+                                      @Param("afterId") long afterId,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("limit") int limit);
+    
+    boolean existsByIdAndOwnerAndDeletedAtIsNull(Long id, String owner);
+    
+    boolean existsByIdAndDeletedAtIsNull(Long id);
+    
+    @Query("SELECT f.id AS fileId, t AS thumbnailPath FROM FileEntity f JOIN f.thumbnailPaths t WHERE f.id IN :fileIds")
+    List<FileThumbnail> findThumbnailsByFileIds(@Param("fileIds") Collection<Long> fileIds);
     
     Optional<FileEntity> findByObjectNameAndBucketName(String objectName, String bucketName);
     
-    @Query("SELECT f FROM FileEntity f WHERE f.expiresAt < :now")
-    List<FileEntity> findExpiredFiles(@Param("now") LocalDateTime now);
+    /**
+     * Lock the next chunk of expired files in (expires_at, id) order, after the given position.
+     * Walks the idx_files_expires_at index; rows locked by another node's cleanup
+     * are skipped rather than waited for. Thumbnails are loaded separately with
+     * findThumbnailsByFileIds.
+     */
+    @Query(value = "SELECT * FROM files WHERE expires_at < :now " +
+                   "AND (expires_at, id) > (:afterExpiresAt, :afterId) " +
+                   "ORDER BY expires_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<FileEntity> claimExpiredFiles(@Param("now") LocalDateTime now,
+                                       @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+    
+    /**
+     * Lock the next chunk of files trashed before the cutoff in (deleted_at, id) order,
+     * after the given position. Walks the partial idx_files_deleted_at index and, like
+     * claimExpiredFiles, skips rows another node has already claimed.
+     */
+    @Query(value = "SELECT * FROM files WHERE deleted_at < :cutoff " +
+                   "AND (deleted_at, id) > (:afterDeletedAt, :afterId) " +
+                   "ORDER BY deleted_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<FileEntity> claimTrashedFiles(@Param("cutoff") LocalDateTime cutoff,
+                                       @Param("afterDeletedAt") LocalDateTime afterDeletedAt,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+    
+    /**
+     * Keyset page of the files in an owner's trash that can still be restored,
+     * most recently deleted first, before the given (deleted_at, id) position.
+     * Walks the partial idx_files_trash_owner_deleted_at index backwards.
+     */
+    @Query(value = "SELECT * FROM files WHERE owner = :owner AND deleted_at > :cutoff " +
+                   "AND (deleted_at, id) < (:beforeDeletedAt, :beforeId) " +
+                   "ORDER BY deleted_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<FileEntity> findTrashPage(@Param("owner") String owner,
+                                   @Param("cutoff") LocalDateTime cutoff,
+                                   @Param("beforeDeletedAt") LocalDateTime beforeDeletedAt,
+                                   @Param("beforeId") Long beforeId,
+                                   @Param("limit") int limit);
+    
+    /**
+     * Load a file and lock its row until the transaction ends, waiting for a
+     * purge that has already claimed it
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FileEntity f WHERE f.id = :id")
+    Optional<FileEntity> findByIdForUpdate(@Param("id") Long id);
     
     List<FileEntity> findByContentTypeStartingWith(String contentTypePrefix);
     
-    List<FileEntity> findByFilenameContainingIgnoreCase(String filenamePattern);
+    /**
+     * A page of the names of the objects the database references in a bucket (files
+     * and their thumbnails) after the given name, in byte order to match MinIO's
+     * listing order. Both branches walk a COLLATE "C" index (V15), so each page
+     * is a short range scan. A name referenced by several rows may be split
+     * across pages; the next page starts after it, which only drops repeats.
+     */
+    @Query(value = "SELECT n.name AS \"name\", n.created_at AS \"createdAt\" FROM (" +
+                   "SELECT f.object_name COLLATE \"C\" AS name, f.created_at FROM files f " +
+                   "WHERE f.bucket_name = :bucket AND f.object_name COLLATE \"C\" > :afterName " +
+                   "UNION ALL " +
+                   "SELECT substring(t.thumbnail_path FROM '[^/]*$') COLLATE \"C\" AS name, f.created_at FROM file_thumbnails t " +
+                   "JOIN files f ON f.id = t.file_id " +
+                   "WHERE f.bucket_name = :bucket AND substring(t.thumbnail_path FROM '[^/]*$') COLLATE \"C\" > :afterName" +
+                   ") n ORDER BY n.name LIMIT :limit",
+           nativeQuery = true)
+    List<StoredObject> findObjectNamesPage(@Param("bucket") String bucket,
+                                           @Param("afterName") String afterName,
+                                           @Param("limit") int limit);
+    
+    /**
+     * Search a single owner's unexpired, untrashed files by filename substring, best matches first.
+     * Backed by the idx_files_owner_filename_trgm GIN index; the pattern must
+     * already have LIKE wildcards escaped.
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f " +
+                   "WHERE f.owner = :owner AND f.filename ILIKE CONCAT('%', :pattern, '%') AND f.expires_at > :now " +
+                   "AND f.deleted_at IS NULL ORDER BY similarity(f.filename, :query) DESC, f.id",
+           countQuery = "SELECT COUNT(*) FROM files f " +
+                        "WHERE f.owner = :owner AND f.filename ILIKE CONCAT('%', :pattern, '%') AND f.expires_at > :now " +
+                        "AND f.deleted_at IS NULL",
+           nativeQuery = true)
+    Page<FileSummary> searchByOwnerAndFilename(@Param("owner") String owner,
+                                               @Param("pattern") String pattern,
+                                               @Param("query") String query,
+                                               @Param("now") LocalDateTime now,
+                                               Pageable pageable);
+    
+    /**
+     * Like searchByOwnerAndFilename, but also matching the given readable file IDs.
+     * The IDs are bound as one bigint[] literal such as {1,2,3}, so the statement
+     * stays within the bind parameter limit however many files are shared.
+     */
+    @Query(value = "SELECT f.id AS \"id\", f.filename AS \"filename\", f.content_type AS \"contentType\", " +
+                   "f.path AS \"path\", f.size AS \"size\", f.owner AS \"owner\", f.object_name AS \"objectName\", " +
+                   "f.created_at AS \"createdAt\", f.updated_at AS \"updatedAt\", f.expires_at AS \"expiresAt\" " +
+                   "FROM files f " +
+                   "WHERE (f.owner = :owner OR f.id = ANY(CAST(:fileIds AS bigint[]))) " +
+                   "AND f.filename ILIKE CONCAT('%', :pattern, '%') AND f.expires_at > :now " +
+                   "AND f.deleted_at IS NULL ORDER BY similarity(f.filename, :query) DESC, f.id",
+           countQuery = "SELECT COUNT(*) FROM files f " +
+                        "WHERE (f.owner = :owner OR f.id = ANY(CAST(:fileIds AS bigint[]))) " +
+                        "AND f.filename ILIKE CONCAT('%', :pattern, '%') AND f.expires_at > :now " +
+                        "AND f.deleted_at IS NULL",
+           nativeQuery = true)
+    Page<FileSummary> searchAccessibleByFilename(@Param("owner") String owner,
+                                                 @Param("fileIds") String fileIds,
+                                                 @Param("pattern") String pattern,
+                                                 @Param("query") String query,
+                                                 @Param("now") LocalDateTime now,
+                                                 Pageable pageable);
 }
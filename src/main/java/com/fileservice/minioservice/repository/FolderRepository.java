@@ -0,0 +1,96 @@
+package com.fileservice.minioservice.repository;
+
+import com.fileservice.minioservice.dto.FolderPath;
+import com.fileservice.minioservice.model.Folder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FolderRepository extends JpaRepository<Folder, Long> {
+    
+    /**
+     * A page of a user's root folders after the given ID
+     */
+    @Query(value = "SELECT * FROM folders WHERE owner = :owner AND parent_id IS NULL AND id > :afterId " +
+                   "ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    List<Folder> findRootPage(@Param("owner") String owner,
+                              @Param("afterId") long afterId,
+                              @Param("limit") int limit);
+    
+    /**
+     * A page of a folder's direct subfolders after the given ID
+     */
+    @Query(value = "SELECT * FROM folders WHERE parent_id = :parentId AND id > :afterId ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    List<Folder> findChildPage(@Param("parentId") Long parentId,
+                               @Param("afterId") long afterId,
+                               @Param("limit") int limit);
+    
+    /**
+     * A page of the folders whose path starts with the given prefix, in
+     * (path, id) order after the given position. Walks idx_folders_path_id.
+     */
+    @Query(value = "SELECT * FROM folders WHERE path COLLATE \"C\" LIKE :pathPrefix || '%' " +
+                   "AND (path COLLATE \"C\", id) > (:afterPath COLLATE \"C\", :afterId) " +
+                   "ORDER BY path COLLATE \"C\", id LIMIT :limit",
+           nativeQuery = true)
+    List<Folder> findSubtreePage(@Param("pathPrefix") String pathPrefix,
+                                 @Param("afterPath") String afterPath,
+                                 @Param("afterId") long afterId,
+                                 @Param("limit") int limit);
+    
+    /**
+     * Length of the longest path below the given prefix, or null when there is none
+     */
+    @Query(value = "SELECT MAX(LENGTH(path)) FROM folders WHERE path COLLATE \"C\" LIKE :pathPrefix || '%'",
+           nativeQuery = true)
+    Integer findMaxPathLength(@Param("pathPrefix") String pathPrefix);
+    
+    /**
+     * Lock the given folders in ID order and read their current paths. Goes
+     * around the persistence context, so the paths are the committed ones.
+     */
+    @Query(value = "SELECT id AS \"id\", path AS \"path\" FROM folders WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<FolderPath> lockPaths(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Like lockPaths, but with shared locks: they block a move of any of the
+     * folders without blocking each other.
+     */
+    @Query(value = "SELECT id AS \"id\", path AS \"path\" FROM folders WHERE id IN (:ids) ORDER BY id FOR SHARE",
+           nativeQuery = true)
+    List<FolderPath> sharePaths(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Move a folder and everything below it in one statement: the folder gets
+     * its new parent and path, and every descendant's path has the old subtree
+     * prefix replaced by the new one
+     */
+    @Modifying
+    @Query(value = "UPDATE folders SET " +
+                   "path = CASE WHEN id = :folderId THEN :newPath " +
+                   "ELSE :newSubtreePath || substring(path FROM LENGTH(:oldSubtreePath) + 1) END, " +
+                   "parent_id = CASE WHEN id = :folderId THEN CAST(:newParentId AS BIGINT) ELSE parent_id END, " +
+                   "updated_at = :now " +
+                   "WHERE id = :folderId OR path COLLATE \"C\" LIKE :oldSubtreePath || '%'",
+           nativeQuery = true)
+    int moveSubtree(@Param("folderId") Long folderId,
+                    @Param("newParentId") Long newParentId,
+                    @Param("newPath") String newPath,
+                    @Param("oldSubtreePath") String oldSubtreePath,
+                    @Param("newSubtreePath") String newSubtreePath,
+                    @Param("now") LocalDateTime now);
+    
+    boolean existsByParentIdAndName(Long parentId, String name);
+    
+    boolean existsByOwnerAndParentIdIsNullAndName(String owner, String name);
+}
@@ -0,0 +1,23 @@
+package com.fileservice.minioservice.repository;
+
+import com.fileservice.minioservice.model.ObjectDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ObjectDeletionRepository extends JpaRepository<ObjectDeletion, Long> {
+    
+    /**
+     * Lock up to limit due entries, skipping those another node holds. Must be
+     * called inside a transaction; the locks last until it ends.
+     */
+    @Query(value = "SELECT * FROM object_deletion_outbox WHERE next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<ObjectDeletion> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
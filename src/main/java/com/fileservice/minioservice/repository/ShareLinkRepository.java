@@ -1,10 +1,15 @@
 package com.fileservice.minioservice.repository;
 
+import com.fileservice.minioservice.dto.ResolvedShareLink;
 import com.fileservice.minioservice.model.ShareLink;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -13,14 +18,43 @@ import java.util.Optional;
 @Repository
 public interface ShareLinkRepository extends JpaRepository<ShareLink, Long> {
     
+    @EntityGraph(attributePaths = "file")
     Optional<ShareLink> findByToken(String token);
     
+    @Query("SELECT new com.fileservice.minioservice.dto.ResolvedShareLink(s.id, f.id, f.objectName, s.permission, s.expiresAt, s.maxDownloads) " +
+           "FROM ShareLink s JOIN s.file f WHERE s.token = :token")
+    Optional<ResolvedShareLink> resolveByToken(@Param("token") String token);
+    
+    @EntityGraph(attributePaths = "file")
     List<ShareLink> findByFileId(Long fileId);
     
-    List<ShareLink> findByCreatedBy(String username);
+    /**
+     * Keyset page of a user's share links to files outside the trash, newest first, with their files fetched
+     */
+    @Query("SELECT s FROM ShareLink s JOIN FETCH s.file f WHERE s.createdBy = :username AND s.id < :beforeId " +
+           "AND f.deletedAt IS NULL ORDER BY s.id DESC")
+    List<ShareLink> findPageByCreatedBy(@Param("username") String username, @Param("beforeId") Long beforeId, Pageable pageable);
     
-    @Query("SELECT s FROM ShareLink s WHERE s.expiresAt < :now")
-    List<ShareLink> findExpiredLinks(@Param("now") LocalDateTime now);
+    /**
+     * Delete up to limit expired links in one statement; returns the number deleted.
+     * Rows another node is already deleting are skipped.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM share_links WHERE id IN " +
+                   "(SELECT id FROM share_links WHERE expires_at < :now LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteExpiredLinks(@Param("now") LocalDateTime now, @Param("limit") int limit);
     
     void deleteByToken(String token);
+    
+    /**
+     * Atomically count a download against a limited link.
+     * Returns 0 once the link has reached its download limit.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE share_links SET download_count = download_count + 1 " +
+                   "WHERE id = :id AND download_count < max_downloads",
+           nativeQuery = true)
+    int incrementDownloadCountWithinLimit(@Param("id") Long id);
 }
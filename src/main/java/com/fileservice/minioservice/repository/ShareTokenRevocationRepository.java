@@ -0,0 +1,21 @@
+package com.fileservice.minioservice.repository;
+
+import com.fileservice.minioservice.model.ShareTokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ShareTokenRevocationRepository extends JpaRepository<ShareTokenRevocation, String> {
+    
+    List<ShareTokenRevocation> findByRevokedAtAfterAndExpiresAtAfter(LocalDateTime revokedAfter, LocalDateTime expiresAfter);
+    
+    @Modifying
+    @Query("DELETE FROM ShareTokenRevocation r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
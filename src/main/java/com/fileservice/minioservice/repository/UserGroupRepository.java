@@ -0,0 +1,25 @@
+package com.fileservice.minioservice.repository;
+
+import com.fileservice.minioservice.model.UserGroup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UserGroupRepository extends JpaRepository<UserGroup, String> {
+    
+    /**
+     * Atomically create a group unless it already exists.
+     * Returns 0 when another owner got there first.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_groups (group_id, owner, created_at) " +
+                   "VALUES (:groupId, :owner, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (group_id) DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("groupId") String groupId, @Param("owner") String owner);
+}
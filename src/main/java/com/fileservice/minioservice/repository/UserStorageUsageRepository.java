@@ -0,0 +1,42 @@
+package com.fileservice.minioservice.repository;
+
+import com.fileservice.minioservice.model.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, String> {
+    
+    /**
+     * Atomically add an object to a user's usage if it stays within the given limits.
+     * Returns 0 when the limits would be exceeded.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_storage_usage (username, used_bytes, object_count, updated_at) " +
+                   "VALUES (:username, :bytes, 1, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (username) DO UPDATE SET " +
+                   "used_bytes = user_storage_usage.used_bytes + :bytes, " +
+                   "object_count = user_storage_usage.object_count + 1, " +
+                   "updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE user_storage_usage.used_bytes + :bytes <= :maxBytes " +
+                   "AND user_storage_usage.object_count + 1 <= :maxObjects",
+           nativeQuery = true)
+    int reserve(@Param("username") String username,
+                @Param("bytes") long bytes,
+                @Param("maxBytes") long maxBytes,
+                @Param("maxObjects") long maxObjects);
+    
+    @Modifying
+    @Query(value = "UPDATE user_storage_usage SET " +
+                   "used_bytes = GREATEST(used_bytes - :bytes, 0), " +
+                   "object_count = GREATEST(object_count - :objects, 0), " +
+                   "updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE username = :username",
+           nativeQuery = true)
+    int release(@Param("username") String username,
+                @Param("bytes") long bytes,
+                @Param("objects") long objects);
+}
@@ -2,8 +2,12 @@ package com.fileservice.minioservice.repository;
 
 import com.fileservice.minioservice.model.VirusScanEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,11 @@ public interface VirusScanRepository extends JpaRepository<VirusScanEntity, Long
     Optional<VirusScanEntity> findByFileId(String fileId);
     
     void deleteByFileId(String fileId);
+    
+    /**
+     * Delete the scan results of several files in one statement; returns the number deleted
+     */
+    @Modifying
+    @Query("DELETE FROM VirusScanEntity v WHERE v.fileId IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") Collection<String> fileIds);
 }
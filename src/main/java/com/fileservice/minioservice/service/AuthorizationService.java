@@ -1,64 +1,193 @@
 package com.fileservice.minioservice.service;
 
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.RelationWriteResult;
 import com.fileservice.minioservice.exception.FileServiceException;
 import com.fileservice.minioservice.model.FgaRelation;
+import com.fileservice.minioservice.repository.UserGroupRepository;
 import dev.openfga.sdk.api.client.OpenFgaClient;
 import dev.openfga.sdk.api.client.model.ClientCheckRequest;
 import dev.openfga.sdk.api.client.model.ClientReadRequest;
 import dev.openfga.sdk.api.client.model.ClientWriteRequest;
 import dev.openfga.sdk.api.client.model.TupleKey;
 import dev.openfga.sdk.api.client.model.UserType;
+import dev.openfga.sdk.api.configuration.ClientReadOptions;
 import dev.openfga.sdk.api.model.CheckResponse;
 import dev.openfga.sdk.api.model.ReadResponse;
 import dev.openfga.sdk.api.model.Tuple;
 import dev.openfga.sdk.api.model.TupleChange;
 import dev.openfga.sdk.api.model.TupleOperation;
 import dev.openfga.sdk.api.model.WriteResponse;
-import lombok.RequiredArgsConstructor;
+import dev.openfga.sdk.errors.ApiException;
+import com.fileservice.minioservice.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * OpenFGA-backed authorization. Every remote call goes through one guarded
+ * path: it is refused while the circuit breaker is open or when no slot
+ * under the concurrency limit frees up within openfga.permit-wait-ms, it
+ * fails after a per-call deadline, and its
+ * completion runs on the dedicated OpenFGA executor. Only outages (timeouts,
+ * 5xx responses and connection errors) count against the breaker; a rejected
+ * request says nothing about OpenFGA's health. The *Async methods let
+ * callers overlap authorization with their own database and MinIO work; the
+ * blocking methods wait on them.
+ * <p>
+ * When a check cannot be answered, openfga.failure-mode decides the outcome:
+ * "deny" treats it as not allowed, "error" raises AuthorizationUnavailableException.
+ * Either way access is never granted without an answer from OpenFGA. Hitting
+ * the concurrency limit is load shedding rather than an outage, so it always
+ * raises AuthorizationOverloadedException (503) instead of a denial.
+ * <p>
+ * Permissions can be granted to users or to group members
+ * ({@code group:<id>#member}), on files or on directories. A relation on a
+ * directory is inherited by the files and directories whose parent it is; see
+ * src/main/resources/openfga/model.fga.
+ * <p>
+ * With authorization.local-index.enabled, checks are answered from the
+ * {@link LocalTupleIndex} while it is fresh enough and only go to OpenFGA
+ * when it is not.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthorizationService {
 
     private final OpenFgaClient openFgaClient;
+    private final PermissionDecisionCache permissionDecisionCache;
+    private final LocalTupleIndex localTupleIndex;
+    private final ReadableFileIdsCache readableFileIdsCache;
+    private final UserGroupRepository userGroupRepository;
+    private final Executor executor;
+    private final Semaphore permits;
+    private final CircuitBreaker circuitBreaker;
+    private final long timeoutMillis;
+    private final long permitWaitMillis;
+    private final boolean failWithError;
+    
+    /** OpenFGA rejects write requests with more tuple writes plus deletes than this */
+    private final int maxTuplesPerWrite;
+    
+    public AuthorizationService(OpenFgaClient openFgaClient,
+                                PermissionDecisionCache permissionDecisionCache,
+                                LocalTupleIndex localTupleIndex,
+                                ReadableFileIdsCache readableFileIdsCache,
+                                UserGroupRepository userGroupRepository,
+                                @Qualifier("openFgaExecutor") Executor executor,
+                                MeterRegistry meterRegistry,
+                                @Value("${openfga.timeout-ms:2000}") long timeoutMillis,
+                                @Value("${openfga.permit-wait-ms:500}") long permitWaitMillis,
+                                @Value("${openfga.max-concurrent-requests:64}") int maxConcurrentRequests,
+                                @Value("${openfga.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${openfga.circuit-breaker.open-ms:10000}") long openMillis,
+                                @Value("${openfga.failure-mode:deny}") String failureMode,
+                                @Value("${openfga.max-tuples-per-write:100}") int maxTuplesPerWrite) {
+        if (!failureMode.equals("deny") && !failureMode.equals("error")) {
+            throw new IllegalArgumentException("openfga.failure-mode must be deny or error, was " + failureMode);
+        }
+        this.openFgaClient = openFgaClient;
+        this.permissionDecisionCache = permissionDecisionCache;
+        this.localTupleIndex = localTupleIndex;
+        this.readableFileIdsCache = readableFileIdsCache;
+        this.userGroupRepository = userGroupRepository;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.permitWaitMillis = permitWaitMillis;
+        this.failWithError = failureMode.equals("error");
+        this.maxTuplesPerWrite = maxTuplesPerWrite;
+        meterRegistry.gauge("openfga.requests.in.flight", permits, semaphore -> maxConcurrentRequests - semaphore.availablePermits());
+        meterRegistry.gauge("openfga.circuit.open", circuitBreaker,
+                breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
     
     // Object types
-    private static final String FILE_TYPE = "file";
-    private static final String DIRECTORY_TYPE = "directory";
+    public static final String FILE_TYPE = "file";
+    public static final String DIRECTORY_TYPE = "directory";
+    public static final String GROUP_TYPE = "group";
+    
+    /** Group IDs end up inside tuple strings, so they must not contain ':' or '#' */
+    private static final Pattern GROUP_ID_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+    
+    /** Largest page OpenFGA returns from a read */
+    private static final int MAX_READ_PAGE_SIZE = 100;
+    
+    /** Reads one readable-files walk keeps in flight at a time */
+    private static final int MAX_CONCURRENT_WALK_READS = 8;
     
     // Relation types
     private static final String RELATION_OWNER = "owner";
     private static final String RELATION_READER = "reader";
     private static final String RELATION_WRITER = "writer";
     private static final String RELATION_DELETER = "deleter";
+    private static final String RELATION_MEMBER = "member";
+    private static final String RELATION_PARENT = "parent";
     
     /**
      * Check if a user has a specific permission on an object
      */
     public boolean checkPermission(String objectType, String objectId, String relation, String username) {
-        try {
-            String object = objectType + ":" + objectId;
-            String user = "user:" + username;
-            
-            ClientCheckRequest request = new ClientCheckRequest()
-                    .user(user)
-                    .relation(relation)
-                    .object(object);
-            
-            CheckResponse response = openFgaClient.check(request).get();
-            return response.getAllowed();
-        } catch (Exception e) {
-            log.error("Error checking permission: {}", e.getMessage(), e);
-            return false;
+        return await(checkPermissionAsync(objectType, objectId, relation, username));
+    }
+    
+    /**
+     * Check a permission without blocking. Decisions are served from the local
+     * tuple index or the decision cache when possible; failures are handled per
+     * openfga.failure-mode.
+     */
+    public CompletableFuture<Boolean> checkPermissionAsync(String objectType, String objectId, String relation, String username) {
+        String object = objectType + ":" + objectId;
+        String user = "user:" + username;
+        
+        Boolean local = localTupleIndex.check(user, relation, object);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
         }
+        
+        ClientCheckRequest request = new ClientCheckRequest()
+                .user(user)
+                .relation(relation)
+                .object(object);
+        
+        return permissionDecisionCache.get(user, relation, object,
+                        () -> call(() -> openFgaClient.check(request)).thenApply(CheckResponse::getAllowed))
+                .exceptionally(e -> {
+                    log.error("Error checking permission: {}", e.getMessage(), e);
+                    if (isOverloaded(e)) {
+                        throw new FileServiceException.AuthorizationOverloadedException("Authorization service overloaded");
+                    }
+                    if (failWithError) {
+                        throw new FileServiceException.AuthorizationUnavailableException("Authorization service unavailable", e);
+                    }
+                    return false;
+                });
     }
     
     /**
@@ -81,7 +210,9 @@ public class AuthorizationService {
             ClientWriteRequest request = new ClientWriteRequest()
                     .writes(Collections.singletonList(tupleChange));
             
-            WriteResponse response = openFgaClient.write(request).get();
+            WriteResponse response = await(call(() -> openFgaClient.write(request)));
+            permissionDecisionCache.invalidateObject(object);
+            localTupleIndex.apply(List.of(toRelation(tupleKey)), List.of());
             log.info("Added relation: {} {} {}", object, relation, user);
         } catch (Exception e) {
             log.error("Error adding relation: {}", e.getMessage(), e);
@@ -109,7 +240,9 @@ public class AuthorizationService {
             ClientWriteRequest request = new ClientWriteRequest()
                     .deletes(Collections.singletonList(tupleChange));
             
-            WriteResponse response = openFgaClient.write(request).get();
+            WriteResponse response = await(call(() -> openFgaClient.write(request)));
+            permissionDecisionCache.invalidateObject(object);
+            localTupleIndex.apply(List.of(), List.of(toRelation(tupleKey)));
             log.info("Removed relation: {} {} {}", object, relation, user);
         } catch (Exception e) {
             log.error("Error removing relation: {}", e.getMessage(), e);
@@ -118,71 +251,392 @@ public class AuthorizationService {
     }
     
     /**
-     * Get all relations for an object
+     * Write and delete a set of relation tuples with as few requests as
+     * possible, chunked to the per-request tuple limit. Each chunk is applied
+     * atomically by OpenFGA, which rejects the whole chunk when any tuple in it
+     * is already written or already deleted; such a chunk is retried one tuple
+     * at a time so the rest still apply, and the rejected tuples are returned.
+     * Any other failure stops later chunks from being sent.
      */
-    public List<FgaRelation> getRelationsForObject(String objectType, String objectId) {
+    public RelationWriteResult writeRelations(List<FgaRelation> writes, List<FgaRelation> deletes) {
+        return writeRelations(writes, deletes, false);
+    }
+    
+    /**
+     * Write relations about objects that were just created. Nothing inherits
+     * from such an object yet, so only its own cached decisions are dropped,
+     * even when it is a directory.
+     */
+    private RelationWriteResult writeRelations(List<FgaRelation> writes, List<FgaRelation> deletes, boolean newObjects) {
+        List<TupleChange> changes = new ArrayList<>(writes.size() + deletes.size());
+        writes.forEach(relation -> changes.add(tupleChange(relation, TupleOperation.WRITE)));
+        deletes.forEach(relation -> changes.add(tupleChange(relation, TupleOperation.DELETE)));
+        
+        RelationWriteResult result = new RelationWriteResult();
         try {
-            String object = objectType + ":" + objectId;
-            
-            ClientReadRequest request = new ClientReadRequest()
-                    .object(object);
-            
-            ReadResponse response = openFgaClient.read(request).get();
-            List<FgaRelation> relations = new ArrayList<>();
-            
-            for (Tuple tuple : response.getTuples()) {
-                FgaRelation relation = FgaRelation.builder()
-                        .object(tuple.getKey().getObject())
-                        .relation(tuple.getKey().getRelation())
-                        .user(tuple.getKey().getUser())
-                        .build();
-                relations.add(relation);
+            for (int from = 0; from < changes.size(); from += maxTuplesPerWrite) {
+                List<TupleChange> chunk = changes.subList(from, Math.min(changes.size(), from + maxTuplesPerWrite));
+                try {
+                    writeChunk(chunk, newObjects);
+                } catch (RuntimeException e) {
+                    if (chunk.size() == 1 || !isRejection(e)) {
+                        throw e;
+                    }
+                    log.info("OpenFGA rejected a chunk of {} tuples, retrying them one at a time", chunk.size());
+                    writeOneByOne(chunk, newObjects, result);
+                    continue;
+                }
+                chunk.forEach(change -> countApplied(change, result));
             }
-            
-            return relations;
+            log.info("Wrote {} and deleted {} relations, {} rejected", result.getWritten(), result.getDeleted(),
+                    result.getRejectedWrites().size() + result.getRejectedDeletes().size());
+            return result;
         } catch (Exception e) {
+            log.error("Error writing relations: {}", e.getMessage(), e);
+            throw new FileServiceException("Failed to update permissions", "PERMISSION_ERROR", e);
+        }
+    }
+    
+    private void writeOneByOne(List<TupleChange> chunk, boolean newObjects, RelationWriteResult result) {
+        for (TupleChange change : chunk) {
+            try {
+                writeChunk(List.of(change), newObjects);
+                countApplied(change, result);
+            } catch (RuntimeException e) {
+                if (!isRejection(e)) {
+                    throw e;
+                }
+                (change.getOperation() == TupleOperation.WRITE ? result.getRejectedWrites() : result.getRejectedDeletes())
+                        .add(toRelation(change.getTupleKey()));
+            }
+        }
+    }
+    
+    private static void countApplied(TupleChange change, RelationWriteResult result) {
+        if (change.getOperation() == TupleOperation.WRITE) {
+            result.setWritten(result.getWritten() + 1);
+        } else {
+            result.setDeleted(result.getDeleted() + 1);
+        }
+    }
+    
+    /**
+     * Send one write request and, once OpenFGA has applied it, update the
+     * decision cache and the local tuple index
+     */
+    private void writeChunk(List<TupleChange> chunk, boolean newObjects) {
+        ClientWriteRequest request = new ClientWriteRequest();
+        List<TupleChange> chunkWrites = chunk.stream().filter(change -> change.getOperation() == TupleOperation.WRITE).toList();
+        List<TupleChange> chunkDeletes = chunk.stream().filter(change -> change.getOperation() == TupleOperation.DELETE).toList();
+        if (!chunkWrites.isEmpty()) {
+            request.writes(chunkWrites);
+        }
+        if (!chunkDeletes.isEmpty()) {
+            request.deletes(chunkDeletes);
+        }
+        
+        await(call(() -> openFgaClient.write(request)));
+        invalidateDecisions(chunk, newObjects);
+        localTupleIndex.apply(
+                chunkWrites.stream().map(change -> toRelation(change.getTupleKey())).toList(),
+                chunkDeletes.stream().map(change -> toRelation(change.getTupleKey())).toList());
+    }
+    
+    /**
+     * Get all relations for an object, following every continuation token;
+     * failures yield an empty list
+     */
+    public List<FgaRelation> getRelationsForObject(String objectType, String objectId) {
+        try (Stream<FgaRelation> relations = streamRelations(objectReadRequest(objectType, objectId))) {
+            return relations.toList();
+        } catch (RuntimeException e) {
             log.error("Error getting relations for object: {}", e.getMessage(), e);
             return Collections.emptyList();
         }
     }
     
     /**
-     * Get all relations for a user
+     * Get one page of an object's relations without blocking. Pass the returned
+     * nextCursor back to get the following page.
+     */
+    public CompletableFuture<CursorPage<FgaRelation>> getRelationsForObjectPageAsync(String objectType, String objectId,
+                                                                                      String cursor, int pageSize) {
+        checkPageSize(pageSize);
+        return readPageAsync(objectReadRequest(objectType, objectId), cursor, pageSize);
+    }
+    
+    /**
+     * Get all of a user's relations on files, following every continuation
+     * token; failures yield an empty list
      */
     public List<FgaRelation> getRelationsForUser(String username) {
-        try {
-            String user = "user:" + username;
-            
-            ClientReadRequest request = new ClientReadRequest()
-                    .user(user);
-            
-            ReadResponse response = openFgaClient.read(request).get();
-            List<FgaRelation> relations = new ArrayList<>();
-            
-            for (Tuple tuple : response.getTuples()) {
-                FgaRelation relation = FgaRelation.builder()
-                        .object(tuple.getKey().getObject())
-                        .relation(tuple.getKey().getRelation())
-                        .user(tuple.getKey().getUser())
-                        .build();
-                relations.add(relation);
-            }
-            
-            return relations;
-        } catch (Exception e) {
+        try (Stream<FgaRelation> relations = streamRelationsForUser(username)) {
+            return relations.toList();
+        } catch (RuntimeException e) {
             log.error("Error getting relations for user: {}", e.getMessage(), e);
             return Collections.emptyList();
         }
     }
     
+    /**
+     * Lazily stream all of a user's relations on files. Pages are read as the
+     * stream is consumed, so a caller that stops early does not read the rest.
+     */
+    public Stream<FgaRelation> streamRelationsForUser(String username) {
+        return streamRelations(userReadRequest(username));
+    }
+    
+    /**
+     * Get one page of a user's relations on files
+     */
+    public CursorPage<FgaRelation> getRelationsForUserPage(String username, String cursor, int pageSize) {
+        checkPageSize(pageSize);
+        return await(readPageAsync(userReadRequest(username), cursor, pageSize));
+    }
+    
+    /**
+     * IDs of every file the user can read. On failure only an empty set is
+     * returned, so callers fall back to the user's own files.
+     */
+    public Set<Long> getReadableFileIds(String username) {
+        return await(getReadableFileIdsAsync(username));
+    }
+    
+    /**
+     * Resolve the IDs of the files a user can read without blocking. ListObjects
+     * stops at a server-side result and time limit without saying so, so the
+     * model is walked with paged tuple reads instead: the user's groups, the
+     * files and directories granted to the user or those groups, and then
+     * everything below those directories through their parent tuples, one
+     * level at a time. The reads of a level run concurrently, and the result
+     * is cached briefly so the pages of one listing share a single walk.
+     */
+    public CompletableFuture<Set<Long>> getReadableFileIdsAsync(String username) {
+        return readableFileIdsCache.get(username, () -> walkReadableFileIds(username))
+                .exceptionally(e -> {
+                    log.error("Error listing readable files: {}", e.getMessage(), e);
+                    return Collections.<Long>emptySet();
+                });
+    }
+    
+    private CompletableFuture<Set<Long>> walkReadableFileIds(String username) {
+        String user = userSubject(username);
+        Set<String> fileObjects = new HashSet<>();
+        Set<String> directories = new HashSet<>();
+        
+        return readAllAsync(new ClientReadRequest().user(user).relation(RELATION_MEMBER).object(GROUP_TYPE + ":"))
+                .thenCompose(memberships -> {
+                    List<String> subjects = new ArrayList<>(List.of(user));
+                    memberships.forEach(membership -> subjects.add(membership.getObject() + "#" + RELATION_MEMBER));
+                    List<ClientReadRequest> requests = new ArrayList<>();
+                    for (String subject : subjects) {
+                        requests.add(new ClientReadRequest().user(subject).relation(RELATION_READER).object(FILE_TYPE + ":"));
+                        requests.add(new ClientReadRequest().user(subject).relation(RELATION_READER).object(DIRECTORY_TYPE + ":"));
+                    }
+                    return readAllConcurrentlyAsync(requests);
+                })
+                .thenCompose(grants -> {
+                    grants.forEach(relation -> (relation.getObject().startsWith(FILE_TYPE + ":") ? fileObjects : directories)
+                            .add(relation.getObject()));
+                    return expandDirectories(new ArrayList<>(directories), directories, fileObjects);
+                })
+                .thenApply(ignored -> {
+                    Set<Long> fileIds = new HashSet<>();
+                    for (String object : fileObjects) {
+                        try {
+                            fileIds.add(Long.valueOf(object.substring(object.indexOf(':') + 1)));
+                        } catch (NumberFormatException e) {
+                            log.warn("Ignoring non-numeric file object: {}", object);
+                        }
+                    }
+                    return fileIds;
+                });
+    }
+    
+    /**
+     * Add the files and directories whose parent is one of the given
+     * directories, then continue with the newly found directories. The seen
+     * set stops parent cycles.
+     */
+    private CompletableFuture<Void> expandDirectories(List<String> frontier, Set<String> seen, Set<String> fileObjects) {
+        if (frontier.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ClientReadRequest> requests = new ArrayList<>();
+        for (String directory : frontier) {
+            requests.add(new ClientReadRequest().user(directory).relation(RELATION_PARENT).object(FILE_TYPE + ":"));
+            requests.add(new ClientReadRequest().user(directory).relation(RELATION_PARENT).object(DIRECTORY_TYPE + ":"));
+        }
+        return readAllConcurrentlyAsync(requests).thenCompose(children -> {
+            List<String> next = new ArrayList<>();
+            for (FgaRelation child : children) {
+                if (child.getObject().startsWith(FILE_TYPE + ":")) {
+                    fileObjects.add(child.getObject());
+                } else if (seen.add(child.getObject())) {
+                    next.add(child.getObject());
+                }
+            }
+            return expandDirectories(next, seen, fileObjects);
+        });
+    }
+    
     /**
      * Initialize owner permissions for a file
      */
     public void initializeFileOwner(String fileId, String username) {
-        addRelation(FILE_TYPE, fileId, RELATION_OWNER, username);
-        addRelation(FILE_TYPE, fileId, RELATION_READER, username);
-        addRelation(FILE_TYPE, fileId, RELATION_WRITER, username);
-        addRelation(FILE_TYPE, fileId, RELATION_DELETER, username);
+        writeRelations(ownerRelations(FILE_TYPE, fileId, username), List.of());
+    }
+    
+    /**
+     * Grant permissions (READ, WRITE, DELETE) on files to users in one batched write
+     */
+    public RelationWriteResult grantFilePermissions(Collection<String> fileIds, Collection<String> usernames, Collection<String> permissions) {
+        return grantPermissions(FILE_TYPE, fileIds, usernames.stream().map(AuthorizationService::userSubject).toList(), permissions);
+    }
+    
+    /**
+     * Revoke permissions (READ, WRITE, DELETE) on files from users in one batched write
+     */
+    public RelationWriteResult revokeFilePermissions(Collection<String> fileIds, Collection<String> usernames, Collection<String> permissions) {
+        return revokePermissions(FILE_TYPE, fileIds, usernames.stream().map(AuthorizationService::userSubject).toList(), permissions);
+    }
+    
+    /**
+     * Grant permissions (READ, WRITE, DELETE) on files or directories to
+     * subjects (see {@link #userSubject} and {@link #groupSubject}) in one
+     * batched write. Grants that already exist are listed as rejected.
+     */
+    public RelationWriteResult grantPermissions(String objectType, Collection<String> objectIds, Collection<String> subjects, Collection<String> permissions) {
+        return writeRelations(permissionRelations(objectType, objectIds, subjects, permissions), List.of());
+    }
+    
+    /**
+     * Revoke permissions (READ, WRITE, DELETE) on files or directories from subjects in one batched write
+     */
+    public RelationWriteResult revokePermissions(String objectType, Collection<String> objectIds, Collection<String> subjects, Collection<String> permissions) {
+        return writeRelations(List.of(), permissionRelations(objectType, objectIds, subjects, permissions));
+    }
+    
+    /**
+     * Initialize owner permissions for a directory
+     */
+    public void initializeDirectoryOwner(String directoryId, String username) {
+        writeRelations(ownerRelations(DIRECTORY_TYPE, directoryId, username), List.of(), true);
+    }
+    
+    /**
+     * Make a newly created file or directory inherit the permissions of a
+     * directory; use {@link #moveToDirectory} for one that may have contents
+     */
+    public void setParentDirectory(String objectType, String objectId, String directoryId) {
+        writeRelations(List.of(relation(objectType, objectId, RELATION_PARENT, DIRECTORY_TYPE + ":" + directoryId)), List.of(), true);
+    }
+    
+    /**
+     * Stop a file or directory inheriting the permissions of a directory
+     */
+    public void removeParentDirectory(String objectType, String objectId, String directoryId) {
+        writeRelations(List.of(), List.of(relation(objectType, objectId, RELATION_PARENT, DIRECTORY_TYPE + ":" + directoryId)));
+    }
+    
+    /**
+     * Check if user has write permission on a directory, directly, through a
+     * group or inherited from a parent directory
+     */
+    public boolean canWriteDirectory(String directoryId, String username) {
+        return checkPermission(DIRECTORY_TYPE, directoryId, RELATION_WRITER, username);
+    }
+    
+    /**
+     * Move a file or directory from one parent directory to another in a
+     * single write; either directory may be null for "no parent"
+     */
+    public void moveToDirectory(String objectType, String objectId, String fromDirectoryId, String toDirectoryId) {
+        if (Objects.equals(fromDirectoryId, toDirectoryId)) {
+            return;
+        }
+        writeRelations(
+                toDirectoryId == null ? List.of() : List.of(relation(objectType, objectId, RELATION_PARENT, DIRECTORY_TYPE + ":" + toDirectoryId)),
+                fromDirectoryId == null ? List.of() : List.of(relation(objectType, objectId, RELATION_PARENT, DIRECTORY_TYPE + ":" + fromDirectoryId)));
+    }
+    
+    public boolean isDirectoryOwner(String directoryId, String username) {
+        return checkPermission(DIRECTORY_TYPE, directoryId, RELATION_OWNER, username);
+    }
+    
+    /**
+     * Check if user has read permission on a directory
+     */
+    public boolean canReadDirectory(String directoryId, String username) {
+        return checkPermission(DIRECTORY_TYPE, directoryId, RELATION_READER, username);
+    }
+    
+    /**
+     * Create a group owned by the user, who also becomes its first member.
+     * Fails when the group already exists, unless the user owns it. Ownership
+     * is claimed with a conditional insert into user_groups, so of two
+     * concurrent creators only one becomes the owner.
+     */
+    public void createGroup(String groupId, String username) {
+        groupSubject(groupId);
+        // Groups created before user_groups existed are only known to OpenFGA
+        if (!await(getRelationsForObjectPageAsync(GROUP_TYPE, groupId, null, 1)).getItems().isEmpty()) {
+            if (!isGroupOwner(groupId, username)) {
+                throw new FileServiceException.FileAccessDeniedException("Group already exists: " + groupId);
+            }
+            return;
+        }
+        if (userGroupRepository.claim(groupId, username) == 0) {
+            // Either another user won the race or an earlier attempt by this user failed to write the tuples
+            boolean owned = userGroupRepository.findById(groupId)
+                    .map(group -> group.getOwner().equals(username))
+                    .orElse(false);
+            if (!owned) {
+                throw new FileServiceException.FileAccessDeniedException("Group already exists: " + groupId);
+            }
+        }
+        writeRelations(List.of(
+                relation(GROUP_TYPE, groupId, RELATION_OWNER, userSubject(username)),
+                relation(GROUP_TYPE, groupId, RELATION_MEMBER, userSubject(username))), List.of());
+    }
+    
+    public boolean isGroupOwner(String groupId, String username) {
+        return checkPermission(GROUP_TYPE, groupId, RELATION_OWNER, username);
+    }
+    
+    public boolean isGroupMember(String groupId, String username) {
+        return checkPermission(GROUP_TYPE, groupId, RELATION_MEMBER, username);
+    }
+    
+    /**
+     * Add users to a group in one batched write
+     */
+    public RelationWriteResult addGroupMembers(String groupId, Collection<String> usernames) {
+        return writeRelations(groupMemberRelations(groupId, usernames), List.of());
+    }
+    
+    /**
+     * Remove users from a group in one batched write
+     */
+    public RelationWriteResult removeGroupMembers(String groupId, Collection<String> usernames) {
+        return writeRelations(List.of(), groupMemberRelations(groupId, usernames));
+    }
+    
+    /**
+     * The tuple subject for a user
+     */
+    public static String userSubject(String username) {
+        return "user:" + username;
+    }
+    
+    /**
+     * The tuple subject for every member of a group
+     */
+    public static String groupSubject(String groupId) {
+        if (groupId == null || !GROUP_ID_PATTERN.matcher(groupId).matches()) {
+            throw new IllegalArgumentException("Group IDs must be 1-64 letters, digits, '.', '_' or '-'");
+        }
+        return GROUP_TYPE + ":" + groupId + "#" + RELATION_MEMBER;
     }
     
     /**
@@ -192,6 +646,13 @@ public class AuthorizationService {
         return checkPermission(FILE_TYPE, fileId, RELATION_READER, username);
     }
     
+    /**
+     * Check read permission on a file without blocking
+     */
+    public CompletableFuture<Boolean> canReadFileAsync(String fileId, String username) {
+        return checkPermissionAsync(FILE_TYPE, fileId, RELATION_READER, username);
+    }
+    
     /**
      * Check if user has write permission on a file
      */
@@ -199,6 +660,13 @@ public class AuthorizationService {
         return checkPermission(FILE_TYPE, fileId, RELATION_WRITER, username);
     }
     
+    /**
+     * Check write permission on a file without blocking
+     */
+    public CompletableFuture<Boolean> canWriteFileAsync(String fileId, String username) {
+        return checkPermissionAsync(FILE_TYPE, fileId, RELATION_WRITER, username);
+    }
+    
     /**
      * Check if user has delete permission on a file
      */
@@ -206,6 +674,13 @@ public class AuthorizationService {
         return checkPermission(FILE_TYPE, fileId, RELATION_DELETER, username);
     }
     
+    /**
+     * Check delete permission on a file without blocking
+     */
+    public CompletableFuture<Boolean> canDeleteFileAsync(String fileId, String username) {
+        return checkPermissionAsync(FILE_TYPE, fileId, RELATION_DELETER, username);
+    }
+    
     /**
      * Grant read permission on a file to a user
      */
@@ -247,4 +722,328 @@ public class AuthorizationService {
     public void revokeDeletePermission(String fileId, String username) {
         removeRelation(FILE_TYPE, fileId, RELATION_DELETER, username);
     }
+    
+    private List<FgaRelation> permissionRelations(String objectType, Collection<String> objectIds,
+                                                  Collection<String> subjects, Collection<String> permissions) {
+        List<String> relations = new ArrayList<>();
+        for (String permission : permissions) {
+            switch (permission.toUpperCase()) {
+                case "READ" -> relations.add(RELATION_READER);
+                case "WRITE" -> relations.add(RELATION_WRITER);
+                case "DELETE" -> relations.add(RELATION_DELETER);
+                default -> log.warn("Unknown permission type: {}", permission);
+            }
+        }
+        
+        List<FgaRelation> tuples = new ArrayList<>();
+        for (String objectId : objectIds) {
+            for (String subject : subjects) {
+                for (String relation : relations) {
+                    tuples.add(relation(objectType, objectId, relation, subject));
+                }
+            }
+        }
+        return tuples;
+    }
+    
+    private static List<FgaRelation> ownerRelations(String objectType, String objectId, String username) {
+        String subject = userSubject(username);
+        return List.of(
+                relation(objectType, objectId, RELATION_OWNER, subject),
+                relation(objectType, objectId, RELATION_READER, subject),
+                relation(objectType, objectId, RELATION_WRITER, subject),
+                relation(objectType, objectId, RELATION_DELETER, subject));
+    }
+    
+    private static List<FgaRelation> groupMemberRelations(String groupId, Collection<String> usernames) {
+        groupSubject(groupId);
+        return usernames.stream()
+                .map(username -> relation(GROUP_TYPE, groupId, RELATION_MEMBER, userSubject(username)))
+                .toList();
+    }
+    
+    private static FgaRelation relation(String objectType, String objectId, String relation, String subject) {
+        return FgaRelation.builder()
+                .object(objectType + ":" + objectId)
+                .relation(relation)
+                .user(subject)
+                .build();
+    }
+    
+    /**
+     * Drop the cached decisions a write may have changed. Nothing inherits from
+     * a file or from a directory that was just created, so their tuples only
+     * drop their own decisions. Group memberships and tuples on existing
+     * directories affect decisions on other objects, so they clear the cache.
+     */
+    private void invalidateDecisions(List<TupleChange> changes, boolean newObjects) {
+        invalidateReadableFileIds(changes, newObjects);
+        Set<String> objects = new HashSet<>();
+        for (TupleChange change : changes) {
+            String object = change.getTupleKey().getObject();
+            if (object.startsWith(GROUP_TYPE + ":") || (object.startsWith(DIRECTORY_TYPE + ":") && !newObjects)) {
+                permissionDecisionCache.invalidateAll();
+                return;
+            }
+            objects.add(object);
+        }
+        permissionDecisionCache.invalidateObjects(objects);
+    }
+    
+    /**
+     * Drop the cached readable file IDs a write may have changed. Reader grants
+     * to a user only affect that user; grants to a group, membership changes and
+     * parent tuples can affect anyone, so they clear the cache. A new directory
+     * holds no files yet, so its parent tuple changes nothing.
+     */
+    private void invalidateReadableFileIds(List<TupleChange> changes, boolean newObjects) {
+        Set<String> usernames = new HashSet<>();
+        for (TupleChange change : changes) {
+            TupleKey key = change.getTupleKey();
+            if (newObjects && key.getObject().startsWith(DIRECTORY_TYPE + ":")) {
+                continue;
+            }
+            if (key.getRelation().equals(RELATION_PARENT) || key.getObject().startsWith(GROUP_TYPE + ":")
+                    || (key.getRelation().equals(RELATION_READER) && !key.getUser().startsWith("user:"))) {
+                readableFileIdsCache.invalidateAll();
+                return;
+            }
+            if (key.getRelation().equals(RELATION_READER)) {
+                usernames.add(key.getUser().substring("user:".length()));
+            }
+        }
+        usernames.forEach(readableFileIdsCache::invalidate);
+    }
+    
+    private static TupleChange tupleChange(FgaRelation relation, TupleOperation operation) {
+        return new TupleChange()
+                .tupleKey(new TupleKey()
+                        .object(relation.getObject())
+                        .relation(relation.getRelation())
+                        .user(relation.getUser()))
+                .operation(operation);
+    }
+    
+    /**
+     * Send one OpenFGA request through the circuit breaker, concurrency limit
+     * and deadline. The returned future completes on the OpenFGA executor.
+     * The deadline only fails the caller's view of the request: the permit is
+     * held until the SDK's own future completes, so requests that outlive their
+     * deadline still count against openfga.max-concurrent-requests.
+     */
+    private <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> request) {
+        if (!acquirePermit()) {
+            return CompletableFuture.failedFuture(
+                    new FileServiceException.AuthorizationOverloadedException("Too many concurrent OpenFGA requests"));
+        }
+        if (!circuitBreaker.allowRequest()) {
+            permits.release();
+            return CompletableFuture.failedFuture(
+                    new FileServiceException.AuthorizationUnavailableException("OpenFGA circuit breaker is open", null));
+        }
+        
+        CompletableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            recordOutcome(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        response.whenComplete((result, error) -> permits.release());
+        
+        // orTimeout completes the future it is called on, so apply it to a copy
+        return response.copy()
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((result, error) -> recordOutcome(error), executor);
+    }
+    
+    /**
+     * Wait up to openfga.permit-wait-ms for a slot under the concurrency limit,
+     * so a burst such as a bulk request's checks queues briefly instead of failing
+     */
+    private boolean acquirePermit() {
+        try {
+            return permits.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void recordOutcome(Throwable error) {
+        if (error != null && isOutage(error)) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+    }
+    
+    /**
+     * Whether a failure means OpenFGA is unavailable rather than that it
+     * rejected the request: a timeout, a 5xx response or a connection error
+     */
+    static boolean isOutage(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException && apiException.getCode() > 0) {
+                return apiException.getCode() >= 500;
+            }
+            if (cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether the request was shed at this node's concurrency limit
+     */
+    static boolean isOverloaded(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileServiceException.AuthorizationOverloadedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether OpenFGA refused the request as invalid, which for a write means
+     * a tuple in it already exists or, for a delete, does not
+     */
+    static boolean isRejection(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException && apiException.getCode() > 0) {
+                return apiException.getCode() == 400;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Wait for one of this service's futures, rethrowing the original runtime
+     * exception rather than a CompletionException on failure
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    private static void checkPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+    }
+    
+    private static ClientReadRequest objectReadRequest(String objectType, String objectId) {
+        return new ClientReadRequest()
+                .object(objectType + ":" + objectId);
+    }
+    
+    private static ClientReadRequest userReadRequest(String username) {
+        // OpenFGA requires at least the object type when reading by user
+        return new ClientReadRequest()
+                .user("user:" + username)
+                .object(FILE_TYPE + ":");
+    }
+    
+    /**
+     * Read one page of tuples. OpenFGA signals the last page with an empty token.
+     */
+    private CompletableFuture<CursorPage<FgaRelation>> readPageAsync(ClientReadRequest request, String continuationToken, int pageSize) {
+        ClientReadOptions options = new ClientReadOptions()
+                .pageSize(Math.min(pageSize, MAX_READ_PAGE_SIZE))
+                .continuationToken(continuationToken);
+        
+        return call(() -> openFgaClient.read(request, options))
+                .thenApply(response -> {
+                    String next = response.getContinuationToken();
+                    return new CursorPage<>(toRelations(response), next == null || next.isEmpty() ? null : next);
+                });
+    }
+    
+    /**
+     * Read every tuple matching the request, one page after another
+     */
+    /**
+     * Read every relation matching any of the requests, keeping at most
+     * MAX_CONCURRENT_WALK_READS of them in flight
+     */
+    private CompletableFuture<List<FgaRelation>> readAllConcurrentlyAsync(List<ClientReadRequest> requests) {
+        List<FgaRelation> relations = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+        for (int from = 0; from < requests.size(); from += MAX_CONCURRENT_WALK_READS) {
+            List<ClientReadRequest> wave = requests.subList(from, Math.min(from + MAX_CONCURRENT_WALK_READS, requests.size()));
+            done = done.thenCompose(ignored -> CompletableFuture.allOf(wave.stream()
+                    .map(request -> readAllAsync(request).thenAccept(relations::addAll))
+                    .toArray(CompletableFuture[]::new)));
+        }
+        return done.thenApply(ignored -> relations);
+    }
+    
+    private CompletableFuture<List<FgaRelation>> readAllAsync(ClientReadRequest request) {
+        List<FgaRelation> relations = new ArrayList<>();
+        return readRemainingAsync(request, null, relations).thenApply(ignored -> relations);
+    }
+    
+    private CompletableFuture<Void> readRemainingAsync(ClientReadRequest request, String continuationToken, List<FgaRelation> relations) {
+        return readPageAsync(request, continuationToken, MAX_READ_PAGE_SIZE)
+                .thenCompose(page -> {
+                    relations.addAll(page.getItems());
+                    return page.getNextCursor() == null
+                            ? CompletableFuture.completedFuture(null)
+                            : readRemainingAsync(request, page.getNextCursor(), relations);
+                });
+    }
+    
+    /**
+     * Lazily follow continuation tokens, reading the largest pages OpenFGA allows
+     */
+    private Stream<FgaRelation> streamRelations(ClientReadRequest request) {
+        Iterator<List<FgaRelation>> pages = new Iterator<>() {
+            private String continuationToken;
+            private boolean done;
+            
+            @Override
+            public boolean hasNext() {
+                return !done;
+            }
+            
+            @Override
+            public List<FgaRelation> next() {
+                if (done) {
+                    throw new NoSuchElementException();
+                }
+                CursorPage<FgaRelation> page = await(readPageAsync(request, continuationToken, MAX_READ_PAGE_SIZE));
+                continuationToken = page.getNextCursor();
+                done = continuationToken == null;
+                return page.getItems();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(List::stream);
+    }
+    
+    private static List<FgaRelation> toRelations(ReadResponse response) {
+        List<FgaRelation> relations = new ArrayList<>();
+        for (Tuple tuple : response.getTuples()) {
+            relations.add(toRelation(tuple.getKey()));
+        }
+        return relations;
+    }
+    
+    private static FgaRelation toRelation(TupleKey tupleKey) {
+        return FgaRelation.builder()
+                .object(tupleKey.getObject())
+                .relation(tupleKey.getRelation())
+                .user(tupleKey.getUser())
+                .build();
+    }
 }
@@ -0,0 +1,218 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.FileThumbnail;
+import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.fileservice.minioservice.repository.VirusScanRepository;
+import com.fileservice.minioservice.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Continuously removes files as they expire. Every poll walks the files that
+ * are due in (expires_at, id) order and processes them in chunks claimed with
+ * FOR UPDATE SKIP LOCKED, so several nodes split the rows instead of racing on
+ * them. Within the claiming transaction a chunk's rows are deleted, the
+ * owners' usage released and the objects and thumbnails queued on the
+ * {@link ObjectDeletionOutbox}, which removes them from MinIO after commit.
+ * Objects tagged with an expiry class are left to the bucket's lifecycle
+ * rules, so for those only the rows are deleted.
+ * <p>
+ * Files that have been in the trash for longer than the retention window are
+ * purged the same way, walking them in (deleted_at, id) order. Their virus
+ * scan results are deleted with the rows and their share links go with them
+ * through the foreign key's ON DELETE CASCADE.
+ * <p>
+ * The chunk size adapts to how long chunks take, and deletions are paced by a
+ * files-per-second limit so an expiry wave is spread out rather than hitting
+ * MinIO and Postgres at once; both jobs share the chunk size and the limit.
+ * Progress is published as the cleanup.deleted and cleanup.failed counters
+ * (tagged type=files for expired and type=trash for purged files) and the
+ * cleanup.batch.size gauge.
+ */
+@Service
+@Slf4j
+public class FileCleanupService {
+
+    static final String TASK_NAME = "file-cleanup";
+    static final String PURGE_TASK_NAME = "trash-purge";
+
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FileRepository fileRepository;
+    private final VirusScanRepository virusScanRepository;
+    private final ObjectDeletionOutbox objectDeletionOutbox;
+    private final StorageUsageService storageUsageService;
+    private final FileMetadataCache fileMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final RateLimiter rateLimiter;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetBatchMillis;
+    private final int trashRetentionDays;
+
+    private volatile int batchSize;
+
+    public FileCleanupService(FileRepository fileRepository,
+                              VirusScanRepository virusScanRepository,
+                              ObjectDeletionOutbox objectDeletionOutbox,
+                              StorageUsageService storageUsageService,
+                              FileMetadataCache fileMetadataCache,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${file.expiry.min-batch-size:50}") int minBatchSize,
+                              @Value("${file.expiry.max-batch-size:1000}") int maxBatchSize,
+                              @Value("${file.expiry.target-batch-millis:1000}") long targetBatchMillis,
+                              @Value("${file.expiry.max-files-per-second:200}") double maxFilesPerSecond,
+                              @Value("${file.trash.retention-days:30}") int trashRetentionDays) {
+        this.fileRepository = fileRepository;
+        this.virusScanRepository = virusScanRepository;
+        this.objectDeletionOutbox = objectDeletionOutbox;
+        this.storageUsageService = storageUsageService;
+        this.fileMetadataCache = fileMetadataCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = new RateLimiter(maxFilesPerSecond);
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetBatchMillis = targetBatchMillis;
+        this.trashRetentionDays = trashRetentionDays;
+        this.batchSize = minBatchSize;
+        meterRegistry.gauge("cleanup.batch.size", this, service -> service.batchSize);
+    }
+
+    /**
+     * Remove the files that are due now
+     */
+    public void cleanupExpiredFiles() {
+        LocalDateTime now = LocalDateTime.now();
+        drain(TASK_NAME, "files", FileEntity::getExpiresAt,
+                (afterExpiresAt, afterId, limit) -> fileRepository.claimExpiredFiles(now, afterExpiresAt, afterId, limit));
+    }
+
+    /**
+     * Purge the files whose retention window in the trash has passed
+     */
+    public void purgeTrashedFiles() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(trashRetentionDays);
+        drain(PURGE_TASK_NAME, "trash", FileEntity::getDeletedAt,
+                (afterDeletedAt, afterId, limit) -> fileRepository.claimTrashedFiles(cutoff, afterDeletedAt, afterId, limit));
+    }
+
+    /**
+     * Claim and delete chunks until a partial chunk shows nothing is left.
+     * The claimer pages by (sortKey, id) after the last row of the previous chunk.
+     */
+    private void drain(String taskName, String type, Function<FileEntity, LocalDateTime> sortKey, ChunkClaimer claimer) {
+        LocalDateTime[] afterKey = {START};
+        long[] afterId = {0L};
+        int[] claimed = new int[1];
+        long deleted = 0;
+        long failed = 0;
+        int limit;
+
+        do {
+            limit = batchSize;
+            int chunkLimit = limit;
+            claimed[0] = 0;
+            int[] chunkDeleted = new int[1];
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<FileEntity> chunk = claimer.claim(afterKey[0], afterId[0], chunkLimit);
+                    claimed[0] = chunk.size();
+                    if (!chunk.isEmpty()) {
+                        // Rows this run leaves behind are skipped from here on
+                        FileEntity last = chunk.get(chunk.size() - 1);
+                        afterKey[0] = sortKey.apply(last);
+                        afterId[0] = last.getId();
+                        chunkDeleted[0] = deleteChunk(chunk, type);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.error("Error deleting {} rows: {}", taskName, e.getMessage(), e);
+                chunkDeleted[0] = 0;
+                meterRegistry.counter("cleanup.failed", "type", type).increment(claimed[0]);
+            }
+            adjustBatchSize(claimed[0], chunkLimit, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            deleted += chunkDeleted[0];
+            failed += claimed[0] - chunkDeleted[0];
+
+            // Pay for the chunk after committing so no locks are held while waiting
+            if (!rateLimiter.acquire(claimed[0])) {
+                break;
+            }
+        } while (claimed[0] == limit);
+
+        if (deleted > 0 || failed > 0) {
+            log.info("{}: {} deleted, {} failed, batch size {}", taskName, deleted, failed, batchSize);
+        }
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Halve the batch size when a chunk overruns the target duration; double it
+     * when a full chunk finishes in under half of it
+     */
+    void adjustBatchSize(int claimed, int limit, long elapsedMillis) {
+        if (elapsedMillis > targetBatchMillis) {
+            batchSize = Math.max(minBatchSize, limit / 2);
+        } else if (claimed == limit && elapsedMillis < targetBatchMillis / 2) {
+            batchSize = Math.min(maxBatchSize, limit * 2);
+        }
+    }
+
+    /**
+     * Delete a claimed chunk; must run inside the claiming transaction
+     */
+    private int deleteChunk(List<FileEntity> files, String type) {
+        List<Long> ids = files.stream().map(FileEntity::getId).toList();
+
+        // Objects to delete: the files themselves plus their thumbnails, unless MinIO expires them
+        List<Long> unmanagedIds = files.stream()
+                .filter(file -> file.getExpiryClassDays() == null)
+                .map(FileEntity::getId)
+                .toList();
+        List<String> objectNames = new ArrayList<>();
+        for (FileEntity file : files) {
+            if (file.getExpiryClassDays() == null) {
+                objectNames.add(file.getObjectName());
+            }
+        }
+        if (!unmanagedIds.isEmpty()) {
+            for (FileThumbnail thumbnail : fileRepository.findThumbnailsByFileIds(unmanagedIds)) {
+                String thumbnailPath = thumbnail.getThumbnailPath();
+                objectNames.add(thumbnailPath.substring(thumbnailPath.lastIndexOf("/") + 1));
+            }
+        }
+
+        virusScanRepository.deleteByFileIds(ids.stream().map(String::valueOf).toList());
+        fileRepository.deleteAllByIdInBatch(ids);
+        objectDeletionOutbox.enqueue(objectNames);
+        files.stream()
+                .collect(Collectors.groupingBy(FileEntity::getOwner))
+                .forEach((owner, owned) -> storageUsageService.recordDeletion(
+                        owner, owned.stream().mapToLong(file -> file.getSize() + file.getThumbnailBytes()).sum(), owned.size()));
+        fileMetadataCache.evictAll(ids);
+        meterRegistry.counter("cleanup.deleted", "type", type).increment(files.size());
+        return files.size();
+    }
+
+    @FunctionalInterface
+    private interface ChunkClaimer {
+        List<FileEntity> claim(LocalDateTime afterKey, Long afterId, int limit);
+    }
+}
@@ -0,0 +1,88 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.FileMetadata;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-based near cache of file metadata keyed by file ID.
+ * Hit and miss counts are published as the "fileMetadata" cache metrics.
+ */
+@Component
+@Slf4j
+public class FileMetadataCache {
+
+    private final FileRepository fileRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<Long, FileMetadata> cache;
+
+    public FileMetadataCache(FileRepository fileRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${file.metadata-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${file.metadata-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.fileRepository = fileRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fileMetadata");
+    }
+
+    /**
+     * Get file metadata by ID, loading it from the database on a miss.
+     * Missing and trashed files are not cached. A read-only transaction is only opened on a
+     * miss (or joined if the caller already has one), so hits stay off the pool.
+     * Files past their expiry date are reported as missing, even before the
+     * cleanup job has removed them and even while they are still cached.
+     */
+    public Optional<FileMetadata> get(Long id) {
+        return Optional.ofNullable(cache.get(id, key -> readOnlyTransaction.execute(status ->
+                fileRepository.findByIdAndDeletedAtIsNull(key)
+                        .map(FileMetadata::from)
+                        .orElse(null))))
+                .filter(file -> file.getExpiresAt() == null || file.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Drop a file from the cache
+     */
+    public void evict(Long id) {
+        evictAll(List.of(id));
+    }
+
+    /**
+     * Drop files from the cache now and, if a transaction is active, again after
+     * it commits so a concurrent reader cannot re-cache the pre-commit rows.
+     */
+    public void evictAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(ids);
+                }
+            });
+        }
+    }
+}
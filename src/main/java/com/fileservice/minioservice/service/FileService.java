@@ -1,6 +1,10 @@
 package com.fileservice.minioservice.service;
 
+import com.fileservice.minioservice.dto.CursorPage;
 import com.fileservice.minioservice.dto.FileDto;
+import com.fileservice.minioservice.dto.FileMetadata;
+import com.fileservice.minioservice.dto.FileSummary;
+import com.fileservice.minioservice.dto.FileThumbnail;
 import com.fileservice.minioservice.dto.FileUploadRequest;
 import com.fileservice.minioservice.dto.VirusScanResult;
 import com.fileservice.minioservice.exception.FileServiceException;
@@ -8,33 +12,65 @@ import com.fileservice.minioservice.model.FileEntity;
 import com.fileservice.minioservice.model.VirusScanEntity;
 import com.fileservice.minioservice.repository.FileRepository;
 import com.fileservice.minioservice.repository.VirusScanRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.minio.GetObjectResponse;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileService {
 
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    
+    /** Sorts after every real deletion time, so the first trash page starts at the newest file */
+    private static final LocalDateTime TRASH_CURSOR_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final MinioService minioService;
     private final FileRepository fileRepository;
     private final VirusScanService virusScanService;
     private final VirusScanRepository virusScanRepository;
+    private final FileMetadataCache fileMetadataCache;
+    private final StorageUsageService storageUsageService;
+    private final AuthorizationService authorizationService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${file.trash.retention-days:30}")
+    private int trashRetentionDays;
     
     /**
      * Upload a file with virus scanning
      */
     @Transactional
     public FileDto uploadFile(FileUploadRequest request, String username) {
+        // Reject uploads that cannot fit in the user's quota before doing any work
+        storageUsageService.checkQuota(username, request.getFile().getSize());
+        
         try {
             // First scan the file for viruses
             VirusScanResult scanResult = virusScanService.scanFile(request.getFile());
@@ -89,16 +125,15 @@ public class FileService {
      */
     @Transactional(readOnly = true)
     public FileDto getFileById(Long id, String username) {
-        FileEntity fileEntity = fileRepository.findById(id)
+        FileMetadata file = fileMetadataCache.get(id)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + id));
         
-        // Check if user is the owner or has access (authorization will be implemented later)
-        if (!fileEntity.getOwner().equals(username)) {
-            // For now, just check ownership, OpenFGA will be integrated later
+        // Check if user is the owner or has been granted read access
+        if (!file.getOwner().equals(username) && !authorizationService.canReadFile(id.toString(), username)) {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to access this file");
         }
         
-        return minioService.convertToDto(fileEntity, 3600); // 1 hour URL expiry
+        return minioService.convertToDto(file, file.getThumbnailPaths(), 3600); // 1 hour URL expiry
     }
     
     /**
@@ -106,35 +141,126 @@ public class FileService {
      */
     @Transactional(readOnly = true)
     public Optional<GetObjectResponse> getFileContent(Long id, String username) {
-        FileEntity fileEntity = fileRepository.findById(id)
+        FileMetadata file = fileMetadataCache.get(id)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + id));
         
-        // Check if user is the owner or has access (authorization will be implemented later)
-        if (!fileEntity.getOwner().equals(username)) {
-            // For now, just check ownership, OpenFGA will be integrated later
+        // Check if user is the owner or has been granted read access
+        if (!file.getOwner().equals(username) && !authorizationService.canReadFile(id.toString(), username)) {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to access this file");
         }
         
-        return minioService.getFile(fileEntity.getObjectName());
+        return minioService.getFile(file.getObjectName());
+    }
+    
+    /**
+     * Get a page of a user's files in ID order, optionally including files
+     * shared with them. Only the next size + 1 shared IDs after the cursor go
+     * into the query, so a page stays bounded however many files are shared.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FileDto> getUserFiles(String username, boolean includeShared, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        long afterId = cursor != null ? parseCursor(cursor) : 0L;
+        LocalDateTime now = LocalDateTime.now();
+        
+        NavigableSet<Long> sharedIds = includeShared
+                ? new TreeSet<>(authorizationService.getReadableFileIds(username)).tailSet(afterId, false)
+                : Collections.emptyNavigableSet();
+        List<FileSummary> files;
+        long upToId = Long.MAX_VALUE;
+        if (sharedIds.isEmpty()) {
+            files = fileRepository.findPageByOwner(username, afterId, now, size + 1);
+        } else {
+            List<Long> candidates = sharedIds.stream().limit(size + 1).toList();
+            // Shared files after the last candidate are left to the following pages
+            if (sharedIds.size() > candidates.size()) {
+                upToId = candidates.get(candidates.size() - 1);
+            }
+            files = fileRepository.findAccessiblePage(username, candidates, afterId, upToId, now, size + 1);
+        }
+        
+        // One extra row was fetched to know whether another page follows
+        String nextCursor = null;
+        if (files.size() > size) {
+            files = files.subList(0, size);
+            nextCursor = files.get(size - 1).getId().toString();
+        } else if (upToId != Long.MAX_VALUE) {
+            nextCursor = Long.toString(upToId);
+        }
+        return new CursorPage<>(convertToDtos(files), nextCursor);
     }
     
     /**
-     * Get all files for a user
+     * Write all of a user's files to the stream as newline-delimited JSON.
+     * Rows are read through a database cursor and detached once written, so
+     * memory use does not grow with the size of the catalogue.
      */
     @Transactional(readOnly = true)
-    public List<FileDto> getUserFiles(String username) {
-        List<FileEntity> userFiles = fileRepository.findByOwner(username);
-        return userFiles.stream()
-                .map(file -> minioService.convertToDto(file, 3600)) // 1 hour URL expiry
+    public void exportUserFiles(String username, OutputStream outputStream) throws IOException {
+        try (Stream<FileEntity> files = fileRepository.streamByOwner(username);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are ended explicitly; the default separator would put a space before every record but the first
+            generator.setRootValueSeparator(null);
+            
+            Iterator<FileEntity> iterator = files.iterator();
+            List<FileEntity> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    writeExportChunk(generator, chunk);
+                    chunk.clear();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Write one chunk of exported files, resolving their thumbnails in a single query
+     */
+    private void writeExportChunk(JsonGenerator generator, List<FileEntity> chunk) throws IOException {
+        List<Long> fileIds = chunk.stream()
+                .map(FileEntity::getId)
                 .collect(Collectors.toList());
+        
+        Map<Long, Set<String>> thumbnailsByFileId = fileRepository.findThumbnailsByFileIds(fileIds).stream()
+                .collect(Collectors.groupingBy(FileThumbnail::getFileId,
+                        Collectors.mapping(FileThumbnail::getThumbnailPath, Collectors.toSet())));
+        
+        for (FileEntity file : chunk) {
+            FileDto fileDto = FileDto.builder()
+                    .id(file.getId())
+                    .filename(file.getFilename())
+                    .contentType(file.getContentType())
+                    .path(file.getPath())
+                    .size(file.getSize())
+                    .owner(file.getOwner())
+                    .createdAt(file.getCreatedAt())
+                    .updatedAt(file.getUpdatedAt())
+                    .expiresAt(file.getExpiresAt())
+                    .thumbnailPaths(thumbnailsByFileId.getOrDefault(file.getId(), Collections.emptySet()))
+                    .build();
+            
+            generator.writeObject(fileDto);
+            generator.writeRaw('\n');
+            entityManager.detach(file);
+        }
+        
+        generator.flush();
     }
     
     /**
-     * Delete file by ID
+     * Move a file to the trash. The row is only flagged, so the call does no
+     * storage work; the objects, thumbnails, scan result and share links are
+     * removed by the purge once the retention window has passed, and until then
+     * the file still counts against the owner's quota.
      */
     @Transactional
     public void deleteFile(Long id, String username) {
-        FileEntity fileEntity = fileRepository.findById(id)
+        FileEntity fileEntity = fileRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + id));
         
         // Check if user is the owner or has delete permission (authorization will be implemented later)
@@ -143,25 +269,81 @@ public class FileService {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to delete this file");
         }
         
-        try {
-            // Delete from MinIO
-            minioService.deleteFile(fileEntity.getObjectName());
-            
-            // Delete thumbnails if any
-            for (String thumbnailPath : fileEntity.getThumbnailPaths()) {
-                String thumbnailObjectName = thumbnailPath.substring(thumbnailPath.lastIndexOf("/") + 1);
-                minioService.deleteFile(thumbnailObjectName);
+        fileEntity.setDeletedAt(LocalDateTime.now());
+        fileRepository.save(fileEntity);
+        fileMetadataCache.evict(id);
+    }
+    
+    /**
+     * Get a page of the user's trash that can still be restored, most recently
+     * deleted first. The cursor is the last file's deletion time and ID,
+     * e.g. 2024-05-01T10:15:30.123456_42.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FileDto> getTrash(String username, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        LocalDateTime beforeDeletedAt = TRASH_CURSOR_END;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                beforeDeletedAt = LocalDateTime.parse(cursor.substring(0, Math.max(separator, 0)));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
             }
-            
-            // Delete virus scan result
-            virusScanRepository.deleteByFileId(id.toString());
-            
-            // Delete from database
-            fileRepository.delete(fileEntity);
-        } catch (Exception e) {
-            log.error("Error deleting file: {}", e.getMessage(), e);
-            throw new FileServiceException.FileDeleteException("Failed to delete file", e);
+            beforeId = parseCursor(cursor.substring(separator + 1));
         }
+        
+        // Fetch one extra row to know whether another page follows
+        List<FileEntity> files = fileRepository.findTrashPage(username, trashCutoff(), beforeDeletedAt, beforeId, size + 1);
+        String nextCursor = null;
+        if (files.size() > size) {
+            files = files.subList(0, size);
+            FileEntity last = files.get(size - 1);
+            nextCursor = last.getDeletedAt() + "_" + last.getId();
+        }
+        
+        // Trashed files are listed without download links until they are restored
+        return new CursorPage<>(files.stream()
+                .map(file -> FileDto.builder()
+                        .id(file.getId())
+                        .filename(file.getFilename())
+                        .contentType(file.getContentType())
+                        .path(file.getPath())
+                        .size(file.getSize())
+                        .owner(file.getOwner())
+                        .createdAt(file.getCreatedAt())
+                        .updatedAt(file.getUpdatedAt())
+                        .expiresAt(file.getExpiresAt())
+                        .deletedAt(file.getDeletedAt())
+                        .thumbnailPaths(file.getThumbnailPaths())
+                        .build())
+                .collect(Collectors.toList()), nextCursor);
+    }
+    
+    /**
+     * Take a file back out of the trash while its retention window is open.
+     * The row is locked first, so a restore racing the purge either waits for
+     * it and finds the file gone, or keeps the purge from claiming it.
+     */
+    @Transactional
+    public FileDto restoreFile(Long id, String username) {
+        LocalDateTime cutoff = trashCutoff();
+        FileEntity fileEntity = fileRepository.findByIdForUpdate(id)
+                .filter(file -> file.getDeletedAt() != null && file.getDeletedAt().isAfter(cutoff))
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found in trash with ID: " + id));
+        
+        if (!fileEntity.getOwner().equals(username)) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to restore this file");
+        }
+        
+        fileEntity.setDeletedAt(null);
+        fileEntity = fileRepository.save(fileEntity);
+        fileMetadataCache.evict(id);
+        
+        return minioService.convertToDto(fileEntity, 3600); // 1 hour URL expiry
     }
     
     /**
@@ -169,7 +351,7 @@ public class FileService {
      */
     @Transactional
     public FileDto updateFileMetadata(Long id, String newFilename, Integer newExpiryDays, String username) {
-        FileEntity fileEntity = fileRepository.findById(id)
+        FileEntity fileEntity = fileRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + id));
         
         // Check if user is the owner or has write permission (authorization will be implemented later)
@@ -186,28 +368,89 @@ public class FileService {
         // Update expiry date if provided
         if (newExpiryDays != null && newExpiryDays > 0) {
             fileEntity.setExpiresAt(LocalDateTime.now().plusDays(newExpiryDays));
+            minioService.updateExpiryClass(fileEntity);
         }
         
         // Save updated entity
         fileEntity = fileRepository.save(fileEntity);
+        fileMetadataCache.evict(id);
         
         return minioService.convertToDto(fileEntity, 3600); // 1 hour URL expiry
     }
     
     /**
-     * Search files by filename
+     * Search the user's files by filename, ordered by relevance
      */
     @Transactional(readOnly = true)
-    public List<FileDto> searchFilesByFilename(String filenamePattern, String username) {
-        List<FileEntity> files = fileRepository.findByFilenameContainingIgnoreCase(filenamePattern);
+    public List<FileDto> searchFilesByFilename(String filenamePattern, String username, Pageable pageable) {
+        return searchFilesByFilename(filenamePattern, username, false, pageable);
+    }
+    
+    /**
+     * Search the user's files, optionally including files shared with them, by filename
+     */
+    @Transactional(readOnly = true)
+    public List<FileDto> searchFilesByFilename(String filenamePattern, String username, boolean includeShared, Pageable pageable) {
+        Set<Long> sharedIds = includeShared ? authorizationService.getReadableFileIds(username) : Set.of();
+        if (sharedIds.isEmpty()) {
+            return convertToDtos(fileRepository.searchByOwnerAndFilename(
+                    username, escapeLikePattern(filenamePattern), filenamePattern, LocalDateTime.now(), pageable).getContent());
+        }
+        return convertToDtos(fileRepository.searchAccessibleByFilename(
+                username, toBigintArray(sharedIds), escapeLikePattern(filenamePattern), filenamePattern, LocalDateTime.now(), pageable).getContent());
+    }
+    
+    /**
+     * Format IDs as a Postgres bigint[] literal, bound as a single parameter
+     */
+    static String toBigintArray(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+    
+    /**
+     * Convert listing projections to DTOs, loading all thumbnails in a single query
+     */
+    private List<FileDto> convertToDtos(List<FileSummary> files) {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
         
-        // Filter files by ownership or access permission (authorization will be implemented later)
-        List<FileEntity> accessibleFiles = files.stream()
-                .filter(file -> file.getOwner().equals(username))
+        List<Long> fileIds = files.stream()
+                .map(FileSummary::getId)
                 .collect(Collectors.toList());
         
-        return accessibleFiles.stream()
-                .map(file -> minioService.convertToDto(file, 3600)) // 1 hour URL expiry
+        Map<Long, Set<String>> thumbnailsByFileId = fileRepository.findThumbnailsByFileIds(fileIds).stream()
+                .collect(Collectors.groupingBy(FileThumbnail::getFileId,
+                        Collectors.mapping(FileThumbnail::getThumbnailPath, Collectors.toSet())));
+        
+        return files.stream()
+                .map(file -> minioService.convertToDto(file,
+                        thumbnailsByFileId.getOrDefault(file.getId(), Collections.emptySet()),
+                        3600)) // 1 hour URL expiry
                 .collect(Collectors.toList());
     }
+    
+    /**
+     * Files trashed before this time are past their retention window
+     */
+    private LocalDateTime trashCutoff() {
+        return LocalDateTime.now().minusDays(trashRetentionDays);
+    }
+    
+    private long parseCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+    
+    /**
+     * Escape LIKE wildcards so user input is matched literally
+     */
+    private String escapeLikePattern(String pattern) {
+        return pattern.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
 }
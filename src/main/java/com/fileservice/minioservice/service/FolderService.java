@@ -0,0 +1,422 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.FileSummary;
+import com.fileservice.minioservice.dto.FolderDto;
+import com.fileservice.minioservice.dto.FolderEntryDto;
+import com.fileservice.minioservice.dto.FolderPath;
+import com.fileservice.minioservice.exception.FileServiceException;
+import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.model.Folder;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.fileservice.minioservice.repository.FolderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Folder tree management. Each folder stores the IDs of its ancestors as a
+ * materialized path, so listing a subtree is a prefix range scan and moving
+ * one is a single UPDATE. Folders are also OpenFGA directories: their parent
+ * tuples mirror the tree, so a grant on a folder covers everything below it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FolderService {
+
+    private static final String ROOT_PATH = "/";
+
+    /** Width of the folders.path column */
+    private static final int MAX_PATH_LENGTH = 2048;
+
+    private static final String FOLDER_CURSOR = "folder:";
+    private static final String FILE_CURSOR = "file:";
+
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final AuthorizationService authorizationService;
+
+    /**
+     * Create a folder at the root or inside a folder the user can write to
+     */
+    @Transactional
+    public FolderDto createFolder(String name, Long parentId, String username) {
+        String path = ROOT_PATH;
+        if (parentId != null) {
+            Folder parent = requireWritable(parentId, username);
+            path = shareAncestry(parentId, parent.getPath()) + parentId + "/";
+            if (folderRepository.existsByParentIdAndName(parentId, name)) {
+                throw new IllegalArgumentException("A folder named " + name + " already exists here");
+            }
+        } else if (folderRepository.existsByOwnerAndParentIdIsNullAndName(username, name)) {
+            throw new IllegalArgumentException("A folder named " + name + " already exists here");
+        }
+        if (path.length() > MAX_PATH_LENGTH) {
+            throw new IllegalArgumentException("Folders cannot be nested this deeply");
+        }
+
+        Folder folder = folderRepository.save(Folder.builder()
+                .owner(username)
+                .name(name)
+                .parentId(parentId)
+                .path(path)
+                .build());
+
+        // Written last so a failed write rolls the folder back
+        authorizationService.initializeDirectoryOwner(folder.getId().toString(), username);
+        if (parentId != null) {
+            authorizationService.setParentDirectory(AuthorizationService.DIRECTORY_TYPE, folder.getId().toString(), parentId.toString());
+        }
+        return convertToDto(folder);
+    }
+
+    /**
+     * Get a page of the user's root folders
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FolderDto> getRootFolders(String username, String cursor, int size) {
+        checkSize(size);
+        long afterId = cursor != null ? parseId(cursor) : 0;
+
+        // Fetch one extra row to know whether another page follows
+        List<Folder> folders = folderRepository.findRootPage(username, afterId, size + 1);
+        String nextCursor = null;
+        if (folders.size() > size) {
+            folders = folders.subList(0, size);
+            nextCursor = folders.get(size - 1).getId().toString();
+        }
+        return new CursorPage<>(folders.stream().map(this::convertToDto).toList(), nextCursor);
+    }
+
+    /**
+     * Get a page of a folder's direct children: its subfolders first, then its files
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FolderEntryDto> getChildren(Long folderId, String username, String cursor, int size) {
+        checkSize(size);
+        requireReadable(folderId, username);
+
+        List<FolderEntryDto> entries = new ArrayList<>();
+        long afterFileId = 0;
+        if (cursor == null || cursor.startsWith(FOLDER_CURSOR)) {
+            long afterFolderId = cursor != null ? parseId(cursor.substring(FOLDER_CURSOR.length())) : 0;
+            List<Folder> folders = folderRepository.findChildPage(folderId, afterFolderId, size + 1);
+            if (folders.size() > size) {
+                folders = folders.subList(0, size);
+                folders.forEach(folder -> entries.add(folderEntry(folder)));
+                return new CursorPage<>(entries, FOLDER_CURSOR + folders.get(size - 1).getId());
+            }
+            folders.forEach(folder -> entries.add(folderEntry(folder)));
+        } else if (cursor.startsWith(FILE_CURSOR)) {
+            afterFileId = parseId(cursor.substring(FILE_CURSOR.length()));
+        } else {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        // Fill the rest of the page with files; one extra row tells whether more follow
+        int remaining = size - entries.size();
+        List<FileSummary> files = fileRepository.findPageByFolderId(folderId, afterFileId, LocalDateTime.now(), remaining + 1);
+        String nextCursor = null;
+        if (files.size() > remaining) {
+            files = files.subList(0, remaining);
+            nextCursor = FILE_CURSOR + (files.isEmpty() ? afterFileId : files.get(remaining - 1).getId());
+        }
+        files.forEach(file -> entries.add(fileEntry(file)));
+        return new CursorPage<>(entries, nextCursor);
+    }
+
+    /**
+     * Get a page of every folder below a folder, in (path, id) order
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FolderDto> getSubtree(Long folderId, String username, String cursor, int size) {
+        checkSize(size);
+        Folder folder = requireReadable(folderId, username);
+
+        // The cursor is the last folder's path followed by its ID, e.g. /1/5/12
+        String afterPath = "";
+        long afterId = 0;
+        if (cursor != null) {
+            int slash = cursor.lastIndexOf('/');
+            if (slash < 0 || !cursor.startsWith(folder.subtreePath())) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            afterPath = cursor.substring(0, slash + 1);
+            afterId = parseId(cursor.substring(slash + 1));
+        }
+
+        List<Folder> folders = folderRepository.findSubtreePage(folder.subtreePath(), afterPath, afterId, size + 1);
+        String nextCursor = null;
+        if (folders.size() > size) {
+            folders = folders.subList(0, size);
+            Folder last = folders.get(size - 1);
+            nextCursor = last.getPath() + last.getId();
+        }
+        return new CursorPage<>(folders.stream().map(this::convertToDto).toList(), nextCursor);
+    }
+
+    /**
+     * Get a page of the files in a folder and every folder below it
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FolderEntryDto> getSubtreeFiles(Long folderId, String username, String cursor, int size) {
+        checkSize(size);
+        Folder folder = requireReadable(folderId, username);
+        long afterId = cursor != null ? parseId(cursor) : 0;
+
+        List<FileSummary> files = fileRepository.findSubtreePage(folderId, folder.subtreePath(), afterId, LocalDateTime.now(), size + 1);
+        String nextCursor = null;
+        if (files.size() > size) {
+            files = files.subList(0, size);
+            nextCursor = files.get(size - 1).getId().toString();
+        }
+        return new CursorPage<>(files.stream().map(this::fileEntry).toList(), nextCursor);
+    }
+
+    /**
+     * Move a folder and everything below it under another folder, or to the
+     * root when newParentId is null. Only the owner of both folders may move.
+     */
+    @Transactional
+    public FolderDto moveFolder(Long folderId, Long newParentId, String username) {
+        Folder folder = requireOwned(folderId, username);
+        String newParentPath = newParentId != null ? requireOwned(newParentId, username).getPath() : null;
+
+        // Re-read both paths under lock: a concurrent move may have changed
+        // them since the reads above, and checking stale paths lets A->B and
+        // B->A both pass and leave a cycle
+        Map<Long, String> paths = lockPaths(folderId, newParentId, newParentPath);
+        String oldPath = paths.get(folderId);
+        String oldSubtreePath = oldPath + folderId + "/";
+        String newPath = ROOT_PATH;
+        if (newParentId != null) {
+            newParentPath = paths.get(newParentId);
+            if (newParentId.equals(folderId) || newParentPath.startsWith(oldSubtreePath)) {
+                throw new IllegalArgumentException("A folder cannot be moved into itself or its own subfolders");
+            }
+            newPath = newParentPath + newParentId + "/";
+        }
+        if (newPath.equals(oldPath)) {
+            folder.setParentId(newParentId);
+            folder.setPath(oldPath);
+            return convertToDto(folder);
+        }
+        boolean nameTaken = newParentId != null
+                ? folderRepository.existsByParentIdAndName(newParentId, folder.getName())
+                : folderRepository.existsByOwnerAndParentIdIsNullAndName(username, folder.getName());
+        if (nameTaken) {
+            throw new IllegalArgumentException("A folder named " + folder.getName() + " already exists there");
+        }
+
+        String newSubtreePath = newPath + folderId + "/";
+        Integer longestPath = folderRepository.findMaxPathLength(oldSubtreePath);
+        int longestNewPath = longestPath != null
+                ? newSubtreePath.length() + longestPath - oldSubtreePath.length()
+                : newPath.length();
+        if (longestNewPath > MAX_PATH_LENGTH) {
+            throw new IllegalArgumentException("Folders cannot be nested this deeply");
+        }
+
+        int moved = folderRepository.moveSubtree(folderId, newParentId, newPath, oldSubtreePath, newSubtreePath, LocalDateTime.now());
+        log.info("Moved folder {} with {} descendants to {}", folderId, moved - 1, newPath);
+
+        Long oldParentId = parentIdOf(oldPath);
+        authorizationService.moveToDirectory(AuthorizationService.DIRECTORY_TYPE, folderId.toString(),
+                oldParentId != null ? oldParentId.toString() : null,
+                newParentId != null ? newParentId.toString() : null);
+
+        folder.setParentId(newParentId);
+        folder.setPath(newPath);
+        return convertToDto(folder);
+    }
+
+    /**
+     * Lock the folder being moved, its new parent and every ancestor of the
+     * new parent in ID order, and return their current paths. Locking the
+     * ancestors too means two moves that could close a loop between them
+     * always share a locked row, so the second one sees the first one's
+     * result. If an ancestor moved before the lock was taken, the new chain
+     * is locked as well.
+     */
+    private Map<Long, String> lockPaths(Long folderId, Long newParentId, String newParentPath) {
+        Set<Long> ids = new TreeSet<>();
+        ids.add(folderId);
+        while (true) {
+            if (newParentId != null) {
+                ids.add(newParentId);
+                ids.addAll(ancestorIds(newParentPath));
+            }
+            Map<Long, String> paths = new HashMap<>();
+            for (FolderPath locked : folderRepository.lockPaths(ids)) {
+                paths.put(locked.getId(), locked.getPath());
+            }
+            if (!paths.containsKey(folderId)) {
+                throw new FileServiceException.FileNotFoundException("Folder not found with ID: " + folderId);
+            }
+            if (newParentId == null) {
+                return paths;
+            }
+            if (!paths.containsKey(newParentId)) {
+                throw new FileServiceException.FileNotFoundException("Folder not found with ID: " + newParentId);
+            }
+            newParentPath = paths.get(newParentId);
+            if (ids.containsAll(ancestorIds(newParentPath))) {
+                return paths;
+            }
+        }
+    }
+
+    /**
+     * Take shared locks on a folder and all of its ancestors and return the
+     * folder's current path. A move of any of them that committed first is
+     * seen here; one that starts later waits for this transaction, and its
+     * subtree UPDATE then includes whatever this transaction added below.
+     */
+    private String shareAncestry(Long folderId, String path) {
+        Set<Long> ids = new TreeSet<>();
+        ids.add(folderId);
+        while (true) {
+            ids.addAll(ancestorIds(path));
+            String lockedPath = null;
+            for (FolderPath locked : folderRepository.sharePaths(ids)) {
+                if (locked.getId().equals(folderId)) {
+                    lockedPath = locked.getPath();
+                }
+            }
+            if (lockedPath == null) {
+                throw new FileServiceException.FileNotFoundException("Folder not found with ID: " + folderId);
+            }
+            path = lockedPath;
+            if (ids.containsAll(ancestorIds(path))) {
+                return path;
+            }
+        }
+    }
+
+    private static List<Long> ancestorIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        for (String id : path.split("/")) {
+            if (!id.isEmpty()) {
+                ids.add(Long.parseLong(id));
+            }
+        }
+        return ids;
+    }
+
+    private static Long parentIdOf(String path) {
+        List<Long> ancestors = ancestorIds(path);
+        return ancestors.isEmpty() ? null : ancestors.get(ancestors.size() - 1);
+    }
+
+    /**
+     * Move one of the user's files into a folder they can write to, or out of
+     * every folder when folderId is null
+     */
+    @Transactional
+    public void moveFile(Long fileId, Long folderId, String username) {
+        FileEntity file = fileRepository.findByIdAndDeletedAtIsNull(fileId)
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + fileId));
+        if (!file.getOwner().equals(username)) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to move this file");
+        }
+        if (folderId != null) {
+            // Hold the target folder still until the file's row is committed
+            Folder folder = requireWritable(folderId, username);
+            shareAncestry(folderId, folder.getPath());
+        }
+
+        Long previousFolderId = file.getFolderId();
+        file.setFolderId(folderId);
+        fileRepository.save(file);
+        authorizationService.moveToDirectory(AuthorizationService.FILE_TYPE, fileId.toString(),
+                previousFolderId != null ? previousFolderId.toString() : null,
+                folderId != null ? folderId.toString() : null);
+    }
+
+    private Folder requireFolder(Long folderId) {
+        return folderRepository.findById(folderId)
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("Folder not found with ID: " + folderId));
+    }
+
+    private Folder requireOwned(Long folderId, String username) {
+        Folder folder = requireFolder(folderId);
+        if (!folder.getOwner().equals(username)) {
+            throw new FileServiceException.FileAccessDeniedException("Only the folder owner can move it");
+        }
+        return folder;
+    }
+
+    private Folder requireReadable(Long folderId, String username) {
+        Folder folder = requireFolder(folderId);
+        if (!folder.getOwner().equals(username) && !authorizationService.canReadDirectory(folderId.toString(), username)) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to view this folder");
+        }
+        return folder;
+    }
+
+    private Folder requireWritable(Long folderId, String username) {
+        Folder folder = requireFolder(folderId);
+        if (!folder.getOwner().equals(username) && !authorizationService.canWriteDirectory(folderId.toString(), username)) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to add to this folder");
+        }
+        return folder;
+    }
+
+    private void checkSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+    }
+
+    private long parseId(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private FolderDto convertToDto(Folder folder) {
+        return FolderDto.builder()
+                .id(folder.getId())
+                .name(folder.getName())
+                .parentId(folder.getParentId())
+                .path(folder.getPath())
+                .owner(folder.getOwner())
+                .createdAt(folder.getCreatedAt())
+                .updatedAt(folder.getUpdatedAt())
+                .build();
+    }
+
+    private FolderEntryDto folderEntry(Folder folder) {
+        return FolderEntryDto.builder()
+                .type("folder")
+                .id(folder.getId())
+                .name(folder.getName())
+                .owner(folder.getOwner())
+                .createdAt(folder.getCreatedAt())
+                .build();
+    }
+
+    private FolderEntryDto fileEntry(FileSummary file) {
+        return FolderEntryDto.builder()
+                .type("file")
+                .id(file.getId())
+                .name(file.getFilename())
+                .contentType(file.getContentType())
+                .size(file.getSize())
+                .owner(file.getOwner())
+                .createdAt(file.getCreatedAt())
+                .build();
+    }
+}
@@ -14,12 +14,11 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -42,19 +41,11 @@ public class ImageService {
      * Generate thumbnails for an image
      */
     public Set<String> generateThumbnails(MultipartFile file, List<ImageDimension> dimensions, String originalObjectName) {
-        if (file == null || !isImage(file.getContentType()) || dimensions == null || dimensions.isEmpty()) {
-            return new HashSet<>();
-        }
-        
         Set<String> thumbnailPaths = new HashSet<>();
         
         try {
-            for (ImageDimension dimension : dimensions) {
-                String thumbnailPath = createThumbnail(file, dimension, originalObjectName);
-                if (thumbnailPath != null) {
-                    thumbnailPaths.add(thumbnailPath);
-                }
-            }
+            renderThumbnails(file, dimensions, originalObjectName).forEach((thumbnailObjectName, content) ->
+                    thumbnailPaths.add(uploadThumbnail(thumbnailObjectName, content, file.getContentType(), Map.of())));
         } catch (Exception e) {
             log.error("Error generating thumbnails: {}", e.getMessage(), e);
             // Continue without thumbnails if there's an error
@@ -64,37 +55,56 @@ public class ImageService {
     }
     
     /**
-     * Create a single thumbnail with specified dimensions
+     * Render thumbnails for an image in memory without storing them, so their
+     * sizes are known before anything is written. Returns the content of each
+     * thumbnail keyed by its object name.
      */
-    private String createThumbnail(MultipartFile file, ImageDimension dimension, String originalObjectName) throws IOException {
-        if (dimension.getWidth() <= 0 || dimension.getHeight() <= 0) {
-            return null;
+    public Map<String, byte[]> renderThumbnails(MultipartFile file, List<ImageDimension> dimensions, String originalObjectName) {
+        if (file == null || !isImage(file.getContentType()) || dimensions == null || dimensions.isEmpty()) {
+            return new LinkedHashMap<>();
         }
         
-        // Generate thumbnail object name
-        String fileExtension = getFileExtension(file.getOriginalFilename());
-        String thumbnailObjectName = generateThumbnailObjectName(originalObjectName, dimension, fileExtension);
-        String thumbnailPath = "/" + bucketName + "/" + thumbnailObjectName;
+        Map<String, byte[]> thumbnails = new LinkedHashMap<>();
         
-        // Create thumbnail
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        Thumbnails.of(file.getInputStream())
-                .size(dimension.getWidth(), dimension.getHeight())
-                .keepAspectRatio(true)
-                .toOutputStream(outputStream);
+        try {
+            for (ImageDimension dimension : dimensions) {
+                if (dimension.getWidth() <= 0 || dimension.getHeight() <= 0) {
+                    continue;
+                }
+                String fileExtension = getFileExtension(file.getOriginalFilename());
+                String thumbnailObjectName = generateThumbnailObjectName(originalObjectName, dimension, fileExtension);
+                
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                Thumbnails.of(file.getInputStream())
+                        .size(dimension.getWidth(), dimension.getHeight())
+                        .keepAspectRatio(true)
+                        .toOutputStream(outputStream);
+                thumbnails.put(thumbnailObjectName, outputStream.toByteArray());
+            }
+        } catch (Exception e) {
+            log.error("Error generating thumbnails: {}", e.getMessage(), e);
+            // Continue without the remaining thumbnails if there's an error
+        }
         
-        // Upload thumbnail to MinIO
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray())) {
+        return thumbnails;
+    }
+    
+    /**
+     * Store a rendered thumbnail, tagging the object. Returns its path.
+     */
+    public String uploadThumbnail(String thumbnailObjectName, byte[] content, String contentType, Map<String, String> tags) {
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(content)) {
             minioClient.putObject(
                 PutObjectArgs.builder()
                     .bucket(bucketName)
                     .object(thumbnailObjectName)
-                    .contentType(file.getContentType())
-                    .stream(inputStream, outputStream.size(), -1)
+                    .contentType(contentType)
+                    .tags(tags)
+                    .stream(inputStream, content.length, -1)
                     .build()
             );
             
-            return thumbnailPath;
+            return "/" + bucketName + "/" + thumbnailObjectName;
         } catch (Exception e) {
             log.error("Error uploading thumbnail to MinIO: {}", e.getMessage(), e);
             throw new FileServiceException.FileUploadException("Failed to upload thumbnail", e);
@@ -0,0 +1,251 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.FgaRelation;
+import dev.openfga.sdk.api.client.OpenFgaClient;
+import dev.openfga.sdk.api.client.model.ClientReadChangesRequest;
+import dev.openfga.sdk.api.client.model.ClientReadRequest;
+import dev.openfga.sdk.api.client.model.TupleKey;
+import dev.openfga.sdk.api.configuration.ClientReadChangesOptions;
+import dev.openfga.sdk.api.configuration.ClientReadOptions;
+import dev.openfga.sdk.api.model.ReadChangesResponse;
+import dev.openfga.sdk.api.model.ReadResponse;
+import dev.openfga.sdk.api.model.Tuple;
+import dev.openfga.sdk.api.model.TupleChange;
+import dev.openfga.sdk.api.model.TupleOperation;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional in-memory copy of the file, directory and group tuples in OpenFGA,
+ * used to answer checks without a remote call. Checks are evaluated the way
+ * the model in src/main/resources/openfga/model.fga defines them: a direct
+ * tuple, a tuple for a group the user is a member of, or the same relation on
+ * a parent directory.
+ * <p>
+ * The index is loaded with a full read and then kept current by polling the
+ * OpenFGA change stream. Writes made on this node are applied straight away.
+ * Checks are only answered locally while the last complete catch-up with the
+ * change stream is at most max-staleness-ms old; otherwise {@link #check}
+ * returns null and the caller asks OpenFGA.
+ */
+@Component
+@Slf4j
+public class LocalTupleIndex {
+
+    private static final Set<String> INDEXED_TYPES = Set.of(
+            AuthorizationService.FILE_TYPE, AuthorizationService.DIRECTORY_TYPE, AuthorizationService.GROUP_TYPE);
+
+    /** Relations that are inherited from parent directories */
+    private static final Set<String> INHERITED_RELATIONS = Set.of("reader", "writer", "deleter");
+
+    /** Same bound OpenFGA puts on resolution depth; also stops parent cycles */
+    private static final int MAX_DEPTH = 25;
+
+    /** Largest page OpenFGA returns from read and readChanges */
+    private static final int PAGE_SIZE = 100;
+
+    private record Key(String object, String relation, String user) {
+
+        String objectRelation() {
+            return object + "#" + relation;
+        }
+    }
+
+    private final OpenFgaClient openFgaClient;
+    private final boolean enabled;
+    private final long maxStalenessNanos;
+    private final long timeoutMillis;
+
+    /** Subjects by "object#relation" */
+    private volatile Map<String, Set<String>> tuples = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long syncedAtNanos;
+    private String changesToken;
+
+    public LocalTupleIndex(OpenFgaClient openFgaClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${authorization.local-index.enabled:false}") boolean enabled,
+                           @Value("${authorization.local-index.max-staleness-ms:5000}") long maxStalenessMillis,
+                           @Value("${openfga.timeout-ms:2000}") long timeoutMillis) {
+        this.openFgaClient = openFgaClient;
+        this.enabled = enabled;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.timeoutMillis = timeoutMillis;
+        meterRegistry.gauge("authorization.local.index.tuples", this,
+                index -> index.tuples.values().stream().mapToInt(Set::size).sum());
+        meterRegistry.gauge("authorization.local.index.staleness.seconds", this,
+                index -> index.loaded ? (System.nanoTime() - index.syncedAtNanos) / 1e9 : Double.NaN);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the index may answer checks right now
+     */
+    public boolean isFresh() {
+        return enabled && loaded && System.nanoTime() - syncedAtNanos <= maxStalenessNanos;
+    }
+
+    /**
+     * Answer a check locally, or null when the index is disabled or too stale
+     */
+    public Boolean check(String user, String relation, String object) {
+        if (!isFresh()) {
+            return null;
+        }
+        return check(tuples, user, relation, object, 0);
+    }
+
+    private static boolean check(Map<String, Set<String>> tuples, String user, String relation, String object, int depth) {
+        if (depth > MAX_DEPTH) {
+            return false;
+        }
+        Set<String> subjects = tuples.getOrDefault(object + "#" + relation, Set.of());
+        if (subjects.contains(user)) {
+            return true;
+        }
+        for (String subject : subjects) {
+            // Usersets such as group:x#member
+            if (subject.contains("#") && tuples.getOrDefault(subject, Set.of()).contains(user)) {
+                return true;
+            }
+        }
+        if (INHERITED_RELATIONS.contains(relation)) {
+            for (String parent : tuples.getOrDefault(object + "#parent", Set.of())) {
+                if (check(tuples, user, relation, parent, depth + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply tuples written or deleted on this node, so its own changes are
+     * visible before they come back through the change stream
+     */
+    public void apply(Collection<FgaRelation> writes, Collection<FgaRelation> deletes) {
+        if (!enabled) {
+            return;
+        }
+        writes.forEach(relation -> add(tuples, new Key(relation.getObject(), relation.getRelation(), relation.getUser())));
+        deletes.forEach(relation -> remove(tuples, new Key(relation.getObject(), relation.getRelation(), relation.getUser())));
+    }
+
+    /**
+     * Load the index on first use, then catch up with the change stream
+     */
+    @Scheduled(fixedDelayString = "${authorization.local-index.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long startedAtNanos = System.nanoTime();
+            if (!loaded) {
+                load();
+            }
+            catchUp();
+            syncedAtNanos = startedAtNanos;
+        } catch (RuntimeException e) {
+            log.warn("Error refreshing local tuple index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replace the index with a full read of the store
+     */
+    private void load() {
+        Map<String, Set<String>> snapshot = new ConcurrentHashMap<>();
+        String continuationToken = null;
+        do {
+            ReadResponse response = join(openFgaClient.read(new ClientReadRequest(),
+                    new ClientReadOptions().pageSize(PAGE_SIZE).continuationToken(continuationToken)));
+            for (Tuple tuple : response.getTuples()) {
+                Key key = key(tuple.getKey());
+                if (key != null) {
+                    add(snapshot, key);
+                }
+            }
+            continuationToken = emptyToNull(response.getContinuationToken());
+        } while (continuationToken != null);
+
+        tuples = snapshot;
+        changesToken = null;
+        loaded = true;
+        log.info("Loaded {} tuples into the local tuple index", snapshot.values().stream().mapToInt(Set::size).sum());
+    }
+
+    /**
+     * Apply every change since the last poll. OpenFGA returns an empty page at
+     * the end of the stream and a token to resume from next time.
+     * <p>
+     * The SDK cannot ask for changes from a point in time, so the first
+     * catch-up after a load replays the stream from its start over the
+     * snapshot. Changes are replayed in order, so the index ends up matching
+     * the store; it is not marked fresh until that replay is complete.
+     */
+    private void catchUp() {
+        while (true) {
+            ReadChangesResponse response = join(openFgaClient.readChanges(new ClientReadChangesRequest(),
+                    new ClientReadChangesOptions().pageSize(PAGE_SIZE).continuationToken(changesToken)));
+            for (TupleChange change : response.getChanges()) {
+                Key key = key(change.getTupleKey());
+                if (key == null) {
+                    continue;
+                }
+                if (change.getOperation() == TupleOperation.DELETE) {
+                    remove(tuples, key);
+                } else {
+                    add(tuples, key);
+                }
+            }
+            String next = emptyToNull(response.getContinuationToken());
+            if (next != null) {
+                changesToken = next;
+            }
+            if (response.getChanges().isEmpty() || next == null) {
+                return;
+            }
+        }
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        return AuthorizationService.await(future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private static void add(Map<String, Set<String>> tuples, Key key) {
+        tuples.computeIfAbsent(key.objectRelation(), objectRelation -> ConcurrentHashMap.newKeySet()).add(key.user());
+    }
+
+    private static void remove(Map<String, Set<String>> tuples, Key key) {
+        tuples.computeIfPresent(key.objectRelation(), (objectRelation, subjects) -> {
+            subjects.remove(key.user());
+            return subjects.isEmpty() ? null : subjects;
+        });
+    }
+
+    private static Key key(TupleKey tupleKey) {
+        if (tupleKey == null || tupleKey.getObject() == null
+                || !INDEXED_TYPES.contains(tupleKey.getObject().substring(0, Math.max(0, tupleKey.getObject().indexOf(':'))))) {
+            return null;
+        }
+        return new Key(tupleKey.getObject(), tupleKey.getRelation(), tupleKey.getUser());
+    }
+
+    private static String emptyToNull(String token) {
+        return token == null || token.isEmpty() ? null : token;
+    }
+}
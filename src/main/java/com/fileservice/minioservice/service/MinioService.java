@@ -1,6 +1,7 @@
 package com.fileservice.minioservice.service;
 
 import com.fileservice.minioservice.dto.FileDto;
+import com.fileservice.minioservice.dto.FileSummary;
 import com.fileservice.minioservice.dto.FileUploadRequest;
 import com.fileservice.minioservice.dto.ImageDimension;
 import com.fileservice.minioservice.exception.FileServiceException;
@@ -9,6 +10,10 @@ import com.fileservice.minioservice.repository.FileRepository;
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.LifecycleConfiguration;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,6 +29,8 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +40,8 @@ public class MinioService {
     private final MinioClient minioClient;
     private final FileRepository fileRepository;
     private final ImageService imageService;
+    private final StorageUsageService storageUsageService;
+    private final ObjectExpiryPolicy objectExpiryPolicy;
 
     @Value("${minio.bucket-name}")
     private String bucketName;
@@ -50,6 +59,21 @@ public class MinioService {
                 minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
                 log.info("Created MinIO bucket: {}", bucketName);
             }
+            // Rows tagged under an earlier configuration still rely on their class's rule
+            List<Integer> referencedClassDays = fileRepository.findDistinctExpiryClassDays();
+            if (objectExpiryPolicy.isLifecycleEnabled() || !referencedClassDays.isEmpty()) {
+                LifecycleConfiguration existing = minioClient.getBucketLifecycle(GetBucketLifecycleArgs.builder()
+                        .bucket(bucketName)
+                        .build());
+                LifecycleConfiguration merged = objectExpiryPolicy.mergeLifecycleConfiguration(existing, referencedClassDays);
+                if (!merged.rules().isEmpty()) {
+                    minioClient.setBucketLifecycle(SetBucketLifecycleArgs.builder()
+                            .bucket(bucketName)
+                            .config(merged)
+                            .build());
+                    log.info("Configured lifecycle expiry rules on MinIO bucket: {}", bucketName);
+                }
+            }
         } catch (Exception e) {
             log.error("Error initializing MinIO bucket: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to initialize MinIO bucket", e);
@@ -71,8 +95,22 @@ public class MinioService {
         
         // Calculate expiry date
         int expiryDays = request.getExpiryDays() != null ? request.getExpiryDays() : defaultExpiryDays;
-        LocalDateTime expiresAt = LocalDateTime.now().plusDays(expiryDays);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusDays(expiryDays);
+        Integer expiryClassDays = objectExpiryPolicy.expiryClassDays(now, expiresAt);
+        Map<String, String> tags = objectExpiryPolicy.tags(expiryClassDays);
         
+        // Render thumbnails up front so their bytes are charged together with the object's
+        Map<String, byte[]> thumbnails = imageService.isImage(contentType) && request.getThumbnailDimensions() != null
+                ? imageService.renderThumbnails(file, request.getThumbnailDimensions(), objectName)
+                : Map.of();
+        long thumbnailBytes = thumbnails.values().stream().mapToLong(content -> content.length).sum();
+        
+        // Account for the object and its thumbnails in the caller's transaction before
+        // anything is written; fails fast when over quota
+        storageUsageService.recordUpload(username, file.getSize() + thumbnailBytes);
+        
+        List<String> uploaded = new ArrayList<>();
         try {
             // Upload file to MinIO
             minioClient.putObject(
@@ -80,9 +118,17 @@ public class MinioService {
                     .bucket(bucketName)
                     .object(objectName)
                     .contentType(contentType)
+                    .tags(tags)
                     .stream(file.getInputStream(), file.getSize(), -1)
                     .build()
             );
+            uploaded.add(objectName);
+            
+            Set<String> thumbnailPaths = new HashSet<>();
+            for (Map.Entry<String, byte[]> thumbnail : thumbnails.entrySet()) {
+                thumbnailPaths.add(imageService.uploadThumbnail(thumbnail.getKey(), thumbnail.getValue(), contentType, tags));
+                uploaded.add(thumbnail.getKey());
+            }
             
             // Create file entity
             FileEntity fileEntity = FileEntity.builder()
@@ -90,21 +136,20 @@ public class MinioService {
                 .contentType(contentType)
                 .path(path)
                 .size(file.getSize())
+                .thumbnailBytes(thumbnailBytes)
+                .thumbnailPaths(thumbnailPaths)
                 .bucketName(bucketName)
                 .objectName(objectName)
                 .owner(username)
                 .expiresAt(expiresAt)
+                .expiryClassDays(expiryClassDays)
                 .build();
             
-            // Generate thumbnails if it's an image
-            if (imageService.isImage(contentType) && request.getThumbnailDimensions() != null && !request.getThumbnailDimensions().isEmpty()) {
-                Set<String> thumbnailPaths = imageService.generateThumbnails(file, request.getThumbnailDimensions(), objectName);
-                fileEntity.setThumbnailPaths(thumbnailPaths);
-            }
-            
             return fileRepository.save(fileEntity);
         } catch (Exception e) {
             log.error("Error uploading file to MinIO: {}", e.getMessage(), e);
+            // The row is rolled back with the caller's transaction; don't leave its objects behind
+            deleteFiles(uploaded);
             throw new RuntimeException("Failed to upload file", e);
         }
     }
@@ -143,6 +188,99 @@ public class MinioService {
         }
     }
 
+    /**
+     * Retag a file's objects after its expiry date changed. The expiry class
+     * only ever grows while the objects stay tagged: a shorter lifetime keeps
+     * the current rule, so a rolled-back update can never make MinIO expire
+     * bytes that a row still points to.
+     */
+    public void updateExpiryClass(FileEntity fileEntity) {
+        Integer current = fileEntity.getExpiryClassDays();
+        Integer required = objectExpiryPolicy.expiryClassDays(fileEntity.getCreatedAt(), fileEntity.getExpiresAt());
+        if (Objects.equals(current, required) || (current != null && required != null && required < current)) {
+            return;
+        }
+        
+        List<String> objectNames = new ArrayList<>();
+        objectNames.add(fileEntity.getObjectName());
+        for (String thumbnailPath : fileEntity.getThumbnailPaths()) {
+            objectNames.add(thumbnailPath.substring(thumbnailPath.lastIndexOf("/") + 1));
+        }
+        
+        try {
+            for (String objectName : objectNames) {
+                if (required == null) {
+                    minioClient.deleteObjectTags(DeleteObjectTagsArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .build());
+                } else {
+                    minioClient.setObjectTags(SetObjectTagsArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .tags(objectExpiryPolicy.tags(required))
+                            .build());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error updating expiry tags in MinIO: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to update file expiry", e);
+        }
+        fileEntity.setExpiryClassDays(required);
+    }
+
+    /**
+     * Delete several objects from MinIO with multi-object delete requests.
+     * Returns the names of the objects that could not be deleted.
+     */
+    public Set<String> deleteFiles(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return Set.of();
+        }
+        
+        List<DeleteObject> objects = objectNames.stream()
+                .map(DeleteObject::new)
+                .toList();
+        
+        Set<String> failed = new HashSet<>();
+        try {
+            // The results are lazy; iterating them is what sends the requests
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .objects(objects)
+                        .build())) {
+                DeleteError error = result.get();
+                log.error("Error deleting {} from MinIO: {}", error.objectName(), error.message());
+                failed.add(error.objectName());
+            }
+        } catch (Exception e) {
+            log.error("Error deleting files from MinIO: {}", e.getMessage(), e);
+            return new HashSet<>(objectNames);
+        }
+        return failed;
+    }
+
+    /**
+     * Lazily list every object in the bucket in key order. The client pages
+     * through the listing as the stream is consumed.
+     */
+    public Stream<Item> listFiles() {
+        Iterable<Result<Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .recursive(true)
+                    .build());
+        return StreamSupport.stream(results.spliterator(), false)
+                .map(result -> {
+                    try {
+                        return result.get();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to list files", e);
+                    }
+                });
+    }
+
     /**
      * Generate a presigned URL for file download
      */
@@ -184,30 +322,23 @@ public class MinioService {
     }
 
     /**
-     * Clean up expired files
+     * Convert a FileSummary projection to FileDto with download URL
      */
-    public void cleanupExpiredFiles() {
-        LocalDateTime now = LocalDateTime.now();
-        List<FileEntity> expiredFiles = fileRepository.findExpiredFiles(now);
+    public FileDto convertToDto(FileSummary summary, Set<String> thumbnailPaths, int urlExpirySeconds) {
+        String downloadUrl = generatePresignedUrl(summary.getObjectName(), urlExpirySeconds);
         
-        for (FileEntity file : expiredFiles) {
-            try {
-                // Delete from MinIO
-                deleteFile(file.getObjectName());
-                
-                // Delete thumbnails if any
-                for (String thumbnailPath : file.getThumbnailPaths()) {
-                    String thumbnailObjectName = thumbnailPath.substring(thumbnailPath.lastIndexOf("/") + 1);
-                    deleteFile(thumbnailObjectName);
-                }
-                
-                // Delete from database
-                fileRepository.delete(file);
-                
-                log.info("Deleted expired file: {}", file.getFilename());
-            } catch (Exception e) {
-                log.error("Error deleting expired file {}: {}", file.getFilename(), e.getMessage(), e);
-            }
-        }
+        return FileDto.builder()
+            .id(summary.getId())
+            .filename(summary.getFilename())
+            .contentType(summary.getContentType())
+            .path(summary.getPath())
+            .size(summary.getSize())
+            .owner(summary.getOwner())
+            .createdAt(summary.getCreatedAt())
+            .updatedAt(summary.getUpdatedAt())
+            .expiresAt(summary.getExpiresAt())
+            .thumbnailPaths(thumbnailPaths)
+            .downloadUrl(downloadUrl)
+            .build();
     }
 }
@@ -0,0 +1,140 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.ObjectDeletion;
+import com.fileservice.minioservice.repository.ObjectDeletionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transactional outbox for MinIO object deletions. Callers enqueue object
+ * names in the same transaction that deletes the rows referencing them, so
+ * the objects are only removed once that transaction commits and a rollback
+ * leaves both rows and objects in place. Entries are inserted as one JDBC
+ * batch; saveAll would insert them one by one, since IDENTITY keys turn off
+ * Hibernate's insert batching.
+ * <p>
+ * A worker applies due entries in chunks claimed with FOR UPDATE SKIP LOCKED,
+ * one multi-object delete request per chunk. Objects that could not be
+ * deleted are retried with exponential backoff. Progress is published as the
+ * cleanup.deleted and cleanup.failed counters with type=objects.
+ */
+@Service
+@Slf4j
+public class ObjectDeletionOutbox {
+
+    private static final String ENQUEUE_SQL =
+            "INSERT INTO object_deletion_outbox (object_name, attempts, next_attempt_at, created_at) VALUES (?, 0, ?, ?)";
+
+    private final ObjectDeletionRepository objectDeletionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MinioService minioService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long retryBaseSeconds;
+    private final long retryMaxSeconds;
+
+    public ObjectDeletionOutbox(ObjectDeletionRepository objectDeletionRepository,
+                                JdbcTemplate jdbcTemplate,
+                                MinioService minioService,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${file.deletion.batch-size:500}") int batchSize,
+                                @Value("${file.deletion.retry-base-seconds:10}") long retryBaseSeconds,
+                                @Value("${file.deletion.retry-max-seconds:3600}") long retryMaxSeconds) {
+        this.objectDeletionRepository = objectDeletionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.minioService = minioService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.retryMaxSeconds = retryMaxSeconds;
+    }
+
+    /**
+     * Schedule objects for deletion; joins the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(objectNames.size());
+        objectNames.forEach(objectName -> batch.add(new Object[]{objectName, now, now}));
+        jdbcTemplate.batchUpdate(ENQUEUE_SQL, batch);
+    }
+
+    /**
+     * Delete the objects that are due, one claimed chunk per transaction
+     */
+    @Scheduled(fixedDelayString = "${file.deletion.poll-interval-ms:2000}")
+    public void processDue() {
+        int[] claimed = new int[1];
+        do {
+            claimed[0] = 0;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<ObjectDeletion> chunk = objectDeletionRepository.claimDue(LocalDateTime.now(), batchSize);
+                    claimed[0] = chunk.size();
+                    if (!chunk.isEmpty()) {
+                        applyChunk(chunk);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.error("Error applying object deletions: {}", e.getMessage(), e);
+                return;
+            }
+        } while (claimed[0] == batchSize);
+    }
+
+    /**
+     * Delete a claimed chunk's objects; must run inside the claiming transaction
+     */
+    private void applyChunk(List<ObjectDeletion> chunk) {
+        Set<String> failed = minioService.deleteFiles(chunk.stream().map(ObjectDeletion::getObjectName).toList());
+
+        List<Long> deletedIds = chunk.stream()
+                .filter(deletion -> !failed.contains(deletion.getObjectName()))
+                .map(ObjectDeletion::getId)
+                .toList();
+        objectDeletionRepository.deleteAllByIdInBatch(deletedIds);
+        meterRegistry.counter("cleanup.deleted", "type", "objects").increment(deletedIds.size());
+
+        if (failed.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ObjectDeletion deletion : chunk) {
+            if (failed.contains(deletion.getObjectName())) {
+                // Dirty entities are flushed when the claiming transaction commits
+                deletion.setAttempts(deletion.getAttempts() + 1);
+                deletion.setNextAttemptAt(now.plusSeconds(retryDelaySeconds(deletion.getAttempts())));
+            }
+        }
+        meterRegistry.counter("cleanup.failed", "type", "objects").increment(failed.size());
+        log.warn("{} object deletions failed and will be retried", failed.size());
+    }
+
+    /**
+     * Base delay doubled for every failed attempt, capped at the maximum
+     */
+    long retryDelaySeconds(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(retryMaxSeconds, retryBaseSeconds << doublings);
+    }
+}
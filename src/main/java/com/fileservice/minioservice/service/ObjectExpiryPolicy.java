@@ -0,0 +1,127 @@
+package com.fileservice.minioservice.service;
+
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
+import io.minio.messages.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether MinIO or the service deletes a file's bytes when it expires.
+ * <p>
+ * In lifecycle mode objects are tagged with an expiry class: the smallest
+ * configured number of days that is at least the file's lifetime. The bucket
+ * gets one expiration rule per class, so MinIO removes the objects itself and
+ * the expiry cleanup only deletes the rows. Lifetimes longer than the largest
+ * class, and every file in delete mode, are left untagged and their objects
+ * are deleted through the {@link ObjectDeletionOutbox}. The rules are merged
+ * into whatever lifecycle configuration the bucket already has.
+ */
+@Component
+public class ObjectExpiryPolicy {
+
+    static final String TAG_KEY = "expiry-class";
+
+    private static final String RULE_ID_PREFIX = "expire-";
+
+    /** IDs of the rules this service owns; every other bucket rule is left alone */
+    private static final Pattern RULE_ID = Pattern.compile(RULE_ID_PREFIX + "\\d+d");
+
+    private static final long SECONDS_PER_DAY = Duration.ofDays(1).toSeconds();
+
+    private final boolean lifecycle;
+    private final List<Integer> classDays;
+
+    public ObjectExpiryPolicy(@Value("${file.expiry.mode:delete}") String mode,
+                              @Value("${file.expiry.lifecycle-classes:1,7,30,90,365}") List<Integer> classDays) {
+        if (!mode.equals("delete") && !mode.equals("lifecycle")) {
+            throw new IllegalArgumentException("file.expiry.mode must be delete or lifecycle, was " + mode);
+        }
+        this.lifecycle = mode.equals("lifecycle");
+        this.classDays = classDays.stream().filter(days -> days > 0).sorted().distinct().toList();
+    }
+
+    public boolean isLifecycleEnabled() {
+        return lifecycle;
+    }
+
+    /**
+     * The expiry class for an object created at createdAt that must live until
+     * expiresAt, or null when MinIO should not expire it
+     */
+    public Integer expiryClassDays(LocalDateTime createdAt, LocalDateTime expiresAt) {
+        if (!lifecycle || expiresAt == null) {
+            return null;
+        }
+        long seconds = Math.max(0, Duration.between(createdAt, expiresAt).toSeconds());
+        long days = (seconds + SECONDS_PER_DAY - 1) / SECONDS_PER_DAY;
+        return classDays.stream().filter(classDay -> classDay >= days).findFirst().orElse(null);
+    }
+
+    /**
+     * Object tags for an expiry class; empty for untagged objects
+     */
+    public Map<String, String> tags(Integer expiryClassDays) {
+        return expiryClassDays == null ? Map.of() : Map.of(TAG_KEY, tagValue(expiryClassDays));
+    }
+
+    /**
+     * One expiration rule per expiry class
+     */
+    public LifecycleConfiguration lifecycleConfiguration() {
+        return new LifecycleConfiguration(classDays.stream().map(ObjectExpiryPolicy::rule).toList());
+    }
+
+    /**
+     * Merge this service's expiration rules into the bucket's current lifecycle
+     * configuration. Rules it did not create are kept as they are, and there is
+     * a rule for every configured class plus every class that rows still
+     * reference: those objects are never deleted through the outbox, so
+     * dropping their rule would leave them in the bucket for good.
+     */
+    public LifecycleConfiguration mergeLifecycleConfiguration(LifecycleConfiguration existing,
+                                                              Collection<Integer> referencedClassDays) {
+        List<LifecycleRule> rules = new ArrayList<>();
+        if (existing != null && existing.rules() != null) {
+            existing.rules().stream()
+                    .filter(rule -> rule.id() == null || !RULE_ID.matcher(rule.id()).matches())
+                    .forEach(rules::add);
+        }
+        Set<Integer> days = new TreeSet<>(referencedClassDays);
+        if (lifecycle) {
+            days.addAll(classDays);
+        }
+        days.forEach(classDay -> rules.add(rule(classDay)));
+        return new LifecycleConfiguration(rules);
+    }
+
+    private static LifecycleRule rule(int days) {
+        return new LifecycleRule(
+                Status.ENABLED,
+                null,
+                new Expiration((ZonedDateTime) null, days, null),
+                new RuleFilter(new Tag(TAG_KEY, tagValue(days))),
+                RULE_ID_PREFIX + tagValue(days),
+                null,
+                null,
+                null);
+    }
+
+    private static String tagValue(int days) {
+        return days + "d";
+    }
+}
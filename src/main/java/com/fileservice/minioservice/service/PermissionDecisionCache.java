@@ -0,0 +1,110 @@
+package com.fileservice.minioservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, short-TTL cache of OpenFGA check decisions keyed by (user,
+ * relation, object). Both allowed and denied decisions are cached; failed
+ * checks are dropped as soon as they fail. Concurrent lookups of a key share
+ * the check that is in flight. Writes on this node invalidate every decision for the
+ * object they touch, or the whole cache for group and directory writes that
+ * affect other objects, while other nodes pick the change up when the TTL runs
+ * out. Hit and miss counts are published as the "permissionDecisions" cache
+ * metrics.
+ * <p>
+ * The keys cached for each object are indexed, so invalidating an object
+ * touches only its own decisions instead of scanning the whole cache.
+ */
+@Component
+public class PermissionDecisionCache {
+
+    private record Key(String user, String relation, String object) {
+    }
+
+    private final AsyncCache<Key, Boolean> cache;
+
+    /** Keys of the decisions cached or in flight for each object */
+    private final Map<String, Set<Key>> keysByObject = new ConcurrentHashMap<>();
+
+    public PermissionDecisionCache(MeterRegistry meterRegistry,
+                                   @Value("${authorization.decision-cache.maximum-size:100000}") long maximumSize,
+                                   @Value("${authorization.decision-cache.ttl-seconds:10}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                // Runs atomically with the eviction, so it cannot unindex a newer entry for the same key
+                .evictionListener((Key key, Boolean allowed, RemovalCause cause) -> unindex(key))
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "permissionDecisions");
+    }
+
+    /**
+     * Get a decision, starting the check on a miss
+     */
+    public CompletableFuture<Boolean> get(String user, String relation, String object, Supplier<CompletableFuture<Boolean>> check) {
+        return cache.get(new Key(user, relation, object), (key, executor) -> {
+            // Added inside compute so it cannot land in a set invalidateObjects has just taken
+            keysByObject.compute(object, (ignored, keys) -> {
+                Set<Key> indexed = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                indexed.add(key);
+                return indexed;
+            });
+            // The cache drops failed checks itself; drop them from the index too
+            return check.get().whenComplete((allowed, error) -> {
+                if (error != null) {
+                    unindex(key);
+                }
+            });
+        });
+    }
+
+    /**
+     * Drop every cached decision about an object
+     */
+    public void invalidateObject(String object) {
+        invalidateObjects(Set.of(object));
+    }
+
+    /**
+     * Drop every cached decision about any of the objects
+     */
+    public void invalidateObjects(Set<String> objects) {
+        for (String object : objects) {
+            Set<Key> keys = keysByObject.remove(object);
+            if (keys != null) {
+                cache.synchronous().invalidateAll(keys);
+            }
+        }
+    }
+
+    /**
+     * Drop every cached decision
+     */
+    public void invalidateAll() {
+        // Clear the index first: an entry added in between is then dropped
+        // from the cache rather than left cached but unindexed
+        keysByObject.clear();
+        cache.synchronous().invalidateAll();
+    }
+
+    private void unindex(Key key) {
+        keysByObject.computeIfPresent(key.object(), (object, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
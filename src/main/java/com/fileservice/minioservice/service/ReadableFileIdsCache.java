@@ -0,0 +1,54 @@
+package com.fileservice.minioservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Short-TTL cache of the file IDs each user can read, so paging through a
+ * listing walks the authorization model once rather than once per page.
+ * Concurrent lookups for a user share the walk in flight and failed walks are
+ * not cached. Writes on this node invalidate the users they affect, or the
+ * whole cache when they change what a group or directory grants; other nodes
+ * pick the change up when the TTL runs out. Hit and miss counts are published
+ * as the "readableFileIds" cache metrics.
+ */
+@Component
+public class ReadableFileIdsCache {
+
+    private final AsyncCache<String, Set<Long>> cache;
+
+    public ReadableFileIdsCache(MeterRegistry meterRegistry,
+                                @Value("${authorization.readable-files-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${authorization.readable-files-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "readableFileIds");
+    }
+
+    /**
+     * Get a user's readable file IDs, starting the walk on a miss
+     */
+    public CompletableFuture<Set<Long>> get(String username, Supplier<CompletableFuture<Set<Long>>> resolve) {
+        return cache.get(username, (key, executor) -> resolve.get());
+    }
+
+    public void invalidate(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,95 @@
+package com.fileservice.minioservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Time-bounded cluster-wide leases on scheduled tasks that must run on one
+ * node at a time, stored in scheduler_leases. Leases left behind by a crashed
+ * node lapse after the lease duration. Tasks that split their rows with
+ * SKIP LOCKED need no lease: they run on every node side by side, and Spring
+ * never overlaps a scheduled method with itself on one node.
+ */
+@Service
+@Slf4j
+public class SchedulerLeaseService {
+
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO scheduler_leases (task_name, node_id, acquired_at, leased_until) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (task_name, node_id) DO UPDATE SET acquired_at = EXCLUDED.acquired_at, leased_until = EXCLUDED.leased_until " +
+            "WHERE scheduler_leases.leased_until < EXCLUDED.acquired_at";
+    private static final String RENEW_SQL =
+            "UPDATE scheduler_leases SET leased_until = ? WHERE task_name = ? AND node_id = ?";
+    private static final String RELEASE_SQL =
+            "DELETE FROM scheduler_leases WHERE task_name = ? AND node_id = ?";
+
+    private static final String EXCLUSIVE_KEY = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final Duration leaseDuration;
+
+    public SchedulerLeaseService(JdbcTemplate jdbcTemplate,
+                                 @Value("${scheduler.node-id:}") String nodeId,
+                                 @Value("${scheduler.lease-seconds:600}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseDuration = Duration.ofSeconds(leaseSeconds);
+    }
+
+    /**
+     * Try to take the cluster-wide lease on a task. Returns empty if any node holds it.
+     */
+    public Optional<Lease> tryAcquireExclusive(String taskName) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jdbcTemplate.update(ACQUIRE_SQL, taskName, EXCLUSIVE_KEY,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plus(leaseDuration)));
+        if (updated == 0) {
+            log.info("Skipping {} on node {}: another run still holds the lease", taskName, nodeId);
+            return Optional.empty();
+        }
+        return Optional.of(new Lease(taskName, EXCLUSIVE_KEY));
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * A held lease. Long runs call renew between batches; close releases it.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final String taskName;
+        private final String holderKey;
+
+        private Lease(String taskName, String holderKey) {
+            this.taskName = taskName;
+            this.holderKey = holderKey;
+        }
+
+        public void renew() {
+            jdbcTemplate.update(RENEW_SQL, Timestamp.valueOf(LocalDateTime.now().plus(leaseDuration)), taskName, holderKey);
+        }
+
+        @Override
+        public void close() {
+            jdbcTemplate.update(RELEASE_SQL, taskName, holderKey);
+        }
+    }
+}
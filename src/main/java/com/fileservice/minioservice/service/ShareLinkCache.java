@@ -0,0 +1,108 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.ResolvedShareLink;
+import com.fileservice.minioservice.repository.ShareLinkRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cache of share token resolutions used by anonymous share access.
+ * Valid links are cached for at most their remaining lifetime; unknown and
+ * expired tokens are cached as negative entries so repeated requests for them
+ * never reach the database. Hit and miss counts are published as the
+ * "shareLinks" cache metrics.
+ * Eviction is local to this node; a link deleted elsewhere is refused through
+ * {@link ShareTokenRevocationList} within one revocation refresh interval.
+ */
+@Component
+public class ShareLinkCache {
+
+    private final ShareLinkRepository shareLinkRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, Optional<ResolvedShareLink>> cache;
+
+    public ShareLinkCache(ShareLinkRepository shareLinkRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${share.token-cache.maximum-size:100000}") long maximumSize,
+                          @Value("${share.token-cache.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${share.token-cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+        this.shareLinkRepository = shareLinkRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new LinkExpiry(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "shareLinks");
+    }
+
+    /**
+     * Resolve a share token. Malformed tokens are rejected without a lookup.
+     */
+    public Optional<ResolvedShareLink> resolve(String token) {
+        if (!isWellFormed(token)) {
+            return Optional.empty();
+        }
+        return cache.get(token, key -> readOnlyTransaction.execute(status -> shareLinkRepository.resolveByToken(key)));
+    }
+
+    public void evict(String token) {
+        cache.invalidate(token);
+    }
+
+    private boolean isWellFormed(String token) {
+        try {
+            UUID.fromString(token);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Caps positive entries at the link's expiry and uses the negative TTL for misses
+     */
+    private static class LinkExpiry implements Expiry<String, Optional<ResolvedShareLink>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        LinkExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String token, Optional<ResolvedShareLink> link, long currentTime) {
+            if (link.isEmpty() || link.get().isExpired()) {
+                return negativeTtlNanos;
+            }
+            long remainingNanos = Duration.between(LocalDateTime.now(), link.get().getExpiresAt()).toNanos();
+            return Math.min(ttlNanos, remainingNanos);
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Optional<ResolvedShareLink> link, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, link, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Optional<ResolvedShareLink> link, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
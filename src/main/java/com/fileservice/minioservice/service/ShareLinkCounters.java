@@ -0,0 +1,128 @@
+package com.fileservice.minioservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind access and download counters for unlimited share links.
+ * Hits are accumulated in striped in-memory adders and periodically added to
+ * share_links in one JDBC batch, so a popular link does not turn every
+ * anonymous request into an update of the same row. Counts not yet flushed
+ * are lost if the node dies; links with a download limit are counted
+ * synchronously instead.
+ * <p>
+ * A flush takes each adder out of its map, so new hits go to a fresh one,
+ * and keeps the old adder until the next flush to pick up any hit that was
+ * already on its way to it. The batch runs in one transaction, so a failed
+ * flush writes nothing and can put its counts back without double counting.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShareLinkCounters {
+
+    private static final String FLUSH_SQL =
+            "UPDATE share_links SET access_count = access_count + ?, download_count = download_count + ? WHERE id = ?";
+
+    private static final int ACCESS_SLOT = 0;
+    private static final int DOWNLOAD_SLOT = 1;
+
+    /** An adder taken out of its map, with the count that was already flushed from it */
+    private record Retired(Long linkId, int slot, LongAdder adder, long flushed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, LongAdder> accesses = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> downloads = new ConcurrentHashMap<>();
+
+    /** Adders taken out by the previous flush; only touched while flushing */
+    private List<Retired> retired = List.of();
+
+    public void recordAccess(Long linkId) {
+        accesses.computeIfAbsent(linkId, id -> new LongAdder()).increment();
+    }
+
+    public void recordDownload(Long linkId) {
+        downloads.computeIfAbsent(linkId, id -> new LongAdder()).increment();
+    }
+
+    public long pendingAccesses(Long linkId) {
+        LongAdder adder = accesses.get(linkId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public long pendingDownloads(Long linkId) {
+        LongAdder adder = downloads.get(linkId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Add the accumulated counts to the database and reset them.
+     * Rows are updated in ID order so concurrent flushes from other nodes cannot deadlock.
+     */
+    @Scheduled(fixedDelayString = "${share.counters.flush-interval-ms:5000}")
+    @PreDestroy
+    public synchronized void flush() {
+        Map<Long, long[]> deltas = new TreeMap<>();
+        // Hits that reached an adder after the previous flush had summed it
+        for (Retired previous : retired) {
+            long late = previous.adder().sum() - previous.flushed();
+            if (late > 0) {
+                deltas.computeIfAbsent(previous.linkId(), id -> new long[2])[previous.slot()] += late;
+            }
+        }
+        List<Retired> retiring = new ArrayList<>();
+        drain(accesses, ACCESS_SLOT, deltas, retiring);
+        drain(downloads, DOWNLOAD_SLOT, deltas, retiring);
+        retired = retiring;
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> batch.add(new Object[]{delta[ACCESS_SLOT], delta[DOWNLOAD_SLOT], id}));
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+            log.debug("Flushed counters for {} share links", batch.size());
+        } catch (RuntimeException e) {
+            // Nothing was written, so put the counts back for the next flush to retry
+            deltas.forEach((id, delta) -> {
+                if (delta[ACCESS_SLOT] > 0) {
+                    accesses.computeIfAbsent(id, key -> new LongAdder()).add(delta[ACCESS_SLOT]);
+                }
+                if (delta[DOWNLOAD_SLOT] > 0) {
+                    downloads.computeIfAbsent(id, key -> new LongAdder()).add(delta[DOWNLOAD_SLOT]);
+                }
+            });
+            log.warn("Failed to flush share link counters, will retry: {}", e.getMessage());
+        }
+    }
+
+    private void drain(Map<Long, LongAdder> counters, int slot, Map<Long, long[]> deltas, List<Retired> retiring) {
+        for (Long linkId : counters.keySet()) {
+            LongAdder adder = counters.remove(linkId);
+            if (adder == null) {
+                continue;
+            }
+            long count = adder.sum();
+            retiring.add(new Retired(linkId, slot, adder, count));
+            if (count > 0) {
+                deltas.computeIfAbsent(linkId, id -> new long[2])[slot] += count;
+            }
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.fileservice.minioservice.service;
 
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.FileMetadata;
+import com.fileservice.minioservice.dto.ResolvedShareLink;
+import com.fileservice.minioservice.dto.SharedFileContent;
 import com.fileservice.minioservice.dto.ShareLinkDto;
+import com.fileservice.minioservice.dto.SignedShareToken;
 import com.fileservice.minioservice.exception.FileServiceException;
-import com.fileservice.minioservice.model.FileEntity;
 import com.fileservice.minioservice.model.ShareLink;
 import com.fileservice.minioservice.repository.FileRepository;
 import com.fileservice.minioservice.repository.ShareLinkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.minio.GetObjectResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -28,21 +40,42 @@ public class ShareService {
     private final FileRepository fileRepository;
     private final MinioService minioService;
     private final AuthorizationService authorizationService;
+    private final FileMetadataCache fileMetadataCache;
+    private final ShareLinkCache shareLinkCache;
+    private final SignedShareTokenService signedShareTokenService;
+    private final ShareTokenRevocationList shareTokenRevocationList;
+    private final ShareLinkCounters shareLinkCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
     
     @Value("${file.default-expiry-days}")
     private int defaultExpiryDays;
     
+    @Value("${file.cleanup.batch-size:500}")
+    private int cleanupBatchSize;
+    
     /**
      * Create a share link for a file
      */
     @Transactional
     public ShareLinkDto createShareLink(Long fileId, String permission, Integer expiryDays, String username) {
+        return createShareLink(fileId, permission, expiryDays, username, false, null);
+    }
+    
+    /**
+     * Create a share link for a file. Signed links are self-contained tokens that
+     * are verified without a database lookup and are not stored in share_links,
+     * so they cannot carry a download limit.
+     */
+    @Transactional
+    public ShareLinkDto createShareLink(Long fileId, String permission, Integer expiryDays, String username,
+                                        boolean signed, Integer maxDownloads) {
         // Verify file exists
-        FileEntity fileEntity = fileRepository.findById(fileId)
+        FileMetadata file = fileMetadataCache.get(fileId)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + fileId));
         
         // Check if user has permission to share the file
-        if (!fileEntity.getOwner().equals(username) && 
+        if (!file.getOwner().equals(username) && 
             !authorizationService.canReadFile(fileId.toString(), username)) {
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to share this file");
         }
@@ -52,26 +85,40 @@ public class ShareService {
             throw new IllegalArgumentException("Invalid permission. Must be READ or WRITE");
         }
         
-        // Generate unique token
-        String token = UUID.randomUUID().toString();
+        // Validate download limit
+        if (maxDownloads != null && maxDownloads < 1) {
+            throw new IllegalArgumentException("maxDownloads must be at least 1");
+        }
+        if (signed && maxDownloads != null) {
+            throw new IllegalArgumentException("Download limits are not supported for signed share links");
+        }
         
         // Calculate expiry date
         int days = expiryDays != null ? expiryDays : defaultExpiryDays;
         LocalDateTime expiresAt = LocalDateTime.now().plusDays(days);
         
-        // Create and save share link
-        ShareLink shareLink = ShareLink.builder()
-                .token(token)
-                .file(fileEntity)
-                .permission(permission.toUpperCase())
-                .expiresAt(expiresAt)
-                .createdBy(username)
-                .build();
-        
-        shareLink = shareLinkRepository.save(shareLink);
+        String token;
+        if (signed) {
+            token = signedShareTokenService.issue(fileId, permission.toUpperCase(), expiresAt);
+        } else {
+            // Generate unique token
+            token = UUID.randomUUID().toString();
+            
+            // Create and save share link
+            ShareLink shareLink = ShareLink.builder()
+                    .token(token)
+                    .file(fileRepository.getReferenceById(fileId))
+                    .permission(permission.toUpperCase())
+                    .expiresAt(expiresAt)
+                    .createdBy(username)
+                    .maxDownloads(maxDownloads)
+                    .build();
+            
+            shareLinkRepository.save(shareLink);
+        }
         
         // Generate presigned URL for the file
-        String fileUrl = minioService.generatePresignedUrl(fileEntity.getObjectName(), days * 24 * 60 * 60);
+        String fileUrl = minioService.generatePresignedUrl(file.getObjectName(), days * 24 * 60 * 60);
         
         // Create DTO for response
         return ShareLinkDto.builder()
@@ -80,6 +127,7 @@ public class ShareService {
                 .fileUrl(fileUrl)
                 .expiresAt(expiresAt)
                 .permission(permission)
+                .maxDownloads(maxDownloads)
                 .build();
     }
     
@@ -88,7 +136,20 @@ public class ShareService {
      */
     @Transactional(readOnly = true)
     public Optional<ShareLinkDto> getShareLinkByToken(String token) {
+        if (signedShareTokenService.isSignedToken(token)) {
+            return signedShareTokenService.verify(token)
+                    .filter(signedToken -> !shareTokenRevocationList.isRevoked(signedToken.getTokenId()))
+                    .flatMap(signedToken -> fileMetadataCache.get(signedToken.getFileId())
+                            .map(file -> ShareLinkDto.builder()
+                                    .token(token)
+                                    .fileId(file.getId())
+                                    .fileUrl(minioService.generatePresignedUrl(file.getObjectName(), presignExpirySeconds(signedToken.getExpiresAt())))
+                                    .expiresAt(signedToken.getExpiresAt())
+                                    .permission(signedToken.getPermission())
+                                    .build()));
+        }
         return shareLinkRepository.findByToken(token)
+                .filter(shareLink -> shareLink.getFile().getDeletedAt() == null)
                 .map(this::convertToDto);
     }
     
@@ -97,37 +158,56 @@ public class ShareService {
      */
     @Transactional(readOnly = true)
     public List<ShareLinkDto> getShareLinksForFile(Long fileId, String username) {
-        // Verify file exists
-        FileEntity fileEntity = fileRepository.findById(fileId)
-                .orElseThrow(() -> new FileServiceException.FileNotFoundException("File not found with ID: " + fileId));
-        
-        // Check if user has permission to view share links
-        if (!fileEntity.getOwner().equals(username)) {
+        // Only the owner may view share links; fall back to an existence check to tell 404 from 403
+        if (!fileRepository.existsByIdAndOwnerAndDeletedAtIsNull(fileId, username)) {
+            if (!fileRepository.existsByIdAndDeletedAtIsNull(fileId)) {
+                throw new FileServiceException.FileNotFoundException("File not found with ID: " + fileId);
+            }
             throw new FileServiceException.FileAccessDeniedException("You don't have permission to view share links for this file");
         }
         
-        return shareLinkRepository.findByFileId(fileId)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(shareLinkRepository.findByFileId(fileId));
     }
     
     /**
-     * Get all share links created by a user
+     * Get a page of the share links created by a user, newest first
      */
     @Transactional(readOnly = true)
-    public List<ShareLinkDto> getShareLinksByUser(String username) {
-        return shareLinkRepository.findByCreatedBy(username)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public CursorPage<ShareLinkDto> getShareLinksByUser(String username, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        long beforeId = cursor != null ? parseCursor(cursor) : Long.MAX_VALUE;
+        
+        // Fetch one extra row to know whether another page follows
+        List<ShareLink> links = shareLinkRepository.findPageByCreatedBy(username, beforeId, PageRequest.of(0, size + 1));
+        String nextCursor = null;
+        if (links.size() > size) {
+            links = links.subList(0, size);
+            nextCursor = links.get(size - 1).getId().toString();
+        }
+        return new CursorPage<>(convertToDtos(links), nextCursor);
+    }
+    
+    private long parseCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
     
     /**
-     * Delete a share link
+     * Delete a share link. Other nodes may still hold the link in their token
+     * cache, so the token is also put on the revocation list, which they poll.
      */
     @Transactional
     public void deleteShareLink(String token, String username) {
+        if (signedShareTokenService.isSignedToken(token)) {
+            revokeSignedToken(token, username);
+            return;
+        }
+        
         ShareLink shareLink = shareLinkRepository.findByToken(token)
                 .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found with token: " + token));
         
@@ -137,67 +217,185 @@ public class ShareService {
         }
         
         shareLinkRepository.delete(shareLink);
+        shareLinkCache.evict(token);
+        if (shareLink.getExpiresAt().isAfter(LocalDateTime.now())) {
+            shareTokenRevocationList.revoke(token, shareLink.getFile().getId(), shareLink.getExpiresAt(), username);
+        }
     }
     
     /**
-     * Validate a share link and get the associated file
+     * Revoke a signed token. It carries no creator, so only the file owner may revoke it.
      */
-    @Transactional(readOnly = true)
-    public FileEntity validateShareLink(String token, String requiredPermission) {
-        ShareLink shareLink = shareLinkRepository.findByToken(token)
-                .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found or expired"));
+    private void revokeSignedToken(String token, String username) {
+        SignedShareToken signedToken = signedShareTokenService.verify(token)
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found with token: " + token));
+        
+        FileMetadata file = fileMetadataCache.get(signedToken.getFileId())
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found with token: " + token));
+        if (!file.getOwner().equals(username)) {
+            throw new FileServiceException.FileAccessDeniedException("You don't have permission to delete this share link");
+        }
+        
+        shareTokenRevocationList.revoke(signedToken, username);
+    }
+    
+    /**
+     * Validate a share link and get the associated file.
+     * Not transactional: both lookups are cached, so repeated access to a popular
+     * link does not check out a database connection. Expired links are left for
+     * the cleanup job.
+     */
+    public FileMetadata validateShareLink(String token, String requiredPermission) {
+        return getSharedFile(resolveShareLink(token, requiredPermission).getFileId());
+    }
+    
+    /**
+     * Validate a share link for metadata access and count the access
+     */
+    public FileMetadata accessSharedFile(String token) {
+        ResolvedShareLink shareLink = resolveShareLink(token, "READ");
+        FileMetadata file = getSharedFile(shareLink.getFileId());
+        if (shareLink.getLinkId() != null) {
+            shareLinkCounters.recordAccess(shareLink.getLinkId());
+        }
+        return file;
+    }
+    
+    /**
+     * Validate a share link, open the file content and count the download.
+     * The download is only counted once the content stream is open, so a
+     * missing object or a MinIO failure does not use up a limited link.
+     * Limited links are counted with an atomic conditional update so the limit
+     * holds across nodes; unlimited links use the write-behind counters.
+     */
+    public SharedFileContent downloadSharedFile(String token) {
+        ResolvedShareLink shareLink = resolveShareLink(token, "READ");
+        FileMetadata file = getSharedFile(shareLink.getFileId());
+        GetObjectResponse content = minioService.getFile(file.getObjectName())
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("File content not found"));
+        if (shareLink.getLinkId() != null) {
+            if (shareLink.getMaxDownloads() == null) {
+                shareLinkCounters.recordDownload(shareLink.getLinkId());
+            } else if (shareLinkRepository.incrementDownloadCountWithinLimit(shareLink.getLinkId()) == 0) {
+                closeQuietly(content);
+                throw new FileServiceException.FileAccessDeniedException("Share link download limit reached");
+            }
+        }
+        return new SharedFileContent(file, content);
+    }
+    
+    private static void closeQuietly(GetObjectResponse content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            log.debug("Failed to close unused object stream: {}", e.getMessage());
+        }
+    }
+    
+    private ResolvedShareLink resolveShareLink(String token, String requiredPermission) {
+        ResolvedShareLink shareLink;
+        if (signedShareTokenService.isSignedToken(token)) {
+            shareLink = signedShareTokenService.verify(token)
+                    .filter(verified -> !shareTokenRevocationList.isRevoked(verified.getTokenId()))
+                    .map(verified -> new ResolvedShareLink(null, verified.getFileId(), null,
+                            verified.getPermission(), verified.getExpiresAt(), null))
+                    .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found or expired"));
+        } else {
+            shareLink = shareLinkCache.resolve(token)
+                    .filter(resolved -> !shareTokenRevocationList.isRevoked(token))
+                    .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found or expired"));
+        }
+        checkShareLink(shareLink, requiredPermission);
+        return shareLink;
+    }
+    
+    private void checkShareLink(ResolvedShareLink shareLink, String requiredPermission) {
+        String permission = shareLink.getPermission();
         
         // Check if the link has expired
-        if (shareLink.getExpiresAt().isBefore(LocalDateTime.now())) {
-            shareLinkRepository.delete(shareLink);
+        if (shareLink.isExpired()) {
             throw new FileServiceException.FileAccessDeniedException("Share link has expired");
         }
         
         // Check if the link has the required permission
         if (requiredPermission != null && 
-            !shareLink.getPermission().equalsIgnoreCase(requiredPermission) && 
-            !shareLink.getPermission().equalsIgnoreCase("WRITE")) { // WRITE permission includes READ
+            !permission.equalsIgnoreCase(requiredPermission) && 
+            !permission.equalsIgnoreCase("WRITE")) { // WRITE permission includes READ
             throw new FileServiceException.FileAccessDeniedException("Share link does not have the required permission");
         }
-        
-        return shareLink.getFile();
+    }
+    
+    private FileMetadata getSharedFile(Long fileId) {
+        return fileMetadataCache.get(fileId)
+                .orElseThrow(() -> new FileServiceException.FileNotFoundException("Share link not found or expired"));
     }
     
     /**
      * Convert ShareLink entity to ShareLinkDto
      */
     private ShareLinkDto convertToDto(ShareLink shareLink) {
-        // Generate presigned URL for the file
-        long daysUntilExpiry = java.time.temporal.ChronoUnit.DAYS.between(
-                LocalDateTime.now(), 
-                shareLink.getExpiresAt());
-        int expirySeconds = (int) (daysUntilExpiry * 24 * 60 * 60);
-        
-        String fileUrl = minioService.generatePresignedUrl(
-                shareLink.getFile().getObjectName(), 
-                expirySeconds > 0 ? expirySeconds : 3600); // Default to 1 hour if almost expired
-        
+        return convertToDtos(List.of(shareLink)).get(0);
+    }
+    
+    /**
+     * Convert share links whose files are already fetched, signing one presigned URL
+     * per distinct object and expiry instead of one per link
+     */
+    private List<ShareLinkDto> convertToDtos(List<ShareLink> shareLinks) {
+        Map<String, String> urls = new HashMap<>();
+        return shareLinks.stream()
+                .map(shareLink -> {
+                    String objectName = shareLink.getFile().getObjectName();
+                    int expirySeconds = presignExpirySeconds(shareLink.getExpiresAt());
+                    String fileUrl = urls.computeIfAbsent(objectName + "|" + expirySeconds,
+                            key -> minioService.generatePresignedUrl(objectName, expirySeconds));
+                    return toDto(shareLink, fileUrl);
+                })
+                .collect(Collectors.toList());
+    }
+    
+    private ShareLinkDto toDto(ShareLink shareLink, String fileUrl) {
         return ShareLinkDto.builder()
                 .token(shareLink.getToken())
                 .fileId(shareLink.getFile().getId())
                 .fileUrl(fileUrl)
                 .expiresAt(shareLink.getExpiresAt())
                 .permission(shareLink.getPermission())
+                .maxDownloads(shareLink.getMaxDownloads())
+                // Include counts this node has not flushed yet
+                .downloadCount(shareLink.getDownloadCount() + shareLinkCounters.pendingDownloads(shareLink.getId()))
+                .accessCount(shareLink.getAccessCount() + shareLinkCounters.pendingAccesses(shareLink.getId()))
                 .build();
     }
     
+    private int presignExpirySeconds(LocalDateTime expiresAt) {
+        long daysUntilExpiry = java.time.temporal.ChronoUnit.DAYS.between(LocalDateTime.now(), expiresAt);
+        int expirySeconds = (int) (daysUntilExpiry * 24 * 60 * 60);
+        return expirySeconds > 0 ? expirySeconds : 3600; // Default to 1 hour if almost expired
+    }
+    
     /**
-     * Clean up expired share links
+     * Clean up expired share links in short, bounded transactions.
+     * Nodes running this together skip each other's locked rows.
      */
     @Scheduled(cron = "0 0 2 * * ?") // Run at 2 AM every day
-    @Transactional
     public void cleanupExpiredShareLinks() {
         LocalDateTime now = LocalDateTime.now();
-        List<ShareLink> expiredLinks = shareLinkRepository.findExpiredLinks(now);
+        Counter deleted = meterRegistry.counter("cleanup.deleted", "type", "share_links");
+        long total = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> shareLinkRepository.deleteExpiredLinks(now, cleanupBatchSize));
+            deleted.increment(chunk);
+            total += chunk;
+            if (chunk > 0) {
+                log.info("Deleted {} expired share links so far", total);
+            }
+        } while (chunk == cleanupBatchSize);
         
-        for (ShareLink link : expiredLinks) {
-            shareLinkRepository.delete(link);
-            log.info("Deleted expired share link with token: {}", link.getToken());
+        int purged = shareTokenRevocationList.purgeExpired();
+        if (purged > 0) {
+            log.info("Purged {} expired share token revocations", purged);
         }
     }
 }
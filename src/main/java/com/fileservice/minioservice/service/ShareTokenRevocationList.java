@@ -0,0 +1,104 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.SignedShareToken;
+import com.fileservice.minioservice.model.ShareTokenRevocation;
+import com.fileservice.minioservice.repository.ShareTokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory deny-list of revoked signed share tokens and deleted share links.
+ * Revocations are persisted in share_token_revocations and every node polls
+ * that table for new entries, so a revocation reaches all nodes within one
+ * refresh interval, well before a deleted link drops out of another node's
+ * {@link ShareLinkCache}. Entries are dropped once the token would have
+ * expired anyway.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShareTokenRevocationList {
+
+    /** Re-read a little behind the watermark to tolerate clock skew between nodes */
+    private static final Duration SKEW_ALLOWANCE = Duration.ofMinutes(1);
+
+    private final ShareTokenRevocationRepository revocationRepository;
+
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+    private volatile LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @PostConstruct
+    public void initialize() {
+        refresh();
+        log.info("Loaded {} share token revocations", revoked.size());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Persist a revocation and apply it locally once it is committed
+     */
+    public void revoke(SignedShareToken token, String username) {
+        revoke(token.getTokenId(), token.getFileId(), token.getExpiresAt(), username);
+    }
+
+    /**
+     * Persist a revocation of any share token, such as the token of a deleted
+     * share link. Inside a transaction the local deny-list is only updated
+     * after commit, so a rolled-back revocation never takes effect here.
+     */
+    public void revoke(String tokenId, Long fileId, LocalDateTime expiresAt, String username) {
+        revocationRepository.save(ShareTokenRevocation.builder()
+                .tokenId(tokenId)
+                .fileId(fileId)
+                .expiresAt(expiresAt)
+                .revokedBy(username)
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revoked.put(tokenId, expiresAt);
+                }
+            });
+        } else {
+            revoked.put(tokenId, expiresAt);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${share.revocation.refresh-interval-ms:10000}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ShareTokenRevocation> updates = revocationRepository.findByRevokedAtAfterAndExpiresAtAfter(
+                watermark.minus(SKEW_ALLOWANCE), now);
+        for (ShareTokenRevocation revocation : updates) {
+            revoked.put(revocation.getTokenId(), revocation.getExpiresAt());
+            if (revocation.getRevokedAt().isAfter(watermark)) {
+                watermark = revocation.getRevokedAt();
+            }
+        }
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+    }
+
+    /**
+     * Delete revocations for tokens that have expired on their own
+     */
+    @Transactional
+    public int purgeExpired() {
+        return revocationRepository.deleteExpired(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,125 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.SignedShareToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies self-contained share tokens of the form
+ * {@code s1.<payload>.<signature>}, where the payload carries the file ID,
+ * permission, expiry and a random token ID, and the signature is an
+ * HMAC-SHA256 over the encoded payload. Verification needs no database access.
+ */
+@Service
+@Slf4j
+public class SignedShareTokenService {
+
+    private static final String PREFIX = "s1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final int TOKEN_ID_BYTES = 12;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final SecureRandom random = new SecureRandom();
+
+    public SignedShareTokenService(@Value("${share.signing.key:}") String base64Key) {
+        if (base64Key == null || base64Key.isBlank()) {
+            this.key = null;
+            this.mac = null;
+            log.info("No share signing key configured; signed share links are disabled");
+            return;
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length < MIN_KEY_BYTES) {
+            throw new IllegalStateException("share.signing.key must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Whether a token has the signed format; says nothing about its validity
+     */
+    public boolean isSignedToken(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    /**
+     * Issue a signed token for a file
+     */
+    public String issue(Long fileId, String permission, LocalDateTime expiresAt) {
+        if (!isEnabled()) {
+            throw new IllegalArgumentException("Signed share links are not enabled");
+        }
+        byte[] tokenId = new byte[TOKEN_ID_BYTES];
+        random.nextBytes(tokenId);
+        long expiresAtEpoch = expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond();
+        String payload = String.join("|", fileId.toString(), permission, Long.toString(expiresAtEpoch), ENCODER.encodeToString(tokenId));
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return PREFIX + encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * Verify a token's signature and decode its claims.
+     * Returns empty for malformed or forged tokens; expiry is left to the caller.
+     */
+    public Optional<SignedShareToken> verify(String token) {
+        if (!isEnabled() || !isSignedToken(token)) {
+            return Optional.empty();
+        }
+        String[] parts = token.substring(PREFIX.length()).split("\\.");
+        if (parts.length != 2) {
+            return Optional.empty();
+        }
+        try {
+            byte[] signature = DECODER.decode(parts[1]);
+            if (!MessageDigest.isEqual(sign(parts[0]), signature)) {
+                return Optional.empty();
+            }
+            String[] claims = new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8).split("\\|");
+            if (claims.length != 4) {
+                return Optional.empty();
+            }
+            LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(claims[2])), ZoneId.systemDefault());
+            return Optional.of(new SignedShareToken(claims[3], Long.valueOf(claims[0]), claims[1], expiresAt));
+        } catch (IllegalArgumentException e) {
+            // Bad Base64 or numbers; NumberFormatException is an IllegalArgumentException
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return mac.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.StoredObject;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.fileservice.minioservice.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Finds drift between MinIO and the database by merge-diffing the bucket
+ * listing with the object names referenced by files and file_thumbnails, both
+ * read in byte order. The database side is read in keyset pages, each in its
+ * own short read-only transaction, so a long pass never holds a snapshot open.
+ * Objects without a row are orphans: an upload whose row
+ * was never saved. Rows without an object point at content that is gone, for
+ * example after a delete whose transaction rolled back.
+ * <p>
+ * Anything younger than the grace period is ignored so in-flight uploads and
+ * deletes are not flagged. In report mode drift is only logged and counted
+ * (reconcile.orphaned.objects, reconcile.orphaned.bytes, reconcile.missing.objects);
+ * in delete mode orphaned objects are also removed, in batches and at a
+ * throttled rate. Rows without an object are always only reported.
+ */
+@Service
+@Slf4j
+public class StorageReconciler {
+
+    static final String TASK_NAME = "storage-reconcile";
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final int RENEW_EVERY = 10_000;
+    private static final int ROW_PAGE_SIZE = 1000;
+
+    private final FileRepository fileRepository;
+    private final MinioService minioService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+    private final RateLimiter deleteRateLimiter;
+    private final String bucketName;
+    private final boolean deleteOrphans;
+    private final Duration gracePeriod;
+
+    public StorageReconciler(FileRepository fileRepository,
+                             MinioService minioService,
+                             SchedulerLeaseService schedulerLeaseService,
+                             MeterRegistry meterRegistry,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${minio.bucket-name}") String bucketName,
+                             @Value("${storage.reconcile.mode:report}") String mode,
+                             @Value("${storage.reconcile.grace-hours:24}") long graceHours,
+                             @Value("${storage.reconcile.max-deletes-per-second:50}") double maxDeletesPerSecond) {
+        this.fileRepository = fileRepository;
+        this.minioService = minioService;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.deleteRateLimiter = new RateLimiter(maxDeletesPerSecond);
+        this.bucketName = bucketName;
+        if (!"report".equalsIgnoreCase(mode) && !"delete".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException("storage.reconcile.mode must be report or delete");
+        }
+        this.deleteOrphans = "delete".equalsIgnoreCase(mode);
+        this.gracePeriod = Duration.ofHours(graceHours);
+    }
+
+    /**
+     * Run one reconciliation pass unless another node is already running one
+     */
+    @Scheduled(cron = "${storage.reconcile.cron:0 30 3 * * ?}")
+    public void reconcile() {
+        Optional<SchedulerLeaseService.Lease> lease = schedulerLeaseService.tryAcquireExclusive(TASK_NAME);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            LocalDateTime cutoff = LocalDateTime.now().minus(gracePeriod);
+            Report report;
+            try (Stream<Item> objects = minioService.listFiles()) {
+                report = diff(objects.iterator(), new RowPages(), cutoff, held);
+            }
+            log.info("Storage reconciliation finished: {} orphaned objects ({} bytes, {} deleted), {} missing objects",
+                    report.orphanedObjects, report.orphanedBytes, report.deletedObjects, report.missingObjects);
+        }
+    }
+
+    private Report diff(Iterator<Item> objects, Iterator<StoredObject> rows, LocalDateTime cutoff,
+                        SchedulerLeaseService.Lease lease) {
+        Report report = new Report();
+        List<String> pendingDeletes = new ArrayList<>();
+
+        Item object = nextObject(objects);
+        StoredObject row = rows.hasNext() ? rows.next() : null;
+        long steps = 0;
+        while (object != null || row != null) {
+            if (++steps % RENEW_EVERY == 0) {
+                lease.renew();
+            }
+            int cmp = object == null ? 1 : row == null ? -1 : compareKeys(object.objectName(), row.getName());
+            if (cmp < 0) {
+                if (lastModified(object).isBefore(cutoff)) {
+                    reportOrphan(object, report);
+                    if (deleteOrphans) {
+                        pendingDeletes.add(object.objectName());
+                        if (pendingDeletes.size() == DELETE_BATCH_SIZE) {
+                            report.deletedObjects += deleteBatch(pendingDeletes);
+                        }
+                    }
+                }
+                object = nextObject(objects);
+            } else if (cmp > 0) {
+                if (row.getCreatedAt().isBefore(cutoff)) {
+                    log.warn("Object {} is referenced in the database but missing from MinIO", row.getName());
+                    meterRegistry.counter("reconcile.missing.objects").increment();
+                    report.missingObjects++;
+                }
+                row = rows.hasNext() ? rows.next() : null;
+            } else {
+                // Matched; skip further rows referencing the same object
+                String name = row.getName();
+                do {
+                    row = rows.hasNext() ? rows.next() : null;
+                } while (row != null && row.getName().equals(name));
+                object = nextObject(objects);
+            }
+        }
+
+        if (!pendingDeletes.isEmpty()) {
+            report.deletedObjects += deleteBatch(pendingDeletes);
+        }
+        return report;
+    }
+
+    private void reportOrphan(Item object, Report report) {
+        log.warn("Object {} ({} bytes) has no database row", object.objectName(), object.size());
+        meterRegistry.counter("reconcile.orphaned.objects").increment();
+        meterRegistry.counter("reconcile.orphaned.bytes").increment(object.size());
+        report.orphanedObjects++;
+        report.orphanedBytes += object.size();
+    }
+
+    private int deleteBatch(List<String> objectNames) {
+        deleteRateLimiter.acquire(objectNames.size());
+        int deleted = objectNames.size() - minioService.deleteFiles(List.copyOf(objectNames)).size();
+        objectNames.clear();
+        return deleted;
+    }
+
+    private Item nextObject(Iterator<Item> objects) {
+        while (objects.hasNext()) {
+            Item item = objects.next();
+            if (!item.isDir()) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private LocalDateTime lastModified(Item object) {
+        return LocalDateTime.ofInstant(object.lastModified().toInstant(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Compare keys by code point, which matches the UTF-8 byte order used by
+     * MinIO listings and COLLATE "C" (String.compareTo uses UTF-16 units and differs)
+     */
+    static int compareKeys(String a, String b) {
+        Iterator<Integer> left = a.codePoints().iterator();
+        Iterator<Integer> right = b.codePoints().iterator();
+        while (left.hasNext() && right.hasNext()) {
+            int cmp = Integer.compare(left.next(), right.next());
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Boolean.compare(left.hasNext(), right.hasNext());
+    }
+
+    /**
+     * Iterates over the referenced object names, reading the next page only
+     * when the previous one is used up
+     */
+    private class RowPages implements Iterator<StoredObject> {
+
+        private Iterator<StoredObject> page = Collections.emptyIterator();
+        private String lastName = "";
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !exhausted) {
+                List<StoredObject> rows = readOnlyTransaction.execute(status ->
+                        fileRepository.findObjectNamesPage(bucketName, lastName, ROW_PAGE_SIZE));
+                exhausted = rows.size() < ROW_PAGE_SIZE;
+                if (!rows.isEmpty()) {
+                    lastName = rows.get(rows.size() - 1).getName();
+                }
+                page = rows.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public StoredObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
+    private static class Report {
+        long orphanedObjects;
+        long orphanedBytes;
+        long deletedObjects;
+        long missingObjects;
+    }
+}
@@ -0,0 +1,98 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.StorageUsageDto;
+import com.fileservice.minioservice.exception.FileServiceException;
+import com.fileservice.minioservice.model.UserStorageUsage;
+import com.fileservice.minioservice.repository.UserStorageUsageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageUsageService {
+
+    private final UserStorageUsageRepository usageRepository;
+
+    // 0 means unlimited
+    @Value("${file.quota.max-bytes-per-user:0}")
+    private long maxBytesPerUser;
+
+    @Value("${file.quota.max-files-per-user:0}")
+    private long maxFilesPerUser;
+
+    /**
+     * Get the current storage usage and limits for a user
+     */
+    @Transactional(readOnly = true)
+    public StorageUsageDto getUsage(String username) {
+        Optional<UserStorageUsage> usage = usageRepository.findById(username);
+        
+        return StorageUsageDto.builder()
+                .username(username)
+                .usedBytes(usage.map(UserStorageUsage::getUsedBytes).orElse(0L))
+                .objectCount(usage.map(UserStorageUsage::getObjectCount).orElse(0L))
+                .maxBytes(maxBytesPerUser > 0 ? maxBytesPerUser : null)
+                .maxObjects(maxFilesPerUser > 0 ? maxFilesPerUser : null)
+                .build();
+    }
+
+    /**
+     * Reject an upload early if it would not fit in the user's quota.
+     * This is a cheap pre-check; {@link #recordUpload} enforces the limit atomically.
+     */
+    @Transactional(readOnly = true)
+    public void checkQuota(String username, long bytes) {
+        if (maxBytesPerUser <= 0 && maxFilesPerUser <= 0) {
+            return;
+        }
+        
+        StorageUsageDto usage = getUsage(username);
+        if (exceedsQuota(usage.getUsedBytes() + bytes, usage.getObjectCount() + 1)) {
+            throw new FileServiceException.QuotaExceededException(quotaMessage(username));
+        }
+    }
+
+    /**
+     * Add an uploaded object, including its thumbnails, to the user's usage in the caller's transaction
+     */
+    @Transactional
+    public void recordUpload(String username, long bytes) {
+        if (exceedsQuota(bytes, 1)) {
+            throw new FileServiceException.QuotaExceededException(quotaMessage(username));
+        }
+        
+        int updated = usageRepository.reserve(username, bytes, limitOrMax(maxBytesPerUser), limitOrMax(maxFilesPerUser));
+        if (updated == 0) {
+            throw new FileServiceException.QuotaExceededException(quotaMessage(username));
+        }
+    }
+
+    /**
+     * Remove deleted objects from the user's usage in the caller's transaction
+     */
+    @Transactional
+    public void recordDeletion(String username, long bytes, long objects) {
+        if (usageRepository.release(username, bytes, objects) == 0) {
+            log.warn("No storage usage row found for user {} while releasing {} bytes", username, bytes);
+        }
+    }
+
+    private boolean exceedsQuota(long bytes, long objects) {
+        return (maxBytesPerUser > 0 && bytes > maxBytesPerUser)
+                || (maxFilesPerUser > 0 && objects > maxFilesPerUser);
+    }
+
+    private long limitOrMax(long limit) {
+        return limit > 0 ? limit : Long.MAX_VALUE;
+    }
+
+    private String quotaMessage(String username) {
+        return "Storage quota exceeded for user: " + username;
+    }
+}
@@ -0,0 +1,50 @@
+package com.fileservice.minioservice.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal token-bucket rate limiter. Up to one second's worth of permits can be
+ * taken as a burst; larger requests are granted and paid back by waiting.
+ * A rate of zero or less disables limiting.
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private double available;
+    private long lastRefillNanos;
+
+    public RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.available = permitsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take permits, blocking until the rate allows them.
+     * Returns false if the thread was interrupted while waiting.
+     */
+    public boolean acquire(int permits) {
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            available = Math.min(permitsPerSecond, available + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+            lastRefillNanos = now;
+            available -= permits;
+            waitNanos = available < 0 ? (long) (-available / permitsPerSecond * TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,3 @@
+-- The continuous expiry engine pages through due files by (expires_at, id)
+DROP INDEX IF EXISTS idx_files_expires_at;
+CREATE INDEX idx_files_expires_at ON files (expires_at, id);
@@ -0,0 +1,10 @@
+CREATE TABLE object_deletion_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    object_name VARCHAR(255) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- The worker claims due entries in (next_attempt_at, id) order
+CREATE INDEX idx_object_deletion_outbox_next_attempt_at ON object_deletion_outbox (next_attempt_at, id);
@@ -0,0 +1,2 @@
+-- Days after which MinIO's lifecycle rules expire the file's objects; null when the service deletes them
+ALTER TABLE files ADD COLUMN expiry_class_days INTEGER;
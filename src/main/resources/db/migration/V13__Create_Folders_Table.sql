@@ -0,0 +1,29 @@
+-- Folders form a tree. path is the materialized path of the folder's ancestors
+-- ('/' for a root folder, '/1/5/' for a child of folder 5 under folder 1), so a
+-- subtree is one prefix range and moving it is one UPDATE.
+CREATE TABLE folders (
+    id BIGSERIAL PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    parent_id BIGINT,
+    path VARCHAR(2048) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_folders_parent FOREIGN KEY (parent_id) REFERENCES folders (id)
+);
+
+-- Direct children in keyset order (parent_id = ? AND id > ? ORDER BY id)
+CREATE INDEX idx_folders_parent_id_id ON folders (parent_id, id);
+-- A user's root folders in keyset order
+CREATE INDEX idx_folders_owner_root ON folders (owner, id) WHERE parent_id IS NULL;
+-- Subtree prefix scans and keyset order; the C collation lets LIKE 'prefix%' use the index
+CREATE INDEX idx_folders_path_id ON folders (path COLLATE "C", id);
+
+-- Sibling names are unique
+CREATE UNIQUE INDEX uq_folders_parent_name ON folders (parent_id, name) WHERE parent_id IS NOT NULL;
+CREATE UNIQUE INDEX uq_folders_owner_root_name ON folders (owner, name) WHERE parent_id IS NULL;
+
+ALTER TABLE files ADD COLUMN folder_id BIGINT;
+ALTER TABLE files ADD CONSTRAINT fk_files_folder FOREIGN KEY (folder_id) REFERENCES folders (id) ON DELETE SET NULL;
+-- Files of a folder in keyset order
+CREATE INDEX idx_files_folder_id_id ON files (folder_id, id);
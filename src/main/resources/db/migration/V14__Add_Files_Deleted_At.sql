@@ -0,0 +1,7 @@
+-- Set when a file is moved to the trash; null for live files
+ALTER TABLE files ADD COLUMN deleted_at TIMESTAMP;
+
+-- A user's trash in (deleted_at, id) keyset order, read backwards for newest first
+CREATE INDEX idx_files_trash_owner_deleted_at ON files (owner, deleted_at, id) WHERE deleted_at IS NOT NULL;
+-- The purger pages through trashed files by (deleted_at, id)
+CREATE INDEX idx_files_deleted_at ON files (deleted_at, id) WHERE deleted_at IS NOT NULL;
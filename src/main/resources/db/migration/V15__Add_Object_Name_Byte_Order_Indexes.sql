@@ -0,0 +1,3 @@
+-- The storage reconciler pages through referenced object names in byte order
+CREATE INDEX idx_files_bucket_object_name_c ON files (bucket_name, object_name COLLATE "C");
+CREATE INDEX idx_file_thumbnails_object_name_c ON file_thumbnails ((substring(thumbnail_path FROM '[^/]*$') COLLATE "C"));
@@ -0,0 +1,2 @@
+-- A user's live files in keyset (id) order for the paged file listing
+CREATE INDEX idx_files_owner_id ON files (owner, id) WHERE deleted_at IS NULL;
@@ -0,0 +1,2 @@
+-- Startup reads the distinct expiry classes still in use to keep their lifecycle rules
+CREATE INDEX idx_files_expiry_class_days ON files (expiry_class_days) WHERE expiry_class_days IS NOT NULL;
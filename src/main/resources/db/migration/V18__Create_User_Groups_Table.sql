@@ -0,0 +1,7 @@
+-- One row per group, so concurrent creators of the same group cannot both become
+-- its owner. Membership itself stays in OpenFGA.
+CREATE TABLE user_groups (
+    group_id VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
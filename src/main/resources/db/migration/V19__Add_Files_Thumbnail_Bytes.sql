@@ -0,0 +1,2 @@
+-- Total size of a file's thumbnail objects, counted against the owner's quota with the file
+ALTER TABLE files ADD COLUMN thumbnail_bytes BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- Owner-scoped substring search: the owner column narrows the posting lists to a
+-- single user's files and the trigram opclass serves ILIKE '%x%' and similarity().
+CREATE INDEX idx_files_owner_filename_trgm ON files USING GIN (owner, filename gin_trgm_ops);
@@ -0,0 +1,12 @@
+CREATE TABLE user_storage_usage (
+    username VARCHAR(100) PRIMARY KEY,
+    used_bytes BIGINT NOT NULL DEFAULT 0,
+    object_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Seed counters from existing rows; from here on they are maintained incrementally
+INSERT INTO user_storage_usage (username, used_bytes, object_count, updated_at)
+SELECT owner, SUM(size), COUNT(*), CURRENT_TIMESTAMP
+FROM files
+GROUP BY owner;
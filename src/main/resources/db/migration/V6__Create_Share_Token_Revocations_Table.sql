@@ -0,0 +1,11 @@
+CREATE TABLE share_token_revocations (
+    token_id VARCHAR(64) PRIMARY KEY,
+    file_id BIGINT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_by VARCHAR(100) NOT NULL,
+    revoked_at TIMESTAMP NOT NULL
+);
+
+-- Nodes poll for revocations newer than the last one they have seen
+CREATE INDEX idx_share_token_revocations_revoked_at ON share_token_revocations (revoked_at);
+CREATE INDEX idx_share_token_revocations_expires_at ON share_token_revocations (expires_at);
@@ -0,0 +1,5 @@
+ALTER TABLE share_links ADD COLUMN max_downloads INTEGER;
+ALTER TABLE share_links ADD COLUMN download_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE share_links ADD COLUMN access_count BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE share_links ADD CONSTRAINT chk_share_links_max_downloads CHECK (max_downloads IS NULL OR max_downloads > 0);
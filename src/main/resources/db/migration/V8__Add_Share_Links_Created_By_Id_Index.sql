@@ -0,0 +1,3 @@
+-- Serves keyset pagination of a user's share links (created_by = ? AND id < ? ORDER BY id DESC)
+DROP INDEX IF EXISTS idx_share_links_created_by;
+CREATE INDEX idx_share_links_created_by_id ON share_links (created_by, id);
@@ -0,0 +1,7 @@
+CREATE TABLE scheduler_leases (
+    task_name VARCHAR(100) NOT NULL,
+    node_id VARCHAR(255) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL,
+    leased_until TIMESTAMP NOT NULL,
+    PRIMARY KEY (task_name, node_id)
+);
@@ -0,0 +1,290 @@
+package com.fileservice.minioservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String TEST_USERNAME = "testuser";
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    private ReplicaProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ReplicaProperties();
+        properties.setMaxLagMs(2000);
+        properties.setReadYourWritesWindowMs(60_000);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadOnlyTransaction_RoutesToReplica() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object first = dataSource.determineCurrentLookupKey();
+        Object second = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertEquals(List.of("replica-1", "replica-2"), List.of(first, second));
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadWriteTransaction_RoutesToPrimary() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadAfterOwnWrite_PinnedToPrimary() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate(TEST_USERNAME);
+        committedWrite(dataSource);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadDuringOwnUncommittedWrite_RoutesToReplica() {
+        // Arrange: the window starts at commit, not when the write connection is taken
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate(TEST_USERNAME);
+        TransactionSynchronizationManager.initSynchronization();
+        dataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object beforeCommit = dataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Object afterCommit = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, beforeCommit);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, afterCommit);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadAfterRolledBackWrite_RoutesToReplica() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate(TEST_USERNAME);
+        TransactionSynchronizationManager.initSynchronization();
+        dataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadAfterAnonymousWrite_RoutesToReplica() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", List.of(new SimpleGrantedAuthority("ROLE_ANONYMOUS"))));
+        committedWrite(dataSource);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_NoTransaction_RoutesToPrimaryWithoutPinning() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate(TEST_USERNAME);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        // Act
+        Object outside = dataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Object readOnly = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, outside);
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, readOnly);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadAfterAnotherUsersWrite_RoutesToReplica() {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate("someone-else");
+        committedWrite(dataSource);
+        authenticate(TEST_USERNAME);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadAfterWindowElapsed_RoutesToReplica() throws InterruptedException {
+        // Arrange
+        properties.setReadYourWritesWindowMs(1);
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        authenticate(TEST_USERNAME);
+        committedWrite(dataSource);
+        Thread.sleep(50);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Object key = dataSource.determineCurrentLookupKey();
+
+        // Assert
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void checkReplicaLag_LagAboveThreshold_RemovesReplica() throws SQLException {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        replicaLag(replica1, 5000);
+        replicaLag(replica2, 100);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        dataSource.checkReplicaLag();
+
+        // Assert
+        assertEquals("replica-2", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-2", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void checkReplicaLag_AllReplicasUnhealthy_RoutesToPrimary() throws SQLException {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        replicaLag(replica1, 5000);
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        dataSource.checkReplicaLag();
+
+        // Assert
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void checkReplicaLag_LagBackWithinThreshold_RestoresReplica() throws SQLException {
+        // Arrange
+        ReplicaRoutingDataSource dataSource = newDataSource();
+        replicaLag(replica1, 5000);
+        replicaLag(replica2, 100);
+        dataSource.checkReplicaLag();
+        replicaLag(replica1, 100);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        dataSource.checkReplicaLag();
+
+        // Assert
+        assertEquals(List.of("replica-1", "replica-2"),
+                List.of(dataSource.determineCurrentLookupKey(), dataSource.determineCurrentLookupKey()));
+    }
+
+    private ReplicaRoutingDataSource newDataSource() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        return new ReplicaRoutingDataSource(primary, replicas, properties);
+    }
+
+    /**
+     * Take a write connection in a transaction that then commits
+     */
+    private void committedWrite(ReplicaRoutingDataSource dataSource) {
+        TransactionSynchronizationManager.initSynchronization();
+        dataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private void replicaLag(DataSource replica, long lagMs) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMs);
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+}
@@ -1,20 +1,34 @@
 package com.fileservice.minioservice.service;
 
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.RelationWriteResult;
+import com.fileservice.minioservice.exception.FileServiceException;
 import com.fileservice.minioservice.model.FgaRelation;
+import com.fileservice.minioservice.model.UserGroup;
+import com.fileservice.minioservice.repository.UserGroupRepository;
 import dev.openfga.sdk.api.client.OpenFgaClient;
 import dev.openfga.sdk.api.client.model.*;
+import dev.openfga.sdk.api.configuration.ClientReadOptions;
 import dev.openfga.sdk.api.model.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import dev.openfga.sdk.errors.ApiException;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.net.ConnectException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -26,7 +40,9 @@ public class AuthorizationServiceTest {
     @Mock
     private OpenFgaClient openFgaClient;
 
-    @InjectMocks
+    @Mock
+    private UserGroupRepository userGroupRepository;
+
     private AuthorizationService authorizationService;
 
     private final String TEST_USERNAME = "testuser";
@@ -34,6 +50,14 @@ public class AuthorizationServiceTest {
 
     @BeforeEach
     void setUp() {
+        authorizationService = spy(newService("deny", 3));
+    }
+
+    private AuthorizationService newService(String failureMode, int failureThreshold) {
+        return new AuthorizationService(openFgaClient, new PermissionDecisionCache(new SimpleMeterRegistry(), 1000, 60),
+                new LocalTupleIndex(openFgaClient, new SimpleMeterRegistry(), false, 5000, 200),
+                new ReadableFileIdsCache(new SimpleMeterRegistry(), 1000, 30), userGroupRepository,
+                Runnable::run, new SimpleMeterRegistry(), 200, 50, 4, failureThreshold, 60_000, failureMode, 100);
     }
 
     @Test
@@ -70,6 +94,197 @@ public class AuthorizationServiceTest {
         verify(openFgaClient).check(any(ClientCheckRequest.class));
     }
 
+    @Test
+    void checkPermission_RepeatedCheck_ServedFromCache() throws Exception {
+        // Arrange
+        CheckResponse checkResponse = new CheckResponse();
+        checkResponse.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(CompletableFuture.completedFuture(checkResponse));
+
+        // Act
+        authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+        boolean result = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+
+        // Assert
+        assertTrue(result);
+        verify(openFgaClient, times(1)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void checkPermission_Error_DeniesWithoutCaching() throws Exception {
+        // Arrange
+        CheckResponse checkResponse = new CheckResponse();
+        checkResponse.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(checkResponse));
+
+        // Act
+        boolean first = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+        boolean second = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+
+        // Assert
+        assertFalse(first);
+        assertTrue(second);
+    }
+
+    @Test
+    void checkPermission_Timeout_Denies() {
+        // Arrange
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(new CompletableFuture<>());
+
+        // Act
+        boolean result = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void checkPermission_NoPermitFreed_ThrowsOverloadedEvenInDenyMode() {
+        // Arrange: all 4 permits are held by checks OpenFGA never answers
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(new CompletableFuture<>());
+        for (int i = 0; i < 4; i++) {
+            authorizationService.canReadFileAsync("held-" + i, TEST_USERNAME);
+        }
+
+        // Act & Assert
+        assertThrows(FileServiceException.AuthorizationOverloadedException.class,
+                () -> authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME));
+    }
+
+    @Test
+    void checkPermission_PermitFreedWhileWaiting_Answers() {
+        // Arrange: all 4 permits are held, and one of them is released shortly
+        CompletableFuture<CheckResponse> pending = new CompletableFuture<>();
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(pending, new CompletableFuture<>(), new CompletableFuture<>(), new CompletableFuture<>())
+                .thenReturn(CompletableFuture.completedFuture(allowed));
+        for (int i = 0; i < 4; i++) {
+            authorizationService.canReadFileAsync("held-" + i, TEST_USERNAME);
+        }
+        CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS).execute(() -> pending.complete(allowed));
+
+        // Act
+        boolean result = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+
+        // Assert
+        assertTrue(result);
+    }
+
+    @Test
+    void checkPermission_FailureModeError_Throws() {
+        // Arrange
+        AuthorizationService strictService = newService("error", 3);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("unavailable")));
+
+        // Act & Assert
+        assertThrows(FileServiceException.AuthorizationUnavailableException.class,
+                () -> strictService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME));
+    }
+
+    @Test
+    void checkPermission_RepeatedFailures_OpenCircuit() {
+        // Arrange
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")));
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            authorizationService.checkPermission("file", "file-" + i, "reader", TEST_USERNAME);
+        }
+
+        // Assert: after three failures further checks are refused without calling OpenFGA
+        verify(openFgaClient, times(3)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void checkPermission_RejectedRequests_DoNotOpenCircuit() {
+        // Arrange
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new ApiException(400, "invalid tuple")));
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            authorizationService.checkPermission("file", "file-" + i, "reader", TEST_USERNAME);
+        }
+
+        // Assert
+        verify(openFgaClient, times(5)).check(any(ClientCheckRequest.class));
+        assertFalse(AuthorizationService.isOutage(new ApiException(409, "conflict")));
+        assertTrue(AuthorizationService.isOutage(new CompletionException(new ApiException(503, "unavailable"))));
+    }
+
+    @Test
+    void checkPermission_TimedOutCalls_HoldPermitsUntilTheyFinish() {
+        // Arrange: four permits, breaker disabled
+        AuthorizationService limitedService = newService("deny", 0);
+        CompletableFuture<CheckResponse> pending = new CompletableFuture<>();
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(pending, pending, pending, pending)
+                .thenReturn(CompletableFuture.completedFuture(allowed));
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertFalse(limitedService.checkPermission("file", "file-" + i, "reader", TEST_USERNAME));
+        }
+        assertThrows(FileServiceException.AuthorizationOverloadedException.class,
+                () -> limitedService.checkPermission("file", "file-4", "reader", TEST_USERNAME));
+        pending.complete(allowed);
+        boolean afterwards = limitedService.checkPermission("file", "file-5", "reader", TEST_USERNAME);
+
+        // Assert: the fifth check was refused as overloaded without reaching OpenFGA
+        assertTrue(afterwards);
+        verify(openFgaClient, times(5)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void checkPermissionAsync_RunsChecksConcurrently() {
+        // Arrange
+        CompletableFuture<CheckResponse> pending = new CompletableFuture<>();
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(pending);
+
+        // Act
+        CompletableFuture<Boolean> first = authorizationService.canReadFileAsync("1", TEST_USERNAME);
+        CompletableFuture<Boolean> second = authorizationService.canWriteFileAsync("1", TEST_USERNAME);
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        pending.complete(allowed);
+
+        // Assert
+        verify(openFgaClient, times(2)).check(any(ClientCheckRequest.class));
+        assertTrue(first.join());
+        assertTrue(second.join());
+    }
+
+    @Test
+    void removeRelation_InvalidatesCachedDecisions() throws Exception {
+        // Arrange
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        CheckResponse denied = new CheckResponse();
+        denied.setAllowed(false);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(allowed))
+                .thenReturn(CompletableFuture.completedFuture(denied));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+
+        // Act
+        boolean before = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+        authorizationService.removeRelation("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+        boolean after = authorizationService.checkPermission("file", TEST_FILE_ID, "reader", TEST_USERNAME);
+
+        // Assert
+        assertTrue(before);
+        assertFalse(after);
+        verify(openFgaClient, times(2)).check(any(ClientCheckRequest.class));
+    }
+
     @Test
     void addRelation_Success() throws Exception {
         // Arrange
@@ -98,6 +313,24 @@ public class AuthorizationServiceTest {
         verify(openFgaClient).write(any(ClientWriteRequest.class));
     }
 
+    @Test
+    void checkPermission_FreshLocalIndex_SkipsOpenFga() {
+        // Arrange
+        LocalTupleIndex localTupleIndex = mock(LocalTupleIndex.class);
+        when(localTupleIndex.check("user:" + TEST_USERNAME, "reader", "file:" + TEST_FILE_ID)).thenReturn(true);
+        AuthorizationService service = new AuthorizationService(openFgaClient,
+                new PermissionDecisionCache(new SimpleMeterRegistry(), 1000, 60), localTupleIndex,
+                new ReadableFileIdsCache(new SimpleMeterRegistry(), 1000, 30), userGroupRepository,
+                Runnable::run, new SimpleMeterRegistry(), 200, 50, 4, 3, 60_000, "deny", 100);
+
+        // Act
+        boolean result = service.canReadFile(TEST_FILE_ID, TEST_USERNAME);
+
+        // Assert
+        assertTrue(result);
+        verifyNoInteractions(openFgaClient);
+    }
+
     @Test
     void getRelationsForObject_Success() throws Exception {
         // Arrange
@@ -112,7 +345,7 @@ public class AuthorizationServiceTest {
         readResponse.setTuples(Collections.singletonList(tuple));
         
         CompletableFuture<ReadResponse> future = CompletableFuture.completedFuture(readResponse);
-        when(openFgaClient.read(any(ClientReadRequest.class))).thenReturn(future);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class))).thenReturn(future);
 
         // Act
         List<FgaRelation> result = authorizationService.getRelationsForObject("file", TEST_FILE_ID);
@@ -123,7 +356,136 @@ public class AuthorizationServiceTest {
         assertEquals("file:123", result.get(0).getObject());
         assertEquals("reader", result.get(0).getRelation());
         assertEquals("user:testuser", result.get(0).getUser());
-        verify(openFgaClient).read(any(ClientReadRequest.class));
+        verify(openFgaClient).read(any(ClientReadRequest.class), any(ClientReadOptions.class));
+    }
+
+    @Test
+    void getRelationsForUser_FollowsContinuationTokens() {
+        // Arrange
+        when(openFgaClient.read(any(ClientReadRequest.class), argThat(options -> options != null && options.getContinuationToken() == null)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse("file:1", "page-2")));
+        when(openFgaClient.read(any(ClientReadRequest.class), argThat(options -> options != null && "page-2".equals(options.getContinuationToken()))))
+                .thenReturn(CompletableFuture.completedFuture(readResponse("file:2", "")));
+
+        // Act
+        List<FgaRelation> result = authorizationService.getRelationsForUser(TEST_USERNAME);
+
+        // Assert
+        assertEquals(List.of("file:1", "file:2"), result.stream().map(FgaRelation::getObject).toList());
+        verify(openFgaClient, times(2)).read(argThat(request -> "user:testuser".equals(request.getUser())
+                && "file:".equals(request.getObject())), any(ClientReadOptions.class));
+    }
+
+    @Test
+    void streamRelationsForUser_ReadsPagesLazily() {
+        // Arrange
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse("file:1", "page-2")));
+
+        // Act
+        List<FgaRelation> first = authorizationService.streamRelationsForUser(TEST_USERNAME).limit(1).toList();
+
+        // Assert
+        assertEquals(1, first.size());
+        verify(openFgaClient, times(1)).read(any(ClientReadRequest.class), any(ClientReadOptions.class));
+    }
+
+    @Test
+    void getRelationsForUserPage_ReturnsNextCursor() {
+        // Arrange
+        when(openFgaClient.read(any(ClientReadRequest.class), argThat(options -> options != null
+                && "cursor-1".equals(options.getContinuationToken()) && options.getPageSize() == 10)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse("file:1", "cursor-2")));
+
+        // Act
+        CursorPage<FgaRelation> page = authorizationService.getRelationsForUserPage(TEST_USERNAME, "cursor-1", 10);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals("cursor-2", page.getNextCursor());
+    }
+
+    @Test
+    void getRelationsPage_SizeBelowOne_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+                () -> authorizationService.getRelationsForObjectPageAsync(AuthorizationService.FILE_TYPE, TEST_FILE_ID, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> authorizationService.getRelationsForUserPage(TEST_USERNAME, null, -1));
+        verifyNoInteractions(openFgaClient);
+    }
+
+    @Test
+    void getReadableFileIds_FollowsGroupsDirectoriesAndEveryPage() {
+        // Arrange: file:1 and file:2 are granted directly over two pages, directory:10 through a
+        // group; directory:10 holds file:3 and directory:11, which holds file:4 and points back at 10
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class))).thenAnswer(invocation -> {
+            ClientReadRequest request = invocation.getArgument(0);
+            ClientReadOptions options = invocation.getArgument(1);
+            String key = request.getUser() + " " + request.getObject();
+            ReadResponse response = switch (key) {
+                case "user:testuser group:" -> readResponse("group:team", null);
+                case "user:testuser file:" -> options.getContinuationToken() == null
+                        ? readResponse("file:1", "page-2")
+                        : readResponse("file:2", "");
+                case "group:team#member directory:", "directory:11 directory:" -> readResponse("directory:10", null);
+                case "directory:10 file:" -> readResponse("file:3", null);
+                case "directory:10 directory:" -> readResponse("directory:11", null);
+                case "directory:11 file:" -> readResponse("file:4", null);
+                default -> emptyReadResponse();
+            };
+            return CompletableFuture.completedFuture(response);
+        });
+
+        // Act
+        Set<Long> fileIds = authorizationService.getReadableFileIds(TEST_USERNAME);
+
+        // Assert
+        assertEquals(Set.of(1L, 2L, 3L, 4L), fileIds);
+    }
+
+    @Test
+    void getReadableFileIds_SecondPage_ServedFromCache() {
+        // Arrange
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(emptyReadResponse()));
+
+        // Act
+        authorizationService.getReadableFileIds(TEST_USERNAME);
+        authorizationService.getReadableFileIds(TEST_USERNAME);
+
+        // Assert: one group read plus a file and a directory read for the user, once
+        verify(openFgaClient, times(3)).read(any(ClientReadRequest.class), any(ClientReadOptions.class));
+    }
+
+    @Test
+    void getReadableFileIds_AfterReaderGrant_WalksAgain() {
+        // Arrange
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(emptyReadResponse()));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+        authorizationService.getReadableFileIds(TEST_USERNAME);
+
+        // Act
+        authorizationService.grantFilePermissions(List.of(TEST_FILE_ID), List.of(TEST_USERNAME), List.of("READ"));
+        authorizationService.getReadableFileIds(TEST_USERNAME);
+
+        // Assert
+        verify(openFgaClient, times(6)).read(any(ClientReadRequest.class), any(ClientReadOptions.class));
+    }
+
+    private ReadResponse emptyReadResponse() {
+        ReadResponse readResponse = new ReadResponse();
+        readResponse.setTuples(List.of());
+        return readResponse;
+    }
+
+    private ReadResponse readResponse(String object, String continuationToken) {
+        Tuple tuple = new Tuple();
+        tuple.setKey(new TupleKey().object(object).relation("reader").user("user:" + TEST_USERNAME));
+        ReadResponse readResponse = new ReadResponse();
+        readResponse.setTuples(List.of(tuple));
+        readResponse.setContinuationToken(continuationToken);
+        return readResponse;
     }
 
     @Test
@@ -165,12 +527,234 @@ public class AuthorizationServiceTest {
     @Test
     void initializeFileOwner_Success() {
         // Arrange
-        doNothing().when(authorizationService).addRelation(anyString(), anyString(), anyString(), anyString());
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
 
         // Act
         authorizationService.initializeFileOwner(TEST_FILE_ID, TEST_USERNAME);
 
         // Assert
-        verify(authorizationService, times(4)).addRelation(anyString(), anyString(), anyString(), anyString());
+        ArgumentCaptor<ClientWriteRequest> captor = ArgumentCaptor.forClass(ClientWriteRequest.class);
+        verify(openFgaClient, times(1)).write(captor.capture());
+        assertEquals(4, captor.getValue().getWrites().size());
+        assertNull(captor.getValue().getDeletes());
+    }
+
+    @Test
+    void grantFilePermissions_ChunksToTupleLimit() {
+        // Arrange
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+        List<String> usernames = IntStream.range(0, 30).mapToObj(i -> "user" + i).toList();
+
+        // Act
+        authorizationService.grantFilePermissions(List.of("1", "2"), usernames, Set.of("READ", "WRITE", "UNKNOWN"));
+
+        // Assert
+        ArgumentCaptor<ClientWriteRequest> captor = ArgumentCaptor.forClass(ClientWriteRequest.class);
+        verify(openFgaClient, times(2)).write(captor.capture());
+        assertEquals(100, captor.getAllValues().get(0).getWrites().size());
+        assertEquals(20, captor.getAllValues().get(1).getWrites().size());
+    }
+
+    @Test
+    void grantFilePermissions_ExistingGrant_AppliesTheRestAndReportsIt() {
+        // Arrange: OpenFGA rejects any request that writes the tuple user1 already has
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenAnswer(invocation -> {
+            ClientWriteRequest request = invocation.getArgument(0);
+            boolean duplicate = request.getWrites().stream()
+                    .anyMatch(change -> change.getTupleKey().getUser().equals("user:user1"));
+            return duplicate
+                    ? CompletableFuture.failedFuture(new ApiException(400, "tuple already exists"))
+                    : CompletableFuture.completedFuture(new WriteResponse());
+        });
+
+        // Act
+        RelationWriteResult result = authorizationService.grantFilePermissions(
+                List.of(TEST_FILE_ID), List.of("user0", "user1", "user2"), Set.of("READ"));
+
+        // Assert
+        assertEquals(2, result.getWritten());
+        assertEquals(1, result.getRejectedWrites().size());
+        assertEquals("user:user1", result.getRejectedWrites().get(0).getUser());
+        verify(openFgaClient, times(4)).write(any(ClientWriteRequest.class));
+    }
+
+    @Test
+    void grantFilePermissions_OutageMidBatch_Throws() {
+        // Arrange
+        when(openFgaClient.write(any(ClientWriteRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new ApiException(503, "unavailable")));
+
+        // Act & Assert
+        assertThrows(FileServiceException.class, () -> authorizationService.grantFilePermissions(
+                List.of(TEST_FILE_ID), List.of("user0", "user1"), Set.of("READ")));
+        verify(openFgaClient, times(1)).write(any(ClientWriteRequest.class));
+    }
+
+    @Test
+    void revokeFilePermissions_SendsDeletes() {
+        // Arrange
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+
+        // Act
+        authorizationService.revokeFilePermissions(List.of(TEST_FILE_ID), List.of(TEST_USERNAME), Set.of("READ", "DELETE"));
+
+        // Assert
+        ArgumentCaptor<ClientWriteRequest> captor = ArgumentCaptor.forClass(ClientWriteRequest.class);
+        verify(openFgaClient).write(captor.capture());
+        assertNull(captor.getValue().getWrites());
+        assertEquals(2, captor.getValue().getDeletes().size());
+        assertEquals(TupleOperation.DELETE, captor.getValue().getDeletes().get(0).getOperation());
+    }
+
+    @Test
+    void grantPermissions_ToGroup_WritesOneTuplePerFileAndPermission() {
+        // Arrange
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+
+        // Act
+        authorizationService.grantPermissions(AuthorizationService.FILE_TYPE, List.of("1", "2"),
+                List.of(AuthorizationService.groupSubject("team-a")), Set.of("READ"));
+
+        // Assert
+        ArgumentCaptor<ClientWriteRequest> captor = ArgumentCaptor.forClass(ClientWriteRequest.class);
+        verify(openFgaClient).write(captor.capture());
+        assertEquals(2, captor.getValue().getWrites().size());
+        assertEquals("group:team-a#member", captor.getValue().getWrites().get(0).getTupleKey().getUser());
+    }
+
+    @Test
+    void groupSubject_InvalidId_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> AuthorizationService.groupSubject("team#member"));
+        assertThrows(IllegalArgumentException.class, () -> AuthorizationService.groupSubject(""));
+    }
+
+    @Test
+    void addGroupMembers_InvalidatesAllCachedDecisions() {
+        // Arrange
+        CheckResponse denied = new CheckResponse();
+        denied.setAllowed(false);
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(denied))
+                .thenReturn(CompletableFuture.completedFuture(allowed));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+        assertFalse(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+
+        // Act
+        authorizationService.addGroupMembers("team-a", List.of(TEST_USERNAME));
+
+        // Assert
+        assertTrue(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+        verify(openFgaClient, times(2)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void setParentDirectory_NewDirectory_KeepsOtherCachedDecisions() {
+        // Arrange
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(CompletableFuture.completedFuture(allowed));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+        assertTrue(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+
+        // Act
+        authorizationService.initializeDirectoryOwner("9", TEST_USERNAME);
+        authorizationService.setParentDirectory(AuthorizationService.DIRECTORY_TYPE, "9", "5");
+        authorizationService.moveToDirectory(AuthorizationService.FILE_TYPE, "456", null, "9");
+
+        // Assert
+        assertTrue(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+        verify(openFgaClient, times(1)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void moveToDirectory_ExistingDirectory_InvalidatesAllCachedDecisions() {
+        // Arrange
+        CheckResponse allowed = new CheckResponse();
+        allowed.setAllowed(true);
+        when(openFgaClient.check(any(ClientCheckRequest.class))).thenReturn(CompletableFuture.completedFuture(allowed));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+        assertTrue(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+
+        // Act
+        authorizationService.moveToDirectory(AuthorizationService.DIRECTORY_TYPE, "9", "5", "7");
+
+        // Assert
+        assertTrue(authorizationService.canReadFile(TEST_FILE_ID, TEST_USERNAME));
+        verify(openFgaClient, times(2)).check(any(ClientCheckRequest.class));
+    }
+
+    @Test
+    void createGroup_ExistingGroupOfAnotherOwner_ThrowsAccessDenied() {
+        // Arrange
+        ReadResponse readResponse = new ReadResponse();
+        Tuple tuple = new Tuple();
+        tuple.setKey(new TupleKey().object("group:team-a").relation("owner").user("user:someone-else"));
+        readResponse.setTuples(List.of(tuple));
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse));
+        doReturn(false).when(authorizationService).isGroupOwner("team-a", TEST_USERNAME);
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileAccessDeniedException.class,
+                () -> authorizationService.createGroup("team-a", TEST_USERNAME));
+        verify(openFgaClient, never()).write(any(ClientWriteRequest.class));
+    }
+
+    @Test
+    void createGroup_NewGroup_WritesOwnerAndMember() {
+        // Arrange
+        ReadResponse readResponse = new ReadResponse();
+        readResponse.setTuples(List.of());
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse));
+        when(userGroupRepository.claim("team-a", TEST_USERNAME)).thenReturn(1);
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+
+        // Act
+        authorizationService.createGroup("team-a", TEST_USERNAME);
+
+        // Assert
+        ArgumentCaptor<ClientWriteRequest> captor = ArgumentCaptor.forClass(ClientWriteRequest.class);
+        verify(openFgaClient).write(captor.capture());
+        assertEquals(List.of("owner", "member"), captor.getValue().getWrites().stream()
+                .map(change -> change.getTupleKey().getRelation()).toList());
+    }
+
+    @Test
+    void createGroup_ClaimedConcurrentlyByAnotherOwner_ThrowsAccessDenied() {
+        // Arrange
+        ReadResponse readResponse = new ReadResponse();
+        readResponse.setTuples(List.of());
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse));
+        when(userGroupRepository.claim("team-a", TEST_USERNAME)).thenReturn(0);
+        when(userGroupRepository.findById("team-a"))
+                .thenReturn(Optional.of(UserGroup.builder().groupId("team-a").owner("someone-else").build()));
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileAccessDeniedException.class,
+                () -> authorizationService.createGroup("team-a", TEST_USERNAME));
+        verify(openFgaClient, never()).write(any(ClientWriteRequest.class));
+    }
+
+    @Test
+    void createGroup_ClaimedEarlierBySameOwner_WritesOwnerAndMember() {
+        // Arrange
+        ReadResponse readResponse = new ReadResponse();
+        readResponse.setTuples(List.of());
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse));
+        when(userGroupRepository.claim("team-a", TEST_USERNAME)).thenReturn(0);
+        when(userGroupRepository.findById("team-a"))
+                .thenReturn(Optional.of(UserGroup.builder().groupId("team-a").owner(TEST_USERNAME).build()));
+        when(openFgaClient.write(any(ClientWriteRequest.class))).thenReturn(CompletableFuture.completedFuture(new WriteResponse()));
+
+        // Act
+        authorizationService.createGroup("team-a", TEST_USERNAME);
+
+        // Assert
+        verify(openFgaClient).write(any(ClientWriteRequest.class));
     }
 }
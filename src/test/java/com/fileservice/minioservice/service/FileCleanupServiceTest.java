@@ -0,0 +1,194 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.FileThumbnail;
+import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.fileservice.minioservice.repository.VirusScanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileCleanupServiceTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private VirusScanRepository virusScanRepository;
+
+    @Mock
+    private ObjectDeletionOutbox objectDeletionOutbox;
+
+    @Mock
+    private StorageUsageService storageUsageService;
+
+    @Mock
+    private FileMetadataCache fileMetadataCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FileCleanupService fileCleanupService;
+
+    @BeforeEach
+    void setUp() {
+        fileCleanupService = new FileCleanupService(fileRepository, virusScanRepository, objectDeletionOutbox, storageUsageService,
+                fileMetadataCache, transactionTemplate, meterRegistry, 2, 8, 60_000, 0, 30);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void cleanupExpiredFiles_DeletesInChunksAndQueuesObjects() {
+        // Arrange
+        FileEntity first = file(1L, "alice", 100L);
+        FileEntity second = file(2L, "alice", 50L);
+        FileEntity third = file(3L, "bob", 10L);
+        first.setThumbnailBytes(20L);
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(0L), eq(2))).thenReturn(List.of(first, second));
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(2L), eq(4))).thenReturn(List.of(third));
+        when(fileRepository.findThumbnailsByFileIds(List.of(1L, 2L))).thenReturn(List.of(thumbnail(1L, "/fileservice/thumb_1.jpg")));
+
+        // Act
+        fileCleanupService.cleanupExpiredFiles();
+
+        // Assert
+        verify(objectDeletionOutbox).enqueue(List.of("object-1", "object-2", "thumb_1.jpg"));
+        verify(objectDeletionOutbox).enqueue(List.of("object-3"));
+        verify(virusScanRepository).deleteByFileIds(List.of("1", "2"));
+        verify(fileRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(fileRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(storageUsageService).recordDeletion("alice", 170L, 2);
+        verify(storageUsageService).recordDeletion("bob", 10L, 1);
+        verify(fileMetadataCache).evictAll(List.of(1L, 2L));
+        assertEquals(3.0, meterRegistry.counter("cleanup.deleted", "type", "files").count());
+    }
+
+    @Test
+    void cleanupExpiredFiles_LifecycleManagedFiles_OnlyDeletesRows() {
+        // Arrange
+        FileEntity managed = file(1L, "alice", 100L);
+        managed.setExpiryClassDays(7);
+        FileEntity unmanaged = file(2L, "alice", 50L);
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(0L), eq(2))).thenReturn(List.of(managed, unmanaged));
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(2L), eq(4))).thenReturn(List.of());
+        when(fileRepository.findThumbnailsByFileIds(List.of(2L))).thenReturn(List.of());
+
+        // Act
+        fileCleanupService.cleanupExpiredFiles();
+
+        // Assert
+        verify(fileRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(objectDeletionOutbox).enqueue(List.of("object-2"));
+        verify(storageUsageService).recordDeletion("alice", 150L, 2);
+    }
+
+    @Test
+    void cleanupExpiredFiles_RowDeleteFails_MovesPastChunk() {
+        // Arrange
+        FileEntity first = file(1L, "alice", 100L);
+        FileEntity second = file(2L, "alice", 50L);
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(0L), eq(2))).thenReturn(List.of(first, second));
+        when(fileRepository.claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(2L), eq(4))).thenReturn(List.of());
+        when(fileRepository.findThumbnailsByFileIds(anyCollection())).thenReturn(List.of());
+        doThrow(new RuntimeException("db down")).when(fileRepository).deleteAllByIdInBatch(anyIterable());
+
+        // Act
+        fileCleanupService.cleanupExpiredFiles();
+
+        // Assert
+        verify(fileRepository).claimExpiredFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(2L), eq(4));
+        verifyNoInteractions(objectDeletionOutbox);
+    }
+
+    @Test
+    void purgeTrashedFiles_DeletesFilesPastRetentionInDeletedAtOrder() {
+        // Arrange
+        LocalDateTime deletedAt = LocalDateTime.now().minusDays(40);
+        FileEntity first = file(1L, "alice", 100L);
+        first.setDeletedAt(deletedAt);
+        FileEntity second = file(2L, "bob", 50L);
+        second.setDeletedAt(deletedAt.plusHours(1));
+        when(fileRepository.claimTrashedFiles(any(LocalDateTime.class), any(LocalDateTime.class), eq(0L), eq(2))).thenReturn(List.of(first, second));
+        when(fileRepository.claimTrashedFiles(any(LocalDateTime.class), eq(deletedAt.plusHours(1)), eq(2L), eq(4))).thenReturn(List.of());
+        when(fileRepository.findThumbnailsByFileIds(List.of(1L, 2L))).thenReturn(List.of(thumbnail(2L, "/fileservice/thumb_2.jpg")));
+
+        // Act
+        fileCleanupService.purgeTrashedFiles();
+
+        // Assert
+        verify(fileRepository).claimTrashedFiles(argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusDays(29))),
+                any(LocalDateTime.class), eq(0L), eq(2));
+        verify(objectDeletionOutbox).enqueue(List.of("object-1", "object-2", "thumb_2.jpg"));
+        verify(virusScanRepository).deleteByFileIds(List.of("1", "2"));
+        verify(fileRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(storageUsageService).recordDeletion("alice", 100L, 1);
+        verify(storageUsageService).recordDeletion("bob", 50L, 1);
+        verify(fileRepository, never()).claimExpiredFiles(any(), any(), any(), anyInt());
+        assertEquals(2.0, meterRegistry.counter("cleanup.deleted", "type", "trash").count());
+    }
+
+    @Test
+    void adjustBatchSize_AdaptsToChunkDuration() {
+        // Full, fast chunks grow the batch up to the maximum
+        fileCleanupService.adjustBatchSize(2, 2, 10);
+        assertEquals(4, fileCleanupService.getBatchSize());
+        fileCleanupService.adjustBatchSize(4, 4, 10);
+        fileCleanupService.adjustBatchSize(8, 8, 10);
+        assertEquals(8, fileCleanupService.getBatchSize());
+
+        // A slow chunk halves it, never below the minimum
+        fileCleanupService.adjustBatchSize(8, 8, 120_000);
+        assertEquals(4, fileCleanupService.getBatchSize());
+        fileCleanupService.adjustBatchSize(1, 4, 120_000);
+        fileCleanupService.adjustBatchSize(1, 2, 120_000);
+        assertEquals(2, fileCleanupService.getBatchSize());
+
+        // A partial chunk leaves it alone
+        fileCleanupService.adjustBatchSize(1, 2, 10);
+        assertEquals(2, fileCleanupService.getBatchSize());
+    }
+
+    private FileEntity file(Long id, String owner, long size) {
+        FileEntity file = new FileEntity();
+        file.setId(id);
+        file.setOwner(owner);
+        file.setSize(size);
+        file.setObjectName("object-" + id);
+        file.setExpiresAt(LocalDateTime.now().minusDays(1));
+        return file;
+    }
+
+    private FileThumbnail thumbnail(Long fileId, String path) {
+        return new FileThumbnail() {
+            @Override
+            public Long getFileId() {
+                return fileId;
+            }
+
+            @Override
+            public String getThumbnailPath() {
+                return path;
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.repository.FileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileMetadataCacheTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FileMetadataCache fileMetadataCache;
+
+    @BeforeEach
+    void setUp() {
+        fileMetadataCache = new FileMetadataCache(fileRepository, transactionManager, new SimpleMeterRegistry(), 100, 60);
+    }
+
+    @Test
+    void get_UnexpiredFile_Found() {
+        // Arrange
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.of(file(1L, LocalDateTime.now().plusDays(1))));
+
+        // Act & Assert
+        assertTrue(fileMetadataCache.get(1L).isPresent());
+    }
+
+    @Test
+    void get_ExpiredFileNotYetCleanedUp_NotFound() {
+        // Arrange
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.of(file(1L, LocalDateTime.now().minusSeconds(1))));
+
+        // Act & Assert
+        assertTrue(fileMetadataCache.get(1L).isEmpty());
+    }
+
+    private FileEntity file(Long id, LocalDateTime expiresAt) {
+        return FileEntity.builder()
+                .id(id)
+                .owner("testuser")
+                .objectName("object-" + id)
+                .expiresAt(expiresAt)
+                .thumbnailPaths(new HashSet<>())
+                .build();
+    }
+}
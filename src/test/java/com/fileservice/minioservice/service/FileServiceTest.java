@@ -1,24 +1,38 @@
 package com.fileservice.minioservice.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fileservice.minioservice.dto.CursorPage;
 import com.fileservice.minioservice.dto.FileDto;
+import com.fileservice.minioservice.dto.FileMetadata;
+import com.fileservice.minioservice.dto.FileSummary;
+import com.fileservice.minioservice.dto.FileThumbnail;
 import com.fileservice.minioservice.dto.FileUploadRequest;
 import com.fileservice.minioservice.dto.ImageDimension;
 import com.fileservice.minioservice.exception.FileServiceException;
 import com.fileservice.minioservice.model.FileEntity;
 import com.fileservice.minioservice.repository.FileRepository;
 import io.minio.GetObjectResponse;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +50,18 @@ public class FileServiceTest {
     @Mock
     private AuthorizationService authorizationService;
 
+    @Mock
+    private FileMetadataCache fileMetadataCache;
+
+    @Mock
+    private StorageUsageService storageUsageService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
     @InjectMocks
     private FileService fileService;
 
@@ -111,8 +137,9 @@ public class FileServiceTest {
     @Test
     void getFileById_Success() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
-        when(minioService.convertToDto(any(FileEntity.class), anyInt())).thenReturn(testFileDto);
+        FileMetadata metadata = FileMetadata.from(testFile);
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(metadata));
+        when(minioService.convertToDto(eq(metadata), anySet(), anyInt())).thenReturn(testFileDto);
 
         // Act
         FileDto result = fileService.getFileById(1L, TEST_USERNAME);
@@ -121,20 +148,21 @@ public class FileServiceTest {
         assertNotNull(result);
         assertEquals(testFileDto.getId(), result.getId());
         assertEquals(testFileDto.getFilename(), result.getFilename());
-        verify(fileRepository).findById(1L);
-        verify(minioService).convertToDto(any(FileEntity.class), anyInt());
+        verify(fileMetadataCache).get(1L);
+        verify(minioService).convertToDto(metadata, metadata.getThumbnailPaths(), 3600);
+        verifyNoInteractions(fileRepository);
     }
 
     @Test
     void getFileById_NotFound() {
         // Arrange
-        when(fileRepository.findById(999L)).thenReturn(Optional.empty());
+        when(fileMetadataCache.get(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(FileServiceException.FileNotFoundException.class, () -> {
             fileService.getFileById(999L, TEST_USERNAME);
         });
-        verify(fileRepository).findById(999L);
+        verify(fileMetadataCache).get(999L);
     }
 
     @Test
@@ -143,53 +171,129 @@ public class FileServiceTest {
         FileEntity otherUserFile = testFile;
         otherUserFile.setOwner("otheruser");
         
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(otherUserFile));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(otherUserFile)));
 
         // Act & Assert
         assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
             fileService.getFileById(1L, TEST_USERNAME);
         });
-        verify(fileRepository).findById(1L);
+        verify(fileMetadataCache).get(1L);
     }
 
     @Test
     void getUserFiles_Success() {
         // Arrange
-        List<FileEntity> userFiles = Arrays.asList(testFile);
-        when(fileRepository.findByOwner(TEST_USERNAME)).thenReturn(userFiles);
-        when(minioService.convertToDto(any(FileEntity.class), anyInt())).thenReturn(testFileDto);
+        FileSummary summary = mock(FileSummary.class);
+        when(summary.getId()).thenReturn(1L);
+        FileThumbnail thumbnail = mock(FileThumbnail.class);
+        when(thumbnail.getFileId()).thenReturn(1L);
+        when(thumbnail.getThumbnailPath()).thenReturn("/fileservice/test-uuid_test_64x64.jpg");
+        
+        when(fileRepository.findPageByOwner(eq(TEST_USERNAME), eq(0L), any(LocalDateTime.class), eq(51))).thenReturn(Arrays.asList(summary));
+        when(fileRepository.findThumbnailsByFileIds(Arrays.asList(1L))).thenReturn(Arrays.asList(thumbnail));
+        when(minioService.convertToDto(eq(summary), anySet(), anyInt())).thenReturn(testFileDto);
 
         // Act
-        List<FileDto> result = fileService.getUserFiles(TEST_USERNAME);
+        CursorPage<FileDto> result = fileService.getUserFiles(TEST_USERNAME, false, null, 50);
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(testFileDto.getId(), result.get(0).getId());
-        verify(fileRepository).findByOwner(TEST_USERNAME);
-        verify(minioService).convertToDto(any(FileEntity.class), anyInt());
+        assertEquals(1, result.getItems().size());
+        assertEquals(testFileDto.getId(), result.getItems().get(0).getId());
+        assertNull(result.getNextCursor());
+        verify(fileRepository, times(1)).findThumbnailsByFileIds(anyCollection());
+        verify(minioService).convertToDto(summary, Set.of("/fileservice/test-uuid_test_64x64.jpg"), 3600);
     }
 
     @Test
     void deleteFile_Success() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
-        doNothing().when(minioService).deleteFile(anyString());
-        doNothing().when(fileRepository).delete(any(FileEntity.class));
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.of(testFile));
 
         // Act
         fileService.deleteFile(1L, TEST_USERNAME);
 
         // Assert
-        verify(fileRepository).findById(1L);
-        verify(minioService).deleteFile(testFile.getObjectName());
-        verify(fileRepository).delete(testFile);
+        assertNotNull(testFile.getDeletedAt());
+        verify(fileRepository).save(testFile);
+        verify(fileMetadataCache).evict(1L);
+        verify(minioService, never()).deleteFile(anyString());
+        verify(fileRepository, never()).delete(any(FileEntity.class));
+    }
+
+    @Test
+    void deleteFile_AlreadyTrashed_ThrowsNotFound() {
+        // Arrange
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileNotFoundException.class, () -> fileService.deleteFile(1L, TEST_USERNAME));
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void restoreFile_WithinRetention_ClearsDeletedAt() {
+        // Arrange
+        ReflectionTestUtils.setField(fileService, "trashRetentionDays", 30);
+        testFile.setDeletedAt(LocalDateTime.now().minusDays(2));
+        when(fileRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testFile));
+        when(fileRepository.save(testFile)).thenReturn(testFile);
+        when(minioService.convertToDto(testFile, 3600)).thenReturn(testFileDto);
+
+        // Act
+        FileDto result = fileService.restoreFile(1L, TEST_USERNAME);
+
+        // Assert
+        assertEquals(testFileDto, result);
+        assertNull(testFile.getDeletedAt());
+        verify(fileMetadataCache).evict(1L);
+    }
+
+    @Test
+    void restoreFile_PastRetention_ThrowsNotFound() {
+        // Arrange
+        ReflectionTestUtils.setField(fileService, "trashRetentionDays", 30);
+        testFile.setDeletedAt(LocalDateTime.now().minusDays(31));
+        when(fileRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testFile));
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileNotFoundException.class, () -> fileService.restoreFile(1L, TEST_USERNAME));
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void getTrash_ReturnsDeletionTimeCursorWithoutDownloadLinks() {
+        // Arrange
+        ReflectionTestUtils.setField(fileService, "trashRetentionDays", 30);
+        LocalDateTime deletedAt = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456000);
+        testFile.setDeletedAt(deletedAt);
+        FileEntity older = FileEntity.builder().id(7L).owner(TEST_USERNAME).deletedAt(deletedAt.minusHours(1)).build();
+        when(fileRepository.findTrashPage(eq(TEST_USERNAME), any(LocalDateTime.class),
+                eq(LocalDateTime.of(2024, 5, 2, 8, 0)), eq(5L), eq(2)))
+                .thenReturn(List.of(testFile, older));
+
+        // Act
+        CursorPage<FileDto> page = fileService.getTrash(TEST_USERNAME, "2024-05-02T08:00_5", 1);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals(deletedAt, page.getItems().get(0).getDeletedAt());
+        assertNull(page.getItems().get(0).getDownloadUrl());
+        assertEquals("2024-05-01T10:15:30.123456_1", page.getNextCursor());
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    void getTrash_MalformedCursor_ThrowsIllegalArgument() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> fileService.getTrash(TEST_USERNAME, "yesterday_5", 10));
+        assertThrows(IllegalArgumentException.class, () -> fileService.getTrash(TEST_USERNAME, "42", 10));
     }
 
     @Test
     void updateFileMetadata_Success() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.of(testFile));
         when(fileRepository.save(any(FileEntity.class))).thenReturn(testFile);
         when(minioService.convertToDto(any(FileEntity.class), anyInt())).thenReturn(testFileDto);
 
@@ -198,8 +302,126 @@ public class FileServiceTest {
 
         // Assert
         assertNotNull(result);
-        verify(fileRepository).findById(1L);
+        verify(fileRepository).findByIdAndDeletedAtIsNull(1L);
+        verify(minioService).updateExpiryClass(testFile);
         verify(fileRepository).save(any(FileEntity.class));
+        verify(fileMetadataCache).evict(1L);
         verify(minioService).convertToDto(any(FileEntity.class), anyInt());
     }
+
+    @Test
+    void getUserFiles_IncludeShared_JoinsReadableFiles() {
+        // Arrange
+        FileSummary summary = mock(FileSummary.class);
+        when(summary.getId()).thenReturn(2L);
+        when(authorizationService.getReadableFileIds(TEST_USERNAME)).thenReturn(Set.of(2L));
+        when(fileRepository.findAccessiblePage(eq(TEST_USERNAME), eq(List.of(2L)), eq(0L), eq(Long.MAX_VALUE), any(LocalDateTime.class), eq(51)))
+                .thenReturn(List.of(summary));
+        when(fileRepository.findThumbnailsByFileIds(List.of(2L))).thenReturn(List.of());
+        when(minioService.convertToDto(eq(summary), anySet(), anyInt())).thenReturn(testFileDto);
+
+        // Act
+        CursorPage<FileDto> result = fileService.getUserFiles(TEST_USERNAME, true, null, 50);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+        verify(fileRepository, never()).findPageByOwner(anyString(), anyLong(), any(LocalDateTime.class), anyInt());
+    }
+
+    @Test
+    void getUserFiles_ManySharedFiles_BoundsQueryToNextCandidates() {
+        // Arrange: five shared files after the cursor, but a page of two only needs the first three
+        when(authorizationService.getReadableFileIds(TEST_USERNAME)).thenReturn(Set.of(3L, 10L, 11L, 12L, 13L, 14L));
+        when(fileRepository.findAccessiblePage(eq(TEST_USERNAME), eq(List.of(10L, 11L, 12L)), eq(5L), eq(12L), any(LocalDateTime.class), eq(3)))
+                .thenReturn(List.of());
+
+        // Act
+        CursorPage<FileDto> result = fileService.getUserFiles(TEST_USERNAME, true, "5", 2);
+
+        // Assert: the next page starts after the last candidate even though this one came back empty
+        assertTrue(result.getItems().isEmpty());
+        assertEquals("12", result.getNextCursor());
+    }
+
+    @Test
+    void getFileById_SharedWithUser_Allowed() {
+        // Arrange
+        testFile.setOwner("otheruser");
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        when(authorizationService.canReadFile("1", TEST_USERNAME)).thenReturn(true);
+        when(minioService.convertToDto(any(FileMetadata.class), anySet(), anyInt())).thenReturn(testFileDto);
+
+        // Act
+        FileDto result = fileService.getFileById(1L, TEST_USERNAME);
+
+        // Assert
+        assertNotNull(result);
+    }
+
+    @Test
+    void searchFilesByFilename_EscapesWildcards() {
+        // Arrange
+        FileSummary summary = mock(FileSummary.class);
+        when(summary.getId()).thenReturn(1L);
+        PageRequest pageRequest = PageRequest.of(0, 20);
+        when(fileRepository.searchByOwnerAndFilename(eq(TEST_USERNAME), eq("50\\%\\_off"), eq("50%_off"), any(LocalDateTime.class), eq(pageRequest)))
+                .thenReturn(new PageImpl<>(Arrays.asList(summary)));
+        when(minioService.convertToDto(eq(summary), anySet(), anyInt())).thenReturn(testFileDto);
+
+        // Act
+        List<FileDto> result = fileService.searchFilesByFilename("50%_off", TEST_USERNAME, pageRequest);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(fileRepository).searchByOwnerAndFilename(eq(TEST_USERNAME), eq("50\\%\\_off"), eq("50%_off"), any(LocalDateTime.class), eq(pageRequest));
+    }
+
+    @Test
+    void searchFilesByFilename_IncludeShared_BindsIdsAsOneArray() {
+        // Arrange
+        PageRequest pageRequest = PageRequest.of(0, 20);
+        when(authorizationService.getReadableFileIds(TEST_USERNAME)).thenReturn(new TreeSet<>(Set.of(3L, 7L, 42L)));
+        when(fileRepository.searchAccessibleByFilename(eq(TEST_USERNAME), eq("{3,7,42}"), eq("report"), eq("report"), any(LocalDateTime.class), eq(pageRequest)))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        // Act
+        List<FileDto> result = fileService.searchFilesByFilename("report", TEST_USERNAME, true, pageRequest);
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void exportUserFiles_WritesOneLinePerFileAndDetaches() throws IOException {
+        // Arrange
+        FileEntity secondFile = new FileEntity();
+        secondFile.setId(2L);
+        secondFile.setFilename("notes.txt");
+        secondFile.setOwner(TEST_USERNAME);
+        
+        FileThumbnail thumbnail = mock(FileThumbnail.class);
+        when(thumbnail.getFileId()).thenReturn(1L);
+        when(thumbnail.getThumbnailPath()).thenReturn("/fileservice/test-uuid_test_64x64.jpg");
+        
+        when(fileRepository.streamByOwner(TEST_USERNAME)).thenReturn(Stream.of(testFile, secondFile));
+        when(fileRepository.findThumbnailsByFileIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(thumbnail));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        fileService.exportUserFiles(TEST_USERNAME, outputStream);
+
+        // Assert
+        String output = outputStream.toString(StandardCharsets.UTF_8);
+        String[] lines = output.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(output.endsWith("}\n"));
+        assertTrue(lines[1].startsWith("{"), "records must not be separated by anything but the newline");
+        assertEquals("test.jpg", objectMapper.readTree(lines[0]).get("filename").asText());
+        assertEquals(1, objectMapper.readTree(lines[0]).get("thumbnailPaths").size());
+        assertEquals("notes.txt", objectMapper.readTree(lines[1]).get("filename").asText());
+        verify(entityManager).detach(testFile);
+        verify(entityManager).detach(secondFile);
+        verifyNoInteractions(minioService);
+    }
 }
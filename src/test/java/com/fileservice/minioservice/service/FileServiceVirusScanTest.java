@@ -40,6 +40,12 @@ public class FileServiceVirusScanTest {
     @Mock
     private VirusScanRepository virusScanRepository;
 
+    @Mock
+    private FileMetadataCache fileMetadataCache;
+
+    @Mock
+    private StorageUsageService storageUsageService;
+
     @InjectMocks
     private FileService fileService;
 
@@ -137,6 +143,23 @@ public class FileServiceVirusScanTest {
         verify(minioService).convertToDto(any(FileEntity.class), anyInt());
     }
 
+    @Test
+    void uploadFile_OverQuota_RejectedBeforeScan() {
+        // Arrange
+        FileUploadRequest request = new FileUploadRequest();
+        request.setFile(mockMultipartFile);
+
+        doThrow(new FileServiceException.QuotaExceededException("Storage quota exceeded"))
+                .when(storageUsageService).checkQuota(TEST_USERNAME, mockMultipartFile.getSize());
+
+        // Act & Assert
+        assertThrows(FileServiceException.QuotaExceededException.class, () -> {
+            fileService.uploadFile(request, TEST_USERNAME);
+        });
+        verifyNoInteractions(virusScanService);
+        verifyNoInteractions(minioService);
+    }
+
     @Test
     void uploadFile_WithInfectedFile_ThrowsException() {
         // Arrange
@@ -202,20 +225,17 @@ public class FileServiceVirusScanTest {
     }
 
     @Test
-    void deleteFile_AlsoDeletesVirusScanResult() {
+    void deleteFile_KeepsVirusScanResultUntilPurge() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
-        doNothing().when(minioService).deleteFile(anyString());
-        doNothing().when(virusScanRepository).deleteByFileId(anyString());
-        doNothing().when(fileRepository).delete(any(FileEntity.class));
+        when(fileRepository.findByIdAndDeletedAtIsNull(1L)).thenReturn(Optional.of(testFile));
 
         // Act
         fileService.deleteFile(1L, TEST_USERNAME);
 
         // Assert
-        verify(fileRepository).findById(1L);
-        verify(minioService).deleteFile(testFile.getObjectName());
-        verify(virusScanRepository).deleteByFileId("1");
-        verify(fileRepository).delete(testFile);
+        assertNotNull(testFile.getDeletedAt());
+        verify(minioService, never()).deleteFile(anyString());
+        verify(virusScanRepository, never()).deleteByFileId(anyString());
+        verify(fileRepository, never()).delete(any(FileEntity.class));
     }
 }
@@ -0,0 +1,251 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.FileSummary;
+import com.fileservice.minioservice.dto.FolderDto;
+import com.fileservice.minioservice.dto.FolderEntryDto;
+import com.fileservice.minioservice.dto.FolderPath;
+import com.fileservice.minioservice.exception.FileServiceException;
+import com.fileservice.minioservice.model.FileEntity;
+import com.fileservice.minioservice.model.Folder;
+import com.fileservice.minioservice.repository.FileRepository;
+import com.fileservice.minioservice.repository.FolderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FolderServiceTest {
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private AuthorizationService authorizationService;
+
+    @InjectMocks
+    private FolderService folderService;
+
+    private final String TEST_USERNAME = "testuser";
+
+    @Test
+    void createFolder_InParent_StoresAncestorPathAndParentTuple() {
+        // Arrange
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/1/", 1L)));
+        when(folderRepository.sharePaths(Set.of(1L, 5L))).thenReturn(List.of(lockedPath(1L, "/"), lockedPath(5L, "/1/")));
+        when(folderRepository.save(any(Folder.class))).thenAnswer(invocation -> {
+            Folder saved = invocation.getArgument(0);
+            saved.setId(9L);
+            return saved;
+        });
+
+        // Act
+        FolderDto result = folderService.createFolder("docs", 5L, TEST_USERNAME);
+
+        // Assert
+        assertEquals("/1/5/", result.getPath());
+        assertEquals(5L, result.getParentId());
+        verify(authorizationService).initializeDirectoryOwner("9", TEST_USERNAME);
+        verify(authorizationService).setParentDirectory(AuthorizationService.DIRECTORY_TYPE, "9", "5");
+    }
+
+    @Test
+    void createFolder_ParentMovedBeforeLock_UsesLockedPath() {
+        // Arrange: the parent was moved from /1/ under folder 7 before the lock was granted
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/1/", 1L)));
+        when(folderRepository.sharePaths(Set.of(1L, 5L))).thenReturn(List.of(lockedPath(1L, "/"), lockedPath(5L, "/7/")));
+        when(folderRepository.sharePaths(Set.of(1L, 5L, 7L)))
+                .thenReturn(List.of(lockedPath(1L, "/"), lockedPath(5L, "/7/"), lockedPath(7L, "/")));
+        when(folderRepository.save(any(Folder.class))).thenAnswer(invocation -> {
+            Folder saved = invocation.getArgument(0);
+            saved.setId(9L);
+            return saved;
+        });
+
+        // Act
+        FolderDto result = folderService.createFolder("docs", 5L, TEST_USERNAME);
+
+        // Assert
+        assertEquals("/7/5/", result.getPath());
+    }
+
+    @Test
+    void createFolder_DuplicateSiblingName_ThrowsIllegalArgument() {
+        // Arrange
+        when(folderRepository.existsByOwnerAndParentIdIsNullAndName(TEST_USERNAME, "docs")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> folderService.createFolder("docs", null, TEST_USERNAME));
+        verify(folderRepository, never()).save(any());
+    }
+
+    @Test
+    void createFolder_ParentOfAnotherUserWithoutWriteAccess_ThrowsAccessDenied() {
+        // Arrange
+        Folder parent = folder(5L, "/", null);
+        parent.setOwner("someone-else");
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(parent));
+        when(authorizationService.canWriteDirectory("5", TEST_USERNAME)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileAccessDeniedException.class,
+                () -> folderService.createFolder("docs", 5L, TEST_USERNAME));
+    }
+
+    @Test
+    void moveFolder_RewritesSubtreeWithSingleUpdate() {
+        // Arrange
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/1/", 1L)));
+        when(folderRepository.findById(7L)).thenReturn(Optional.of(folder(7L, "/", null)));
+        when(folderRepository.lockPaths(Set.of(5L, 7L))).thenReturn(List.of(lockedPath(5L, "/1/"), lockedPath(7L, "/")));
+        when(folderRepository.findMaxPathLength("/1/5/")).thenReturn(12);
+        when(folderRepository.moveSubtree(eq(5L), eq(7L), eq("/7/"), eq("/1/5/"), eq("/7/5/"), any(LocalDateTime.class)))
+                .thenReturn(4);
+
+        // Act
+        FolderDto result = folderService.moveFolder(5L, 7L, TEST_USERNAME);
+
+        // Assert
+        assertEquals("/7/", result.getPath());
+        assertEquals(7L, result.getParentId());
+        verify(authorizationService).moveToDirectory(AuthorizationService.DIRECTORY_TYPE, "5", "1", "7");
+    }
+
+    @Test
+    void moveFolder_IntoOwnDescendant_ThrowsIllegalArgument() {
+        // Arrange
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/1/", 1L)));
+        when(folderRepository.findById(8L)).thenReturn(Optional.of(folder(8L, "/1/5/", 5L)));
+        when(folderRepository.lockPaths(Set.of(1L, 5L, 8L)))
+                .thenReturn(List.of(lockedPath(1L, "/"), lockedPath(5L, "/1/"), lockedPath(8L, "/1/5/")));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> folderService.moveFolder(5L, 8L, TEST_USERNAME));
+        verify(folderRepository, never()).moveSubtree(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void moveFolder_ParentMovedUnderFolderBeforeLock_ThrowsIllegalArgument() {
+        // Arrange: 7 was at the root when read, but a concurrent move put it under 5 before the lock
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/", null)));
+        when(folderRepository.findById(7L)).thenReturn(Optional.of(folder(7L, "/", null)));
+        when(folderRepository.lockPaths(Set.of(5L, 7L))).thenReturn(List.of(lockedPath(5L, "/"), lockedPath(7L, "/5/")));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> folderService.moveFolder(5L, 7L, TEST_USERNAME));
+        verify(folderRepository, never()).moveSubtree(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void moveFolder_ParentChainChangedBeforeLock_LocksNewAncestors() {
+        // Arrange: 7 was at the root when read, but has since been moved under 3
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/", null)));
+        when(folderRepository.findById(7L)).thenReturn(Optional.of(folder(7L, "/", null)));
+        when(folderRepository.lockPaths(Set.of(5L, 7L))).thenReturn(List.of(lockedPath(5L, "/"), lockedPath(7L, "/3/")));
+        when(folderRepository.lockPaths(Set.of(3L, 5L, 7L)))
+                .thenReturn(List.of(lockedPath(3L, "/"), lockedPath(5L, "/"), lockedPath(7L, "/3/")));
+        when(folderRepository.moveSubtree(eq(5L), eq(7L), eq("/3/7/"), eq("/5/"), eq("/3/7/5/"), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // Act
+        FolderDto result = folderService.moveFolder(5L, 7L, TEST_USERNAME);
+
+        // Assert
+        assertEquals("/3/7/", result.getPath());
+        verify(authorizationService).moveToDirectory(AuthorizationService.DIRECTORY_TYPE, "5", null, "7");
+    }
+
+    @Test
+    void getChildren_FillsPageWithFilesAfterFolders() {
+        // Arrange
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/", null)));
+        when(folderRepository.findChildPage(5L, 0L, 3)).thenReturn(List.of(folder(8L, "/5/", 5L)));
+        FileSummary first = summary(20L);
+        FileSummary second = summary(21L);
+        when(fileRepository.findPageByFolderId(eq(5L), eq(0L), any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of(first, second));
+
+        // Act
+        CursorPage<FolderEntryDto> page = folderService.getChildren(5L, TEST_USERNAME, null, 2);
+
+        // Assert
+        assertEquals(List.of("folder", "file"), page.getItems().stream().map(FolderEntryDto::getType).toList());
+        assertEquals("file:20", page.getNextCursor());
+    }
+
+    @Test
+    void getSubtree_UsesPathAndIdAsCursor() {
+        // Arrange
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/", null)));
+        when(folderRepository.findSubtreePage("/5/", "/5/8/", 12L, 2))
+                .thenReturn(List.of(folder(13L, "/5/8/", 8L), folder(30L, "/5/8/13/", 13L)));
+
+        // Act
+        CursorPage<FolderDto> page = folderService.getSubtree(5L, TEST_USERNAME, "/5/8/12", 1);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals("/5/8/13", page.getNextCursor());
+    }
+
+    @Test
+    void moveFile_IntoFolder_UpdatesRowAndParentTuple() {
+        // Arrange
+        FileEntity file = FileEntity.builder().id(20L).owner(TEST_USERNAME).folderId(3L).build();
+        when(fileRepository.findByIdAndDeletedAtIsNull(20L)).thenReturn(Optional.of(file));
+        when(folderRepository.findById(5L)).thenReturn(Optional.of(folder(5L, "/", null)));
+        when(folderRepository.sharePaths(Set.of(5L))).thenReturn(List.of(lockedPath(5L, "/")));
+
+        // Act
+        folderService.moveFile(20L, 5L, TEST_USERNAME);
+
+        // Assert
+        assertEquals(5L, file.getFolderId());
+        verify(fileRepository).save(file);
+        verify(authorizationService).moveToDirectory(AuthorizationService.FILE_TYPE, "20", "3", "5");
+    }
+
+    private Folder folder(Long id, String path, Long parentId) {
+        return Folder.builder()
+                .id(id)
+                .owner(TEST_USERNAME)
+                .name("folder-" + id)
+                .parentId(parentId)
+                .path(path)
+                .build();
+    }
+
+    private FolderPath lockedPath(Long id, String path) {
+        return new FolderPath() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPath() {
+                return path;
+            }
+        };
+    }
+
+    private FileSummary summary(Long id) {
+        FileSummary summary = mock(FileSummary.class);
+        lenient().when(summary.getId()).thenReturn(id);
+        return summary;
+    }
+}
@@ -11,12 +11,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -133,4 +135,27 @@ public class ImageServiceTest {
         assertEquals(2, result.size());
         verify(minioClient, times(2)).putObject(any(PutObjectArgs.class));
     }
+
+    @Test
+    void renderThumbnails_NonImageFile_StoresNothing() {
+        // Act
+        Map<String, byte[]> result = imageService.renderThumbnails(mockNonImageFile, dimensions, "test-uuid_test.txt");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    void uploadThumbnail_ReturnsPath() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(imageService, "bucketName", "fileservice");
+
+        // Act
+        String path = imageService.uploadThumbnail("test-uuid_test_64x64.jpg", new byte[10], "image/jpeg", Map.of());
+
+        // Assert
+        assertEquals("/fileservice/test-uuid_test_64x64.jpg", path);
+        verify(minioClient).putObject(any(PutObjectArgs.class));
+    }
 }
@@ -0,0 +1,191 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.FgaRelation;
+import dev.openfga.sdk.api.client.OpenFgaClient;
+import dev.openfga.sdk.api.client.model.ClientReadChangesRequest;
+import dev.openfga.sdk.api.client.model.ClientReadRequest;
+import dev.openfga.sdk.api.client.model.TupleKey;
+import dev.openfga.sdk.api.configuration.ClientReadChangesOptions;
+import dev.openfga.sdk.api.configuration.ClientReadOptions;
+import dev.openfga.sdk.api.model.ReadChangesResponse;
+import dev.openfga.sdk.api.model.ReadResponse;
+import dev.openfga.sdk.api.model.Tuple;
+import dev.openfga.sdk.api.model.TupleChange;
+import dev.openfga.sdk.api.model.TupleOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LocalTupleIndexTest {
+
+    @Mock
+    private OpenFgaClient openFgaClient;
+
+    @Test
+    void check_BeforeFirstRefresh_ReturnsNull() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 5000);
+
+        // Act & Assert
+        assertNull(index.check("user:alice", "reader", "file:1"));
+        verifyNoInteractions(openFgaClient);
+    }
+
+    @Test
+    void refresh_LoadsSnapshotAndAppliesChanges() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 5000);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse(
+                        tuple("file:1", "reader", "user:alice"),
+                        tuple("file:2", "reader", "user:alice"),
+                        tuple("document:9", "viewer", "user:alice"))));
+        when(openFgaClient.readChanges(any(ClientReadChangesRequest.class), any(ClientReadChangesOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1",
+                        change("file:2", "reader", "user:alice", TupleOperation.DELETE),
+                        change("file:3", "writer", "user:bob", TupleOperation.WRITE))))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1")));
+
+        // Act
+        index.refresh();
+
+        // Assert
+        assertTrue(index.isFresh());
+        assertTrue(index.check("user:alice", "reader", "file:1"));
+        assertFalse(index.check("user:alice", "reader", "file:2"));
+        assertTrue(index.check("user:bob", "writer", "file:3"));
+        assertFalse(index.check("user:alice", "viewer", "document:9"));
+    }
+
+    @Test
+    void refresh_ResumesChangesFromLastToken() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 5000);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse()));
+        when(openFgaClient.readChanges(any(ClientReadChangesRequest.class), any(ClientReadChangesOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1")));
+
+        // Act
+        index.refresh();
+        index.refresh();
+
+        // Assert
+        verify(openFgaClient, times(1)).read(any(ClientReadRequest.class), any(ClientReadOptions.class));
+        verify(openFgaClient).readChanges(any(ClientReadChangesRequest.class),
+                argThat(options -> "token-1".equals(options.getContinuationToken())));
+    }
+
+    @Test
+    void check_WhenStale_ReturnsNull() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 0);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse(tuple("file:1", "reader", "user:alice"))));
+        when(openFgaClient.readChanges(any(ClientReadChangesRequest.class), any(ClientReadChangesOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1")));
+
+        // Act
+        index.refresh();
+
+        // Assert
+        assertNull(index.check("user:alice", "reader", "file:1"));
+    }
+
+    @Test
+    void apply_MakesLocalWritesVisible() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 5000);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse(tuple("file:1", "reader", "user:alice"))));
+        when(openFgaClient.readChanges(any(ClientReadChangesRequest.class), any(ClientReadChangesOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1")));
+        index.refresh();
+
+        // Act
+        index.apply(List.of(relation("file:1", "writer", "user:bob")), List.of(relation("file:1", "reader", "user:alice")));
+
+        // Assert
+        assertTrue(index.check("user:bob", "writer", "file:1"));
+        assertFalse(index.check("user:alice", "reader", "file:1"));
+    }
+
+    @Test
+    void refresh_WhenDisabled_DoesNothing() {
+        // Arrange
+        LocalTupleIndex index = newIndex(false, 5000);
+
+        // Act
+        index.refresh();
+
+        // Assert
+        assertNull(index.check("user:alice", "reader", "file:1"));
+        verifyNoInteractions(openFgaClient);
+    }
+
+    @Test
+    void check_ResolvesGroupsAndParentDirectories() {
+        // Arrange
+        LocalTupleIndex index = newIndex(true, 5000);
+        when(openFgaClient.read(any(ClientReadRequest.class), any(ClientReadOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(readResponse(
+                        tuple("group:team-a", "member", "user:alice"),
+                        tuple("directory:1", "reader", "group:team-a#member"),
+                        tuple("directory:2", "parent", "directory:1"),
+                        tuple("file:7", "parent", "directory:2"))));
+        when(openFgaClient.readChanges(any(ClientReadChangesRequest.class), any(ClientReadChangesOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(changes("token-1")));
+
+        // Act
+        index.refresh();
+
+        // Assert
+        assertTrue(index.check("user:alice", "reader", "file:7"));
+        assertFalse(index.check("user:alice", "writer", "file:7"));
+        assertFalse(index.check("user:bob", "reader", "file:7"));
+    }
+
+    private LocalTupleIndex newIndex(boolean enabled, long maxStalenessMillis) {
+        return new LocalTupleIndex(openFgaClient, new SimpleMeterRegistry(), enabled, maxStalenessMillis, 200);
+    }
+
+    private ReadResponse readResponse(Tuple... tuples) {
+        ReadResponse response = new ReadResponse();
+        response.setTuples(List.of(tuples));
+        response.setContinuationToken("");
+        return response;
+    }
+
+    private ReadChangesResponse changes(String continuationToken, TupleChange... changes) {
+        ReadChangesResponse response = new ReadChangesResponse();
+        response.setChanges(List.of(changes));
+        response.setContinuationToken(continuationToken);
+        return response;
+    }
+
+    private Tuple tuple(String object, String relation, String user) {
+        Tuple tuple = new Tuple();
+        tuple.setKey(new TupleKey().object(object).relation(relation).user(user));
+        return tuple;
+    }
+
+    private TupleChange change(String object, String relation, String user, TupleOperation operation) {
+        return new TupleChange()
+                .tupleKey(new TupleKey().object(object).relation(relation).user(user))
+                .operation(operation);
+    }
+
+    private FgaRelation relation(String object, String relation, String user) {
+        return FgaRelation.builder().object(object).relation(relation).user(user).build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.ObjectDeletion;
+import com.fileservice.minioservice.repository.ObjectDeletionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ObjectDeletionOutboxTest {
+
+    @Mock
+    private ObjectDeletionRepository objectDeletionRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ObjectDeletionOutbox objectDeletionOutbox;
+
+    @BeforeEach
+    void setUp() {
+        objectDeletionOutbox = new ObjectDeletionOutbox(objectDeletionRepository, jdbcTemplate, minioService,
+                transactionTemplate, meterRegistry, 2, 10, 60);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void enqueue_InsertsAllEntriesInOneBatch() {
+        // Act
+        objectDeletionOutbox.enqueue(List.of("object-1", "thumb_1.jpg"));
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO object_deletion_outbox"), argThat((List<Object[]> batch) -> {
+            List<Object> names = new ArrayList<>();
+            batch.forEach(row -> names.add(row[0]));
+            return names.equals(List.of("object-1", "thumb_1.jpg"));
+        }));
+        verify(objectDeletionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void processDue_DeletesObjectsInChunks() {
+        // Arrange
+        when(objectDeletionRepository.claimDue(any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of(entry(1L, "object-1"), entry(2L, "object-2")))
+                .thenReturn(List.of(entry(3L, "object-3")));
+        when(minioService.deleteFiles(anyCollection())).thenReturn(Set.of());
+
+        // Act
+        objectDeletionOutbox.processDue();
+
+        // Assert
+        verify(minioService).deleteFiles(List.of("object-1", "object-2"));
+        verify(minioService).deleteFiles(List.of("object-3"));
+        verify(objectDeletionRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(objectDeletionRepository).deleteAllByIdInBatch(List.of(3L));
+        assertEquals(3.0, meterRegistry.counter("cleanup.deleted", "type", "objects").count());
+    }
+
+    @Test
+    void processDue_DeleteFails_ReschedulesWithBackoff() {
+        // Arrange
+        ObjectDeletion failing = entry(1L, "object-1");
+        failing.setAttempts(2);
+        when(objectDeletionRepository.claimDue(any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of(failing, entry(2L, "object-2")))
+                .thenReturn(List.of());
+        when(minioService.deleteFiles(anyCollection())).thenReturn(Set.of("object-1"));
+
+        // Act
+        LocalDateTime before = LocalDateTime.now();
+        objectDeletionOutbox.processDue();
+
+        // Assert
+        verify(objectDeletionRepository).deleteAllByIdInBatch(List.of(2L));
+        assertEquals(3, failing.getAttempts());
+        assertFalse(failing.getNextAttemptAt().isBefore(before.plusSeconds(40)));
+        assertEquals(1.0, meterRegistry.counter("cleanup.failed", "type", "objects").count());
+    }
+
+    @Test
+    void retryDelaySeconds_DoublesUpToMaximum() {
+        assertEquals(10, objectDeletionOutbox.retryDelaySeconds(1));
+        assertEquals(20, objectDeletionOutbox.retryDelaySeconds(2));
+        assertEquals(40, objectDeletionOutbox.retryDelaySeconds(3));
+        assertEquals(60, objectDeletionOutbox.retryDelaySeconds(4));
+        assertEquals(60, objectDeletionOutbox.retryDelaySeconds(100));
+    }
+
+    private ObjectDeletion entry(Long id, String objectName) {
+        return ObjectDeletion.builder()
+                .id(id)
+                .objectName(objectName)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
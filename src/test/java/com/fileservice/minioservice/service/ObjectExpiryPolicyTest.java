@@ -0,0 +1,86 @@
+package com.fileservice.minioservice.service;
+
+import io.minio.messages.Expiration;
+import io.minio.messages.LifecycleConfiguration;
+import io.minio.messages.LifecycleRule;
+import io.minio.messages.RuleFilter;
+import io.minio.messages.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjectExpiryPolicyTest {
+
+    private final LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void expiryClassDays_PicksSmallestClassCoveringLifetime() {
+        // Arrange
+        ObjectExpiryPolicy policy = new ObjectExpiryPolicy("lifecycle", List.of(30, 1, 7));
+
+        // Act & Assert
+        assertEquals(1, policy.expiryClassDays(createdAt, createdAt.plusHours(3)));
+        assertEquals(7, policy.expiryClassDays(createdAt, createdAt.plusDays(7)));
+        assertEquals(30, policy.expiryClassDays(createdAt, createdAt.plusDays(7).plusMinutes(1)));
+        assertNull(policy.expiryClassDays(createdAt, createdAt.plusDays(31)));
+        assertNull(policy.expiryClassDays(createdAt, null));
+    }
+
+    @Test
+    void expiryClassDays_DeleteMode_NeverTags() {
+        // Arrange
+        ObjectExpiryPolicy policy = new ObjectExpiryPolicy("delete", List.of(1, 7, 30));
+
+        // Act & Assert
+        assertFalse(policy.isLifecycleEnabled());
+        assertNull(policy.expiryClassDays(createdAt, createdAt.plusDays(1)));
+        assertEquals(Map.of(), policy.tags(null));
+    }
+
+    @Test
+    void lifecycleConfiguration_OneRulePerClass() {
+        // Arrange
+        ObjectExpiryPolicy policy = new ObjectExpiryPolicy("lifecycle", List.of(7, 1));
+
+        // Act
+        LifecycleConfiguration configuration = policy.lifecycleConfiguration();
+
+        // Assert
+        List<LifecycleRule> rules = configuration.rules();
+        assertEquals(2, rules.size());
+        assertEquals("expire-1d", rules.get(0).id());
+        assertEquals(1, rules.get(0).expiration().days());
+        assertEquals("1d", rules.get(0).filter().tag().value());
+        assertEquals(Map.of(ObjectExpiryPolicy.TAG_KEY, "7d"), policy.tags(7));
+    }
+
+    @Test
+    void mergeLifecycleConfiguration_KeepsForeignRulesAndReferencedClasses() {
+        // Arrange: the bucket has an operator rule and rules for classes 1 and 90; 90 was removed
+        // from the configuration but rows still reference it, 1 is neither configured nor referenced
+        ObjectExpiryPolicy policy = new ObjectExpiryPolicy("lifecycle", List.of(7));
+        LifecycleRule operatorRule = new LifecycleRule(Status.ENABLED, null,
+                new Expiration((ZonedDateTime) null, 3, null), new RuleFilter("tmp/"), "purge-tmp", null, null, null);
+        LifecycleConfiguration existing = new LifecycleConfiguration(List.of(
+                operatorRule,
+                new ObjectExpiryPolicy("lifecycle", List.of(1, 90)).lifecycleConfiguration().rules().get(0),
+                new ObjectExpiryPolicy("lifecycle", List.of(1, 90)).lifecycleConfiguration().rules().get(1)));
+
+        // Act
+        LifecycleConfiguration merged = policy.mergeLifecycleConfiguration(existing, List.of(90));
+
+        // Assert
+        assertEquals(List.of("purge-tmp", "expire-7d", "expire-90d"),
+                merged.rules().stream().map(LifecycleRule::id).toList());
+    }
+
+    @Test
+    void constructor_UnknownMode_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ObjectExpiryPolicy("archive", List.of(1)));
+    }
+}
@@ -0,0 +1,56 @@
+package com.fileservice.minioservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PermissionDecisionCacheTest {
+
+    private final PermissionDecisionCache cache = new PermissionDecisionCache(new SimpleMeterRegistry(), 1000, 60);
+
+    @Test
+    void invalidateObjects_DropsOnlyThatObjectsDecisions() {
+        // Arrange
+        AtomicInteger checks = new AtomicInteger();
+        cache.get("user:a", "reader", "file:1", () -> check(checks)).join();
+        cache.get("user:b", "writer", "file:1", () -> check(checks)).join();
+        cache.get("user:a", "reader", "file:2", () -> check(checks)).join();
+
+        // Act
+        cache.invalidateObjects(Set.of("file:1"));
+        cache.get("user:a", "reader", "file:1", () -> check(checks)).join();
+        cache.get("user:b", "writer", "file:1", () -> check(checks)).join();
+        cache.get("user:a", "reader", "file:2", () -> check(checks)).join();
+
+        // Assert
+        assertEquals(5, checks.get());
+    }
+
+    @Test
+    void get_FailedCheck_NotCachedAndRetried() {
+        // Arrange
+        AtomicInteger checks = new AtomicInteger();
+        CompletableFuture<Boolean> failed = cache.get("user:a", "reader", "file:1",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("OpenFGA unavailable")));
+
+        // Act
+        boolean allowed = cache.get("user:a", "reader", "file:1", () -> check(checks)).join();
+        cache.invalidateObject("file:1");
+        cache.get("user:a", "reader", "file:1", () -> check(checks)).join();
+
+        // Assert
+        assertTrue(failed.isCompletedExceptionally());
+        assertTrue(allowed);
+        assertEquals(2, checks.get());
+    }
+
+    private static CompletableFuture<Boolean> check(AtomicInteger checks) {
+        checks.incrementAndGet();
+        return CompletableFuture.completedFuture(true);
+    }
+}
@@ -0,0 +1,117 @@
+package com.fileservice.minioservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ShareLinkCountersTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ShareLinkCounters shareLinkCounters;
+
+    private void runTransactionsInline() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_BatchesAccumulatedCountsAndResets() {
+        // Arrange
+        runTransactionsInline();
+        shareLinkCounters.recordAccess(2L);
+        shareLinkCounters.recordAccess(2L);
+        shareLinkCounters.recordDownload(2L);
+        shareLinkCounters.recordDownload(1L);
+
+        // Act
+        shareLinkCounters.flush();
+
+        // Assert
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertArrayEquals(new Object[]{0L, 1L, 1L}, batch.getValue().get(0));
+        assertArrayEquals(new Object[]{2L, 1L, 2L}, batch.getValue().get(1));
+        assertEquals(0, shareLinkCounters.pendingAccesses(2L));
+    }
+
+    @Test
+    void flush_NothingRecorded_SkipsDatabase() {
+        // Act
+        shareLinkCounters.flush();
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_Failure_KeepsCountsForRetryWithoutDoubleCounting() {
+        // Arrange: the first batch fails inside its transaction, the second succeeds
+        runTransactionsInline();
+        shareLinkCounters.recordDownload(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[]{1});
+
+        // Act
+        shareLinkCounters.flush();
+        long pendingAfterFailure = shareLinkCounters.pendingDownloads(1L);
+        shareLinkCounters.flush();
+
+        // Assert
+        assertEquals(1, pendingAfterFailure);
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertArrayEquals(new Object[]{0L, 1L, 1L}, batch.getAllValues().get(1).get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_HitOnAdderTakenByPreviousFlush_CountedOnce() {
+        // Arrange: a request that looked up the adder before the flush took it increments it afterwards
+        runTransactionsInline();
+        shareLinkCounters.recordDownload(1L);
+        Map<Long, LongAdder> downloads = (Map<Long, LongAdder>) ReflectionTestUtils.getField(shareLinkCounters, "downloads");
+        LongAdder taken = downloads.get(1L);
+        shareLinkCounters.flush();
+        taken.increment();
+
+        // Act
+        shareLinkCounters.flush();
+        shareLinkCounters.flush();
+
+        // Assert
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertArrayEquals(new Object[]{0L, 1L, 1L}, batch.getAllValues().get(0).get(0));
+        assertArrayEquals(new Object[]{0L, 1L, 1L}, batch.getAllValues().get(1).get(0));
+    }
+}
@@ -1,19 +1,31 @@
 package com.fileservice.minioservice.service;
 
+import com.fileservice.minioservice.dto.CursorPage;
+import com.fileservice.minioservice.dto.FileMetadata;
+import com.fileservice.minioservice.dto.ResolvedShareLink;
 import com.fileservice.minioservice.dto.ShareLinkDto;
+import com.fileservice.minioservice.dto.SignedShareToken;
 import com.fileservice.minioservice.exception.FileServiceException;
 import com.fileservice.minioservice.model.FileEntity;
 import com.fileservice.minioservice.model.ShareLink;
 import com.fileservice.minioservice.repository.FileRepository;
 import com.fileservice.minioservice.repository.ShareLinkRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -37,6 +49,27 @@ public class ShareServiceTest {
     @Mock
     private AuthorizationService authorizationService;
 
+    @Mock
+    private FileMetadataCache fileMetadataCache;
+
+    @Mock
+    private ShareLinkCache shareLinkCache;
+
+    @Mock
+    private SignedShareTokenService signedShareTokenService;
+
+    @Mock
+    private ShareTokenRevocationList shareTokenRevocationList;
+
+    @Mock
+    private ShareLinkCounters shareLinkCounters;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private ShareService shareService;
 
@@ -44,6 +77,7 @@ public class ShareServiceTest {
     private ShareLink testShareLink;
     private final String TEST_USERNAME = "testuser";
     private final String TEST_TOKEN = "test-token-uuid";
+    private final String SIGNED_TOKEN = "s1.payload.signature";
 
     @BeforeEach
     void setUp() {
@@ -74,7 +108,8 @@ public class ShareServiceTest {
     @Test
     void createShareLink_Success() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        when(fileRepository.getReferenceById(1L)).thenReturn(testFile);
         when(shareLinkRepository.save(any(ShareLink.class))).thenReturn(testShareLink);
         when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned-url");
 
@@ -87,7 +122,7 @@ public class ShareServiceTest {
         assertEquals(1L, result.getFileId());
         assertEquals("READ", result.getPermission());
         assertNotNull(result.getFileUrl());
-        verify(fileRepository).findById(1L);
+        verify(fileMetadataCache).get(1L);
         verify(shareLinkRepository).save(any(ShareLink.class));
         verify(minioService).generatePresignedUrl(anyString(), anyInt());
     }
@@ -95,13 +130,13 @@ public class ShareServiceTest {
     @Test
     void createShareLink_FileNotFound() {
         // Arrange
-        when(fileRepository.findById(999L)).thenReturn(Optional.empty());
+        when(fileMetadataCache.get(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(FileServiceException.FileNotFoundException.class, () -> {
             shareService.createShareLink(999L, "READ", 7, TEST_USERNAME);
         });
-        verify(fileRepository).findById(999L);
+        verify(fileMetadataCache).get(999L);
         verifyNoInteractions(shareLinkRepository);
         verifyNoInteractions(minioService);
     }
@@ -112,14 +147,14 @@ public class ShareServiceTest {
         FileEntity otherUserFile = testFile;
         otherUserFile.setOwner("otheruser");
         
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(otherUserFile));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(otherUserFile)));
         when(authorizationService.canReadFile(anyString(), anyString())).thenReturn(false);
 
         // Act & Assert
         assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
             shareService.createShareLink(1L, "READ", 7, TEST_USERNAME);
         });
-        verify(fileRepository).findById(1L);
+        verify(fileMetadataCache).get(1L);
         verify(authorizationService).canReadFile(anyString(), anyString());
         verifyNoInteractions(shareLinkRepository);
         verifyNoInteractions(minioService);
@@ -142,6 +177,20 @@ public class ShareServiceTest {
         verify(minioService).generatePresignedUrl(anyString(), anyInt());
     }
 
+    @Test
+    void getShareLinkByToken_FileInTrash_ReturnsEmpty() {
+        // Arrange
+        testShareLink.getFile().setDeletedAt(LocalDateTime.now());
+        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(testShareLink));
+
+        // Act
+        Optional<ShareLinkDto> result = shareService.getShareLinkByToken(TEST_TOKEN);
+
+        // Assert
+        assertFalse(result.isPresent());
+        verifyNoInteractions(minioService);
+    }
+
     @Test
     void getShareLinkByToken_NotFound() {
         // Arrange
@@ -159,7 +208,7 @@ public class ShareServiceTest {
     @Test
     void getShareLinksForFile_Success() {
         // Arrange
-        when(fileRepository.findById(1L)).thenReturn(Optional.of(testFile));
+        when(fileRepository.existsByIdAndOwnerAndDeletedAtIsNull(1L, TEST_USERNAME)).thenReturn(true);
         when(shareLinkRepository.findByFileId(1L)).thenReturn(Arrays.asList(testShareLink));
         when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned-url");
 
@@ -170,67 +219,324 @@ public class ShareServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(TEST_TOKEN, result.get(0).getToken());
-        verify(fileRepository).findById(1L);
+        verify(fileRepository).existsByIdAndOwnerAndDeletedAtIsNull(1L, TEST_USERNAME);
+        verify(fileRepository, never()).findById(anyLong());
         verify(shareLinkRepository).findByFileId(1L);
         verify(minioService).generatePresignedUrl(anyString(), anyInt());
     }
 
+    @Test
+    void getShareLinksForFile_SameObjectAndExpiry_SignedOnce() {
+        // Arrange
+        ShareLink second = new ShareLink();
+        second.setId(2L);
+        second.setToken("second-token");
+        second.setFile(testFile);
+        second.setPermission("READ");
+        second.setExpiresAt(testShareLink.getExpiresAt());
+        second.setCreatedBy(TEST_USERNAME);
+        when(fileRepository.existsByIdAndOwnerAndDeletedAtIsNull(1L, TEST_USERNAME)).thenReturn(true);
+        when(shareLinkRepository.findByFileId(1L)).thenReturn(Arrays.asList(testShareLink, second));
+        when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned-url");
+
+        // Act
+        List<ShareLinkDto> result = shareService.getShareLinksForFile(1L, TEST_USERNAME);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(result.get(0).getFileUrl(), result.get(1).getFileUrl());
+        verify(minioService, times(1)).generatePresignedUrl(anyString(), anyInt());
+    }
+
+    @Test
+    void getShareLinksByUser_FullPage_ReturnsNextCursor() {
+        // Arrange
+        ShareLink older = new ShareLink();
+        older.setId(0L);
+        older.setToken("older-token");
+        older.setFile(testFile);
+        older.setPermission("READ");
+        older.setExpiresAt(testShareLink.getExpiresAt());
+        older.setCreatedBy(TEST_USERNAME);
+        when(shareLinkRepository.findPageByCreatedBy(eq(TEST_USERNAME), eq(5L), any()))
+                .thenReturn(new ArrayList<>(List.of(testShareLink, older)));
+        when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned-url");
+
+        // Act
+        CursorPage<ShareLinkDto> result = shareService.getShareLinksByUser(TEST_USERNAME, "5", 1);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertEquals(TEST_TOKEN, result.getItems().get(0).getToken());
+        assertEquals("1", result.getNextCursor());
+    }
+
+    @Test
+    void getShareLinksByUser_LastPage_NoCursor() {
+        // Arrange
+        when(shareLinkRepository.findPageByCreatedBy(eq(TEST_USERNAME), eq(Long.MAX_VALUE), any()))
+                .thenReturn(new ArrayList<>(List.of(testShareLink)));
+        when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned-url");
+
+        // Act
+        CursorPage<ShareLinkDto> result = shareService.getShareLinksByUser(TEST_USERNAME, null, 50);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
     @Test
     void validateShareLink_Success() {
         // Arrange
-        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(testShareLink));
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(resolved("READ", LocalDateTime.now().plusDays(7))));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
 
         // Act
-        FileEntity result = shareService.validateShareLink(TEST_TOKEN, "READ");
+        FileMetadata result = shareService.validateShareLink(TEST_TOKEN, "READ");
 
         // Assert
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("test.jpg", result.getFilename());
-        verify(shareLinkRepository).findByToken(TEST_TOKEN);
+        verify(shareLinkCache).resolve(TEST_TOKEN);
+        verifyNoInteractions(shareLinkRepository);
     }
 
     @Test
     void validateShareLink_NotFound() {
         // Arrange
-        when(shareLinkRepository.findByToken("non-existent-token")).thenReturn(Optional.empty());
+        when(shareLinkCache.resolve("non-existent-token")).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(FileServiceException.FileNotFoundException.class, () -> {
             shareService.validateShareLink("non-existent-token", "READ");
         });
-        verify(shareLinkRepository).findByToken("non-existent-token");
+        verify(shareLinkCache).resolve("non-existent-token");
+        verifyNoInteractions(fileMetadataCache);
     }
 
     @Test
     void validateShareLink_Expired() {
         // Arrange
-        ShareLink expiredLink = testShareLink;
-        expiredLink.setExpiresAt(LocalDateTime.now().minusDays(1));
-        
-        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(expiredLink));
-        doNothing().when(shareLinkRepository).delete(any(ShareLink.class));
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(resolved("READ", LocalDateTime.now().minusDays(1))));
 
         // Act & Assert
         assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
             shareService.validateShareLink(TEST_TOKEN, "READ");
         });
-        verify(shareLinkRepository).findByToken(TEST_TOKEN);
-        verify(shareLinkRepository).delete(any(ShareLink.class));
+        verify(shareLinkCache).resolve(TEST_TOKEN);
+        verifyNoInteractions(fileMetadataCache);
     }
 
     @Test
     void validateShareLink_InsufficientPermission() {
         // Arrange
-        ShareLink readOnlyLink = testShareLink;
-        readOnlyLink.setPermission("READ");
-        
-        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(readOnlyLink));
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(resolved("READ", LocalDateTime.now().plusDays(7))));
 
         // Act & Assert
         assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
             shareService.validateShareLink(TEST_TOKEN, "WRITE");
         });
-        verify(shareLinkRepository).findByToken(TEST_TOKEN);
+        verify(shareLinkCache).resolve(TEST_TOKEN);
+    }
+
+    @Test
+    void downloadSharedFile_Unlimited_CountedWriteBehind() {
+        // Arrange
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(resolved("READ", LocalDateTime.now().plusDays(7))));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        when(minioService.getFile(testFile.getObjectName())).thenReturn(Optional.of(mock(GetObjectResponse.class)));
+
+        // Act
+        shareService.downloadSharedFile(TEST_TOKEN);
+
+        // Assert
+        verify(shareLinkCounters).recordDownload(1L);
+        verifyNoInteractions(shareLinkRepository);
+    }
+
+    @Test
+    void downloadSharedFile_LimitReached_ThrowsAccessDenied() throws Exception {
+        // Arrange
+        ResolvedShareLink limited = new ResolvedShareLink(1L, 1L, testFile.getObjectName(), "READ", LocalDateTime.now().plusDays(7), 3);
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(limited));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        GetObjectResponse content = mock(GetObjectResponse.class);
+        when(minioService.getFile(testFile.getObjectName())).thenReturn(Optional.of(content));
+        when(shareLinkRepository.incrementDownloadCountWithinLimit(1L)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
+            shareService.downloadSharedFile(TEST_TOKEN);
+        });
+        verifyNoInteractions(shareLinkCounters);
+        verify(content).close();
+    }
+
+    @Test
+    void downloadSharedFile_ContentMissing_NotCounted() {
+        // Arrange
+        ResolvedShareLink limited = new ResolvedShareLink(1L, 1L, testFile.getObjectName(), "READ", LocalDateTime.now().plusDays(7), 3);
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(limited));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        when(minioService.getFile(testFile.getObjectName())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileNotFoundException.class, () -> shareService.downloadSharedFile(TEST_TOKEN));
+        verify(shareLinkRepository, never()).incrementDownloadCountWithinLimit(anyLong());
+        verifyNoInteractions(shareLinkCounters);
+    }
+
+    @Test
+    void createShareLink_SignedWithDownloadLimit_Rejected() {
+        // Arrange
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            shareService.createShareLink(1L, "READ", 7, TEST_USERNAME, true, 5);
+        });
+        verifyNoInteractions(signedShareTokenService);
+    }
+
+    @Test
+    void cleanupExpiredShareLinks_DeletesInChunksUntilShortChunk() {
+        // Arrange
+        ReflectionTestUtils.setField(shareService, "cleanupBatchSize", 2);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(shareLinkRepository.deleteExpiredLinks(any(LocalDateTime.class), eq(2))).thenReturn(2, 2, 1);
+
+        // Act
+        shareService.cleanupExpiredShareLinks();
+
+        // Assert
+        verify(shareLinkRepository, times(3)).deleteExpiredLinks(any(LocalDateTime.class), eq(2));
+        verify(shareTokenRevocationList).purgeExpired();
+        assertEquals(5.0, meterRegistry.counter("cleanup.deleted", "type", "share_links").count());
+    }
+
+    @Test
+    void deleteShareLink_EvictsCachedToken() {
+        // Arrange
+        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(testShareLink));
+
+        // Act
+        shareService.deleteShareLink(TEST_TOKEN, TEST_USERNAME);
+
+        // Assert
+        verify(shareLinkRepository).delete(testShareLink);
+        verify(shareLinkCache).evict(TEST_TOKEN);
+        verify(shareTokenRevocationList).revoke(TEST_TOKEN, 1L, testShareLink.getExpiresAt(), TEST_USERNAME);
+    }
+
+    @Test
+    void deleteShareLink_ExpiredLink_NotRevoked() {
+        // Arrange
+        testShareLink.setExpiresAt(LocalDateTime.now().minusDays(1));
+        when(shareLinkRepository.findByToken(TEST_TOKEN)).thenReturn(Optional.of(testShareLink));
+
+        // Act
+        shareService.deleteShareLink(TEST_TOKEN, TEST_USERNAME);
+
+        // Assert
+        verify(shareLinkRepository).delete(testShareLink);
+        verify(shareTokenRevocationList, never()).revoke(anyString(), anyLong(), any(LocalDateTime.class), anyString());
+    }
+
+    @Test
+    void accessSharedFile_DeletedOnAnotherNode_ThrowsNotFound() {
+        // Arrange
+        ResolvedShareLink cached = new ResolvedShareLink(1L, 1L, testFile.getObjectName(), "READ", LocalDateTime.now().plusDays(7), null);
+        when(shareLinkCache.resolve(TEST_TOKEN)).thenReturn(Optional.of(cached));
+        when(shareTokenRevocationList.isRevoked(TEST_TOKEN)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileNotFoundException.class,
+                () -> shareService.accessSharedFile(TEST_TOKEN));
+    }
+
+    @Test
+    void createShareLink_Signed_NotPersisted() {
+        // Arrange
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+        when(signedShareTokenService.issue(eq(1L), eq("READ"), any(LocalDateTime.class))).thenReturn(SIGNED_TOKEN);
+        when(minioService.generatePresignedUrl(anyString(), anyInt())).thenReturn("https://minio-server/presigned");
+
+        // Act
+        ShareLinkDto result = shareService.createShareLink(1L, "READ", 7, TEST_USERNAME, true, null);
+
+        // Assert
+        assertEquals(SIGNED_TOKEN, result.getToken());
+        verifyNoInteractions(shareLinkRepository);
+    }
+
+    @Test
+    void validateShareLink_Signed_SkipsTokenLookup() {
+        // Arrange
+        when(signedShareTokenService.isSignedToken(SIGNED_TOKEN)).thenReturn(true);
+        when(signedShareTokenService.verify(SIGNED_TOKEN)).thenReturn(Optional.of(signed(LocalDateTime.now().plusDays(1))));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+
+        // Act
+        FileMetadata result = shareService.validateShareLink(SIGNED_TOKEN, "READ");
+
+        // Assert
+        assertEquals(1L, result.getId());
+        verifyNoInteractions(shareLinkCache);
+        verifyNoInteractions(shareLinkRepository);
+    }
+
+    @Test
+    void validateShareLink_SignedRevoked_ThrowsNotFound() {
+        // Arrange
+        when(signedShareTokenService.isSignedToken(SIGNED_TOKEN)).thenReturn(true);
+        when(signedShareTokenService.verify(SIGNED_TOKEN)).thenReturn(Optional.of(signed(LocalDateTime.now().plusDays(1))));
+        when(shareTokenRevocationList.isRevoked("token-id")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileNotFoundException.class, () -> {
+            shareService.validateShareLink(SIGNED_TOKEN, "READ");
+        });
+        verifyNoInteractions(fileMetadataCache);
+    }
+
+    @Test
+    void deleteShareLink_SignedByNonOwner_AccessDenied() {
+        // Arrange
+        when(signedShareTokenService.isSignedToken(SIGNED_TOKEN)).thenReturn(true);
+        when(signedShareTokenService.verify(SIGNED_TOKEN)).thenReturn(Optional.of(signed(LocalDateTime.now().plusDays(1))));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+
+        // Act & Assert
+        assertThrows(FileServiceException.FileAccessDeniedException.class, () -> {
+            shareService.deleteShareLink(SIGNED_TOKEN, "otheruser");
+        });
+        verify(shareTokenRevocationList, never()).revoke(any(), anyString());
+    }
+
+    @Test
+    void deleteShareLink_SignedByOwner_Revokes() {
+        // Arrange
+        SignedShareToken token = signed(LocalDateTime.now().plusDays(1));
+        when(signedShareTokenService.isSignedToken(SIGNED_TOKEN)).thenReturn(true);
+        when(signedShareTokenService.verify(SIGNED_TOKEN)).thenReturn(Optional.of(token));
+        when(fileMetadataCache.get(1L)).thenReturn(Optional.of(FileMetadata.from(testFile)));
+
+        // Act
+        shareService.deleteShareLink(SIGNED_TOKEN, TEST_USERNAME);
+
+        // Assert
+        verify(shareTokenRevocationList).revoke(token, TEST_USERNAME);
+        verifyNoInteractions(shareLinkRepository);
+    }
+
+    private SignedShareToken signed(LocalDateTime expiresAt) {
+        return new SignedShareToken("token-id", 1L, "READ", expiresAt);
+    }
+
+    private ResolvedShareLink resolved(String permission, LocalDateTime expiresAt) {
+        return new ResolvedShareLink(1L, 1L, testFile.getObjectName(), permission, expiresAt, null);
     }
 }
@@ -0,0 +1,73 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.model.ShareTokenRevocation;
+import com.fileservice.minioservice.repository.ShareTokenRevocationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ShareTokenRevocationListTest {
+
+    @Mock
+    private ShareTokenRevocationRepository revocationRepository;
+
+    @InjectMocks
+    private ShareTokenRevocationList revocationList;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revoke_OutsideTransaction_AppliedImmediately() {
+        // Act
+        revocationList.revoke("token-id", 1L, LocalDateTime.now().plusDays(1), "testuser");
+
+        // Assert
+        verify(revocationRepository).save(any(ShareTokenRevocation.class));
+        assertTrue(revocationList.isRevoked("token-id"));
+    }
+
+    @Test
+    void revoke_InsideTransaction_AppliedOnlyAfterCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        revocationList.revoke("token-id", 1L, LocalDateTime.now().plusDays(1), "testuser");
+
+        // Assert
+        assertFalse(revocationList.isRevoked("token-id"));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertTrue(revocationList.isRevoked("token-id"));
+    }
+
+    @Test
+    void revoke_RolledBack_NotApplied() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        revocationList.revoke("token-id", 1L, LocalDateTime.now().plusDays(1), "testuser");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Assert
+        assertFalse(revocationList.isRevoked("token-id"));
+    }
+}
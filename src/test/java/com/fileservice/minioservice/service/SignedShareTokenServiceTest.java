@@ -0,0 +1,94 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.SignedShareToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignedShareTokenServiceTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+
+    private SignedShareTokenService signedShareTokenService;
+
+    @BeforeEach
+    void setUp() {
+        signedShareTokenService = new SignedShareTokenService(KEY);
+    }
+
+    @Test
+    void issueAndVerify_RoundTripsClaims() {
+        // Arrange
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(7).truncatedTo(ChronoUnit.SECONDS);
+
+        // Act
+        String token = signedShareTokenService.issue(42L, "READ", expiresAt);
+        Optional<SignedShareToken> result = signedShareTokenService.verify(token);
+
+        // Assert
+        assertTrue(signedShareTokenService.isSignedToken(token));
+        assertTrue(result.isPresent());
+        assertEquals(42L, result.get().getFileId());
+        assertEquals("READ", result.get().getPermission());
+        assertEquals(expiresAt, result.get().getExpiresAt());
+        assertNotNull(result.get().getTokenId());
+    }
+
+    @Test
+    void issue_GeneratesDistinctTokenIds() {
+        // Arrange
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1);
+
+        // Act
+        SignedShareToken first = signedShareTokenService.verify(signedShareTokenService.issue(1L, "READ", expiresAt)).orElseThrow();
+        SignedShareToken second = signedShareTokenService.verify(signedShareTokenService.issue(1L, "READ", expiresAt)).orElseThrow();
+
+        // Assert
+        assertNotEquals(first.getTokenId(), second.getTokenId());
+    }
+
+    @Test
+    void verify_TamperedPayload_Rejected() {
+        // Arrange
+        String token = signedShareTokenService.issue(1L, "READ", LocalDateTime.now().plusDays(1));
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2|WRITE|4102444800|abc".getBytes());
+        String forged = "s1." + forgedPayload + token.substring(token.lastIndexOf('.'));
+
+        // Act & Assert
+        assertTrue(signedShareTokenService.verify(forged).isEmpty());
+    }
+
+    @Test
+    void verify_SignedWithOtherKey_Rejected() {
+        // Arrange
+        String token = new SignedShareTokenService(OTHER_KEY).issue(1L, "READ", LocalDateTime.now().plusDays(1));
+
+        // Act & Assert
+        assertTrue(signedShareTokenService.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_Malformed_Rejected() {
+        assertTrue(signedShareTokenService.verify("s1.not-base64!.x").isEmpty());
+        assertTrue(signedShareTokenService.verify("s1.onlyonepart").isEmpty());
+        assertTrue(signedShareTokenService.verify("6f1c2b1e-0000-0000-0000-000000000000").isEmpty());
+    }
+
+    @Test
+    void issue_WithoutKey_ThrowsException() {
+        // Arrange
+        SignedShareTokenService disabled = new SignedShareTokenService("");
+
+        // Act & Assert
+        assertFalse(disabled.isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> disabled.issue(1L, "READ", LocalDateTime.now().plusDays(1)));
+    }
+}
@@ -0,0 +1,160 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.StoredObject;
+import com.fileservice.minioservice.repository.FileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageReconcilerTest {
+
+    private static final String BUCKET = "fileservice";
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Mock
+    private SchedulerLeaseService.Lease lease;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(schedulerLeaseService.tryAcquireExclusive(StorageReconciler.TASK_NAME)).thenReturn(Optional.of(lease));
+    }
+
+    @Test
+    void reconcile_ReportMode_CountsDriftWithoutDeleting() {
+        // Arrange
+        StorageReconciler reconciler = reconciler("report");
+        List<Item> items = List.of(item("a.jpg", 10, 48), item("b.jpg", 20, 48), item("c.jpg", 30, 48), item("new.jpg", 40, 1));
+        when(minioService.listFiles()).thenReturn(items.stream());
+        when(fileRepository.findObjectNamesPage(BUCKET, "", 1000)).thenReturn(List.of(
+                row("a.jpg", 48), row("a.jpg", 48), row("c.jpg", 48), row("d.jpg", 48)));
+
+        // Act
+        reconciler.reconcile();
+
+        // Assert
+        assertEquals(1.0, meterRegistry.counter("reconcile.orphaned.objects").count());
+        assertEquals(20.0, meterRegistry.counter("reconcile.orphaned.bytes").count());
+        assertEquals(1.0, meterRegistry.counter("reconcile.missing.objects").count());
+        verify(minioService, never()).deleteFiles(anyCollection());
+        verify(lease).close();
+    }
+
+    @Test
+    void reconcile_DeleteMode_RemovesOrphansPastGracePeriod() {
+        // Arrange
+        StorageReconciler reconciler = reconciler("delete");
+        List<Item> items = List.of(item("orphan.jpg", 10, 48), item("recent.jpg", 10, 1));
+        when(minioService.listFiles()).thenReturn(items.stream());
+        when(fileRepository.findObjectNamesPage(BUCKET, "", 1000)).thenReturn(List.of());
+        when(minioService.deleteFiles(anyCollection())).thenReturn(Set.of());
+
+        // Act
+        reconciler.reconcile();
+
+        // Assert
+        verify(minioService).deleteFiles(List.of("orphan.jpg"));
+    }
+
+    @Test
+    void reconcile_ReadsRowsInPagesWithOneTransactionEach() {
+        // Arrange
+        StorageReconciler reconciler = reconciler("report");
+        when(minioService.listFiles()).thenReturn(Stream.empty());
+        List<StoredObject> firstPage = IntStream.range(0, 1000)
+                .mapToObj(i -> row(String.format("r%04d.jpg", i), 48))
+                .toList();
+        when(fileRepository.findObjectNamesPage(BUCKET, "", 1000)).thenReturn(firstPage);
+        when(fileRepository.findObjectNamesPage(BUCKET, "r0999.jpg", 1000)).thenReturn(List.of(row("s.jpg", 48)));
+
+        // Act
+        reconciler.reconcile();
+
+        // Assert
+        assertEquals(1001.0, meterRegistry.counter("reconcile.missing.objects").count());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void reconcile_LeaseHeldElsewhere_Skips() {
+        // Arrange
+        StorageReconciler reconciler = reconciler("report");
+        when(schedulerLeaseService.tryAcquireExclusive(StorageReconciler.TASK_NAME)).thenReturn(Optional.empty());
+
+        // Act
+        reconciler.reconcile();
+
+        // Assert
+        verifyNoInteractions(minioService);
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void compareKeys_UsesCodePointOrder() {
+        // U+FF21 sorts before U+1F600 in UTF-8, but after it in UTF-16
+        assertTrue(StorageReconciler.compareKeys("Ａ", "😀") < 0);
+        assertTrue(StorageReconciler.compareKeys("a", "ab") < 0);
+        assertEquals(0, StorageReconciler.compareKeys("same", "same"));
+    }
+
+    private StorageReconciler reconciler(String mode) {
+        return new StorageReconciler(fileRepository, minioService, schedulerLeaseService, meterRegistry,
+                transactionManager, BUCKET, mode, 24, 0);
+    }
+
+    private Item item(String name, long size, int ageHours) {
+        Item item = mock(Item.class);
+        lenient().when(item.objectName()).thenReturn(name);
+        lenient().when(item.size()).thenReturn(size);
+        lenient().when(item.isDir()).thenReturn(false);
+        lenient().when(item.lastModified()).thenReturn(ZonedDateTime.now().minusHours(ageHours));
+        return item;
+    }
+
+    private StoredObject row(String name, int ageHours) {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(ageHours);
+        return new StoredObject() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.fileservice.minioservice.service;
+
+import com.fileservice.minioservice.dto.StorageUsageDto;
+import com.fileservice.minioservice.exception.FileServiceException;
+import com.fileservice.minioservice.model.UserStorageUsage;
+import com.fileservice.minioservice.repository.UserStorageUsageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageUsageServiceTest {
+
+    @Mock
+    private UserStorageUsageRepository usageRepository;
+
+    @InjectMocks
+    private StorageUsageService storageUsageService;
+
+    private final String TEST_USERNAME = "testuser";
+
+    @Test
+    void getUsage_NoUploadsYet() {
+        // Arrange
+        when(usageRepository.findById(TEST_USERNAME)).thenReturn(Optional.empty());
+
+        // Act
+        StorageUsageDto result = storageUsageService.getUsage(TEST_USERNAME);
+
+        // Assert
+        assertEquals(0L, result.getUsedBytes());
+        assertEquals(0L, result.getObjectCount());
+        assertNull(result.getMaxBytes());
+    }
+
+    @Test
+    void checkQuota_Unlimited_DoesNotQueryUsage() {
+        // Act
+        storageUsageService.checkQuota(TEST_USERNAME, Long.MAX_VALUE / 2);
+
+        // Assert
+        verifyNoInteractions(usageRepository);
+    }
+
+    @Test
+    void checkQuota_Exceeded() {
+        // Arrange
+        ReflectionTestUtils.setField(storageUsageService, "maxBytesPerUser", 1000L);
+        UserStorageUsage usage = new UserStorageUsage(TEST_USERNAME, 900L, 3L, LocalDateTime.now());
+        when(usageRepository.findById(TEST_USERNAME)).thenReturn(Optional.of(usage));
+
+        // Act & Assert
+        assertThrows(FileServiceException.QuotaExceededException.class, () -> {
+            storageUsageService.checkQuota(TEST_USERNAME, 200L);
+        });
+    }
+
+    @Test
+    void recordUpload_Success() {
+        // Arrange
+        ReflectionTestUtils.setField(storageUsageService, "maxBytesPerUser", 1000L);
+        when(usageRepository.reserve(TEST_USERNAME, 200L, 1000L, Long.MAX_VALUE)).thenReturn(1);
+
+        // Act
+        storageUsageService.recordUpload(TEST_USERNAME, 200L);
+
+        // Assert
+        verify(usageRepository).reserve(TEST_USERNAME, 200L, 1000L, Long.MAX_VALUE);
+    }
+
+    @Test
+    void recordUpload_ConcurrentUploadExceedsQuota() {
+        // Arrange
+        ReflectionTestUtils.setField(storageUsageService, "maxFilesPerUser", 10L);
+        when(usageRepository.reserve(TEST_USERNAME, 200L, Long.MAX_VALUE, 10L)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(FileServiceException.QuotaExceededException.class, () -> {
+            storageUsageService.recordUpload(TEST_USERNAME, 200L);
+        });
+    }
+
+    @Test
+    void recordUpload_LargerThanQuota_RejectedWithoutWrite() {
+        // Arrange
+        ReflectionTestUtils.setField(storageUsageService, "maxBytesPerUser", 1000L);
+
+        // Act & Assert
+        assertThrows(FileServiceException.QuotaExceededException.class, () -> {
+            storageUsageService.recordUpload(TEST_USERNAME, 5000L);
+        });
+        verifyNoInteractions(usageRepository);
+    }
+
+    @Test
+    void recordDeletion_ReleasesUsage() {
+        // Arrange
+        when(usageRepository.release(TEST_USERNAME, 1024L, 1L)).thenReturn(1);
+
+        // Act
+        storageUsageService.recordDeletion(TEST_USERNAME, 1024L, 1L);
+
+        // Assert
+        verify(usageRepository).release(TEST_USERNAME, 1024L, 1L);
+    }
+}